@@ -0,0 +1,99 @@
+package com.github.dakusui.thincrest.benchmarks;
+
+import com.github.dakusui.thincrest.TestAssertions;
+import com.github.dakusui.thincrest.ValidatorScope;
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.MetamorphicReportComposer;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.Proposition;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Measures the predicate built by `MetamorphicTestCaseFactory#toMetamorphicTestPredicate()` for various numbers of inputs.
+ *
+ * Failing benchmarks return the thrown error, so they cover the cost of composing a failure report.
+ * Run with `-prof gc` to see allocation rates per call.
+ *
+ * The report composer is configured by a {@link ValidatorScope}, which is effective only on the thread that opened it.
+ * Therefore, the state is per thread, and the scope is opened and closed by the thread that runs each iteration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetamorphicTestCaseFactoryBenchmark {
+  @Param({ "2", "16", "256", "4096" })
+  public int numInputs;
+
+  private Predicate<Double> passing;
+  private Predicate<Double> failing;
+  private ValidatorScope    scope;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.passing = createFactory(this.numInputs, 0.0).toMetamorphicTestPredicate();
+    this.failing = createFactory(this.numInputs, 0.001).toMetamorphicTestPredicate();
+  }
+
+  @Setup(Level.Iteration)
+  public void openScope() {
+    this.scope = ValidatorScope.open(b -> b.reportComposer(new MetamorphicReportComposer()));
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeScope() {
+    this.scope.close();
+  }
+
+  @Benchmark
+  public Object buildPredicate() {
+    return createFactory(this.numInputs, 0.0).toMetamorphicTestPredicate();
+  }
+
+  @Benchmark
+  public boolean testPassing() {
+    return this.passing.test(1.23);
+  }
+
+  @Benchmark
+  public boolean testFailing() {
+    return this.failing.test(1.23);
+  }
+
+  @Benchmark
+  public Object assertThatPassing() {
+    TestAssertions.assertThat(1.23, this.passing);
+    return this.passing;
+  }
+
+  @Benchmark
+  public Object assertThatFailing() {
+    try {
+      TestAssertions.assertThat(1.23, this.failing);
+    } catch (AssertionError e) {
+      return e;
+    }
+    throw new IllegalStateException();
+  }
+
+  /**
+   * Creates a factory that checks `sin(x) = sin(x + 2πk)` for `k` in `[1, numInputs)`.
+   * The FUT has a given `error` for inputs other than the source value.
+   */
+  private static MetamorphicTestCaseFactory<Double, Double, Double, Proposition> createFactory(int numInputs, double error) {
+    MetamorphicTestCaseFactory.Builder<Double, Double, Double, Object> b = MetamorphicTestCaseFactory
+        .forFunctionUnderTest("Math::sin", (Double x) -> Math.sin(x))
+        .makeInputResolversEndomorphic();
+    for (int i = 1; i < numInputs; i++) {
+      int k = i;
+      b = b.addInputResolver(x -> String.format("%s+2π*%s", x, k), x -> x + 2 * Math.PI * k + error);
+    }
+    return b.outputOnly()
+        .proposition("all equal to {0}", (Dataset<Double> ds) -> ds.stream().allMatch(v -> Math.abs(v - ds.get(0)) < 0.0000001));
+  }
+}
@@ -0,0 +1,141 @@
+package com.github.dakusui.thincrest.benchmarks;
+
+import com.github.dakusui.thincrest.TestAssertions;
+import com.github.dakusui.thincrest_pcond.forms.Predicates;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static com.github.dakusui.thincrest_pcond.fluent.Statement.objectValue;
+import static com.github.dakusui.thincrest_pcond.forms.Functions.length;
+import static com.github.dakusui.thincrest_pcond.forms.Predicates.transform;
+
+/**
+ * Measures `TestAssertions` for passing and failing values.
+ *
+ * Failing benchmarks return the thrown error, so they cover the cost of composing a failure report.
+ * Run with `-prof gc` to see allocation rates per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestAssertionsBenchmark {
+  private Predicate<String> predicate;
+
+  @Setup
+  public void setUp() {
+    this.predicate = transform(length()).check(Predicates.lessThan(10));
+  }
+
+  @Benchmark
+  public Object assertThatPassing() {
+    TestAssertions.assertThat("hello", this.predicate);
+    return this.predicate;
+  }
+
+  @Benchmark
+  public Object assertThatFailing() {
+    try {
+      TestAssertions.assertThat("hello, world", this.predicate);
+    } catch (AssertionError e) {
+      return e;
+    }
+    throw new IllegalStateException();
+  }
+
+  @Benchmark
+  public Object assertThatPassingReplayOnFailure() {
+    TestAssertions.assertThat("hello", this.predicate, TestAssertions.EvaluationMode.REPLAY_ON_FAILURE);
+    return this.predicate;
+  }
+
+  @Benchmark
+  public Object assertThatFailingReplayOnFailure() {
+    try {
+      TestAssertions.assertThat("hello, world", this.predicate, TestAssertions.EvaluationMode.REPLAY_ON_FAILURE);
+    } catch (AssertionError e) {
+      return e;
+    }
+    throw new IllegalStateException();
+  }
+
+  @Benchmark
+  public Object assertStatementPassing() {
+    TestAssertions.assertStatement(objectValue("hello").asString().length().then().lessThan(10));
+    return this.predicate;
+  }
+
+  @Benchmark
+  public Object assertStatementFailing() {
+    try {
+      TestAssertions.assertStatement(objectValue("hello, world").asString().length().then().lessThan(10));
+    } catch (AssertionError e) {
+      return e;
+    }
+    throw new IllegalStateException();
+  }
+
+  @Benchmark
+  public Object assertAllPassing() {
+    TestAssertions.assertAll(
+        objectValue("hello").asString().length().then().lessThan(10),
+        objectValue("world").asString().length().then().lessThan(10));
+    return this.predicate;
+  }
+
+  @Benchmark
+  public Object assertAllFailing() {
+    try {
+      TestAssertions.assertAll(
+          objectValue("hello").asString().length().then().lessThan(10),
+          objectValue("hello, world").asString().length().then().lessThan(10));
+    } catch (AssertionError e) {
+      return e;
+    }
+    throw new IllegalStateException();
+  }
+
+  @Benchmark
+  public Object assertAllFailFastPassing() {
+    TestAssertions.assertAll(TestAssertions.AllMode.FAIL_FAST,
+        () -> objectValue("hello").asString().length().then().lessThan(10),
+        () -> objectValue("world").asString().length().then().lessThan(10));
+    return this.predicate;
+  }
+
+  @Benchmark
+  public Object assertAllFailFastFailing() {
+    try {
+      TestAssertions.assertAll(TestAssertions.AllMode.FAIL_FAST,
+          () -> objectValue("hello, world").asString().length().then().lessThan(10),
+          () -> objectValue("hello").asString().length().then().lessThan(10));
+    } catch (AssertionError e) {
+      return e;
+    }
+    throw new IllegalStateException();
+  }
+
+  @Benchmark
+  public Object assertAllConcurrentPassing() {
+    TestAssertions.assertAll(TestAssertions.concurrentExecutor(),
+        () -> objectValue("hello").asString().length().then().lessThan(10),
+        () -> objectValue("world").asString().length().then().lessThan(10));
+    return this.predicate;
+  }
+
+  @Benchmark
+  public Object assertAllConcurrentFailing() {
+    try {
+      TestAssertions.assertAll(TestAssertions.concurrentExecutor(),
+          () -> objectValue("hello").asString().length().then().lessThan(10),
+          () -> objectValue("hello, world").asString().length().then().lessThan(10));
+    } catch (AssertionError e) {
+      return e;
+    }
+    throw new IllegalStateException();
+  }
+}
@@ -1,15 +1,24 @@
 package com.github.dakusui.thincrest;
 
+import com.github.dakusui.thincrest.jfr.ThincrestEvents;
 import com.github.dakusui.thincrest_pcond.fluent.ListHolder;
 import com.github.dakusui.thincrest_pcond.fluent.Statement;
-import com.github.dakusui.thincrest_pcond.validator.Validator;
+import com.github.dakusui.thincrest_pcond.forms.Printables;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -49,6 +58,7 @@ import static java.util.stream.Collectors.toList;
  * @see com.github.dakusui.thincrest_pcond.forms.Printables#function(String, Function)
  * @see com.github.dakusui.thincrest_pcond.forms.Printables#predicate(Supplier, Predicate)
  * @see com.github.dakusui.thincrest_pcond.forms.Printables#function(Supplier, Function)
+ * @see EvaluationMode
  */
 public enum TestAssertions {
 
@@ -58,12 +68,28 @@ public enum TestAssertions {
    * A method to check a given `value` satisfies a condition `predicate`, to be verified by the test.
    * If it is not satisfied, the test should fail.
    *
+   * The predicate is evaluated in the mode returned by {@link EvaluationMode#defaultMode()}.
+   *
    * @param value     The value to be checked.
    * @param predicate A condition to check the `value`.
    * @param <T>       The type of the `value`.
    */
   public static <T> void assertThat(T value, Predicate<? super T> predicate) {
-    Validator.instance().assertThat(value, predicate);
+    assertThat(value, predicate, EvaluationMode.defaultMode());
+  }
+
+  /**
+   * A method to check a given `value` satisfies a condition `predicate` in a specified evaluation `mode`.
+   * Use this method to opt out of the default mode for a predicate, which is not idempotent.
+   *
+   * @param value     The value to be checked.
+   * @param predicate A condition to check the `value`.
+   * @param mode      A mode, in which the `predicate` is evaluated.
+   * @param <T>       The type of the `value`.
+   * @see EvaluationMode
+   */
+  public static <T> void assertThat(T value, Predicate<? super T> predicate, EvaluationMode mode) {
+    validate("assertThat", value, predicate, mode, ValidatorScope.validator()::assertThat);
   }
 
   /**
@@ -76,7 +102,39 @@ public enum TestAssertions {
    * @param <T>       The type of the `value`.
    */
   public static <T> void assumeThat(T value, Predicate<? super T> predicate) {
-    Validator.instance().assumeThat(value, predicate);
+    assumeThat(value, predicate, EvaluationMode.defaultMode());
+  }
+
+  /**
+   * A method to check a given `value` satisfies a condition `predicate`, which is required by the *test's design*, in a specified evaluation `mode`.
+   *
+   * @param value     The value to be checked.
+   * @param predicate A condition to check the `value`.
+   * @param mode      A mode, in which the `predicate` is evaluated.
+   * @param <T>       The type of the `value`.
+   * @see TestAssertions#assumeThat(Object, Predicate)
+   * @see EvaluationMode
+   */
+  public static <T> void assumeThat(T value, Predicate<? super T> predicate, EvaluationMode mode) {
+    validate("assumeThat", value, predicate, mode, ValidatorScope.validator()::assumeThat);
+  }
+
+  private static <T> void validate(String method, T value, Predicate<? super T> predicate, EvaluationMode mode, Validation validation) {
+    withAssertionEvent(method, mode, () -> mode.validate(value, predicate, validation));
+  }
+
+  /**
+   * Runs a verification, recording it as a JFR event for an assertion.
+   */
+  private static void withAssertionEvent(String method, Object mode, Runnable verification) {
+    Object event = ThincrestEvents.beginAssertion(method, mode);
+    boolean passed = false;
+    try {
+      verification.run();
+      passed = true;
+    } finally {
+      ThincrestEvents.endAssertion(event, passed);
+    }
   }
   
   /**
@@ -125,4 +183,280 @@ public enum TestAssertions {
     List<?> values = Arrays.stream(statements).map(Statement::statementValue).collect(toList());
     TestAssertions.assumeThat(ListHolder.fromList(values), Statement.createPredicateForAllOf(statements));
   }
+
+  /**
+   * A lazy version of {@link TestAssertions#assertAll(Statement[])}.
+   * Each statement is created by calling its supplier, only when it is verified.
+   *
+   * In {@link AllMode#FAIL_FAST}, statements are verified in the given order and the rest of them are not created once one of them doesn't hold.
+   * The report covers the statements verified until then.
+   * In {@link AllMode#COLLECT_ALL}, all the statements are created and the report covers all of them, as {@link TestAssertions#assertAll(Statement[])} does.
+   *
+   * @param mode       A mode to specify whether to stop on the first failing statement.
+   * @param statements Suppliers of statements to be verified
+   * @see TestAssertions#assertAll(Statement[])
+   */
+  @SafeVarargs
+  public static void assertAll(AllMode mode, Supplier<Statement<?>>... statements) {
+    withAssertionEvent("assertAll", mode, () -> mode.verify(statements, ValidatorScope.validator()::assertThat));
+  }
+
+  /**
+   * A lazy version of {@link TestAssertions#assumeAll(Statement[])}.
+   *
+   * @param mode       A mode to specify whether to stop on the first failing statement.
+   * @param statements Suppliers of statements to be verified
+   * @see TestAssertions#assertAll(AllMode, Supplier[])
+   */
+  @SafeVarargs
+  public static void assumeAll(AllMode mode, Supplier<Statement<?>>... statements) {
+    withAssertionEvent("assumeAll", mode, () -> mode.verify(statements, ValidatorScope.validator()::assumeThat));
+  }
+
+  /**
+   * A concurrent version of {@link TestAssertions#assertAll(AllMode, Supplier[])} in {@link AllMode#COLLECT_ALL}.
+   * Statements are created and verified without tracing on a given `executor` concurrently.
+   * Only if any of them doesn't hold, all of them are validated again by the `pcond` evaluator on the calling thread in the given order, so the report is the same as the sequential one.
+   * The executor is not shut down by this method.
+   *
+   * @param executor   An executor on which statements are created and verified.
+   * @param statements Suppliers of statements to be verified
+   * @see TestAssertions#concurrentExecutor()
+   */
+  @SafeVarargs
+  public static void assertAll(Executor executor, Supplier<Statement<?>>... statements) {
+    withAssertionEvent("assertAll", "CONCURRENT", () -> AllMode.verifyConcurrently(executor, statements, ValidatorScope.validator()::assertThat));
+  }
+
+  /**
+   * A concurrent version of {@link TestAssertions#assumeAll(AllMode, Supplier[])} in {@link AllMode#COLLECT_ALL}.
+   *
+   * @param executor   An executor on which statements are created and verified.
+   * @param statements Suppliers of statements to be verified
+   * @see TestAssertions#assertAll(Executor, Supplier[])
+   */
+  @SafeVarargs
+  public static void assumeAll(Executor executor, Supplier<Statement<?>>... statements) {
+    withAssertionEvent("assumeAll", "CONCURRENT", () -> AllMode.verifyConcurrently(executor, statements, ValidatorScope.validator()::assumeThat));
+  }
+
+  /**
+   * Returns an executor suitable for {@link TestAssertions#assertAll(Executor, Supplier[])}.
+   * On Java 21 or later, it starts a new virtual thread for each task.
+   * Otherwise, it is the common pool of `ForkJoinPool`.
+   * Neither holds threads of its own, so the executor doesn't need to be shut down.
+   *
+   * @return An executor to verify statements concurrently.
+   */
+  public static Executor concurrentExecutor() {
+    return ConcurrentExecutorHolder.INSTANCE;
+  }
+
+  private static class ConcurrentExecutorHolder {
+    private static final Executor INSTANCE = create();
+
+    private static Executor create() {
+      Method startVirtualThread;
+      try {
+        startVirtualThread = Thread.class.getMethod("startVirtualThread", Runnable.class);
+      } catch (NoSuchMethodException e) {
+        return ForkJoinPool.commonPool();
+      }
+      return task -> {
+        try {
+          startVirtualThread.invoke(null, task);
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+          if (e.getCause() instanceof RuntimeException)
+            throw (RuntimeException) e.getCause();
+          throw new IllegalStateException(e.getCause());
+        }
+      };
+    }
+  }
+
+  /**
+   * An enum to specify how `assertAll` and `assumeAll` methods, which accept suppliers of statements, verify them.
+   */
+  public enum AllMode {
+    /**
+     * Verifies statements one by one without tracing, and stops on the first one that doesn't hold.
+     * Only when it happens, the statements verified so far are validated again by the `pcond` evaluator to compose a report.
+     * Suppliers after the failing one are not called.
+     */
+    FAIL_FAST {
+      @Override
+      void verify(Supplier<Statement<?>>[] statementSuppliers, Validation validation) {
+        List<Statement<?>> statements = new ArrayList<>(statementSuppliers.length);
+        for (Supplier<Statement<?>> each : statementSuppliers) {
+          Statement<?> statement = each.get();
+          statements.add(statement);
+          if (!holdsWithoutTracing(statement)) {
+            replayAll(statements, validation);
+            return;
+          }
+        }
+      }
+    },
+    /**
+     * Creates all the statements and verifies them at once.
+     */
+    COLLECT_ALL {
+      @Override
+      void verify(Supplier<Statement<?>>[] statementSuppliers, Validation validation) {
+        validateAll(Arrays.stream(statementSuppliers).map(Supplier::get).collect(toList()), EvaluationMode.defaultMode(), validation);
+      }
+    };
+
+    abstract void verify(Supplier<Statement<?>>[] statementSuppliers, Validation validation);
+
+    static void verifyConcurrently(Executor executor, Supplier<Statement<?>>[] statementSuppliers, Validation validation) {
+      requireNonNull(executor);
+      List<CompletableFuture<Statement<?>>> statements = new ArrayList<>(statementSuppliers.length);
+      List<CompletableFuture<Boolean>> results = new ArrayList<>(statementSuppliers.length);
+      for (Supplier<Statement<?>> each : statementSuppliers) {
+        CompletableFuture<Statement<?>> statement = CompletableFuture.supplyAsync(each, executor);
+        statements.add(statement);
+        results.add(statement.thenApplyAsync(AllMode::holdsWithoutTracing, executor));
+      }
+      boolean allHold = true;
+      for (CompletableFuture<Boolean> each : results)
+        allHold &= join(each);
+      if (allHold)
+        return;
+      replayAll(statements.stream().map(AllMode::join).collect(toList()), validation);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException)
+          throw (RuntimeException) e.getCause();
+        if (e.getCause() instanceof Error)
+          throw (Error) e.getCause();
+        throw e;
+      }
+    }
+
+    private static void validateAll(List<Statement<?>> statements, EvaluationMode mode, Validation validation) {
+      List<?> values = statements.stream().map(Statement::statementValue).collect(toList());
+      mode.validate(ListHolder.fromList(values), Statement.createPredicateForAllOf(statements.toArray(new Statement<?>[0])), validation);
+    }
+
+    /**
+     * Validates statements, some of which are already known not to hold, by the `pcond` evaluator to compose a report.
+     */
+    private static void replayAll(List<Statement<?>> statements, Validation validation) {
+      List<?> values = statements.stream().map(Statement::statementValue).collect(toList());
+      EvaluationMode.replay(ListHolder.fromList(values), Statement.createPredicateForAllOf(statements.toArray(new Statement<?>[0])), validation);
+    }
+
+    private static <T> boolean holdsWithoutTracing(Statement<T> statement) {
+      return EvaluationMode.passesWithoutTracing(statement.statementValue(), statement.statementPredicate());
+    }
+  }
+
+  /**
+   * An enum to specify how a predicate given to an assertion method is evaluated.
+   *
+   * The default mode is {@link EvaluationMode#TRACED}.
+   * It can be changed by a system property `thincrest.evaluationMode`, whose value is a name of a constant of this enum (case-insensitive).
+   * If the property has an unknown value, methods that use the default mode throw an `IllegalStateException`, which tells the expected values.
+   */
+  public enum EvaluationMode {
+    /**
+     * Evaluates a predicate always by the `pcond` evaluator, which records every step of the evaluation for the report.
+     */
+    TRACED {
+      @Override
+      <T> void validate(T value, Predicate<? super T> predicate, Validation validation) {
+        Object event = ThincrestEvents.beginReport(false);
+        try {
+          validation.validate(value, predicate);
+        } finally {
+          ThincrestEvents.end(event);
+        }
+      }
+    },
+    /**
+     * Evaluates a predicate once without any tracing.
+     * Only when it does not hold (or it throws an exception), the value is validated again by the `pcond` evaluator to compose a report.
+     *
+     * This mode requires a predicate to be idempotent.
+     * That is, it must return the same result for the same value, and it must not modify the value.
+     * If the traced evaluation passes even though the first one failed, the validation still fails with a report telling it.
+     * For a predicate that doesn't satisfy the requirement, use {@link EvaluationMode#TRACED} for the call ({@link TestAssertions#assertThat(Object, Predicate, EvaluationMode)}),
+     * or give a snapshot (copy) of the value instead of the value itself.
+     */
+    REPLAY_ON_FAILURE {
+      @Override
+      <T> void validate(T value, Predicate<? super T> predicate, Validation validation) {
+        if (passesWithoutTracing(value, predicate))
+          return;
+        replay(value, predicate, validation);
+      }
+    };
+
+    private static final String         PROPERTY_NAME  = "thincrest.evaluationMode";
+    private static final String         PROPERTY_VALUE = System.getProperty(PROPERTY_NAME);
+    private static final EvaluationMode DEFAULT_MODE   = parse(PROPERTY_VALUE);
+
+    /**
+     * Returns the default evaluation mode.
+     *
+     * @return The default evaluation mode.
+     * @throws IllegalStateException The system property has an unknown value.
+     */
+    public static EvaluationMode defaultMode() {
+      if (DEFAULT_MODE == null)
+        throw new IllegalStateException(String.format("Unknown value '%s' is given to the system property '%s'. One of %s is expected.",
+            PROPERTY_VALUE, PROPERTY_NAME, Arrays.toString(values())));
+      return DEFAULT_MODE;
+    }
+
+    abstract <T> void validate(T value, Predicate<? super T> predicate, Validation validation);
+
+    /**
+     * Parses a value of the system property.
+     * `null` is returned for an unknown value, which is reported when the default mode is requested, so that a typo in it doesn't make this class fail to initialize.
+     */
+    private static EvaluationMode parse(String value) {
+      if (value == null)
+        return TRACED;
+      for (EvaluationMode each : values())
+        if (each.name().equalsIgnoreCase(value.trim()))
+          return each;
+      return null;
+    }
+
+    /**
+     * Validates a value, which is already known not to satisfy a predicate, by the `pcond` evaluator to compose a report.
+     * If the traced evaluation passes, the validation still fails with a report telling it.
+     */
+    static <T> void replay(T value, Predicate<? super T> predicate, Validation validation) {
+      Object event = ThincrestEvents.beginReport(true);
+      try {
+        validation.validate(value, predicate);
+        validation.validate(value, Printables.predicate(
+            () -> "passedOnlyOnReplay(" + predicate + ")",
+            v -> false));
+      } finally {
+        ThincrestEvents.end(event);
+      }
+    }
+
+    private static <T> boolean passesWithoutTracing(T value, Predicate<? super T> predicate) {
+      try {
+        return predicate.test(value);
+      } catch (RuntimeException e) {
+        return false;
+      }
+    }
+  }
+
+  interface Validation {
+    <T> void validate(T value, Predicate<? super T> predicate);
+  }
 }
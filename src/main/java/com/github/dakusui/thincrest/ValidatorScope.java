@@ -0,0 +1,85 @@
+package com.github.dakusui.thincrest;
+
+import com.github.dakusui.thincrest_pcond.validator.Validator;
+
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A scope, in which methods of {@link TestAssertions} use a validator configured for it, instead of the one returned by {@link Validator#instance()}.
+ *
+ * A scope is effective only on the thread that opened it, until it is closed.
+ * Scopes can be nested, and a nested scope is configured based on the configuration of the enclosing one.
+ * Since no global state is modified, test classes that need different configurations can be run in parallel threads of the same JVM.
+ *
+ * [source,java]
+ * ----
+ * try (ValidatorScope scope = ValidatorScope.open(b -> b.reportComposer(new MetamorphicReportComposer()))) {
+ *   assertThat(1.23, factory.toMetamorphicTestPredicate());
+ * }
+ * ----
+ *
+ * Looking up the validator costs a `ThreadLocal#get()` call and a `null` check.
+ */
+public final class ValidatorScope implements AutoCloseable {
+  private static final ThreadLocal<ValidatorScope> CURRENT = new ThreadLocal<>();
+
+  private final ValidatorScope enclosing;
+  private final Validator      validator;
+  private final Thread         owner;
+  private       boolean        closed;
+
+  private ValidatorScope(ValidatorScope enclosing, Validator validator) {
+    this.enclosing = enclosing;
+    this.validator = requireNonNull(validator);
+    this.owner = Thread.currentThread();
+    this.closed = false;
+  }
+
+  /**
+   * Opens a scope on the current thread.
+   * The validator of the scope is configured by `configurator`, based on the configuration of the current validator.
+   *
+   * @param configurator A consumer that configures the validator of the scope.
+   * @return An opened scope, which should be closed by try-with-resources.
+   */
+  public static ValidatorScope open(Consumer<Validator.Configuration.Builder> configurator) {
+    requireNonNull(configurator);
+    Validator.Configuration.Builder b = validator().configuration().parentBuilder();
+    configurator.accept(b);
+    ValidatorScope ret = new ValidatorScope(CURRENT.get(), new Validator.Impl(b.build()));
+    CURRENT.set(ret);
+    return ret;
+  }
+
+  /**
+   * Returns the validator of the innermost scope opened on the current thread.
+   * If no scope is open, the one returned by {@link Validator#instance()} is returned.
+   *
+   * @return The validator for the current thread.
+   */
+  public static Validator validator() {
+    ValidatorScope current = CURRENT.get();
+    return current != null ? current.validator : Validator.instance();
+  }
+
+  /**
+   * Closes this scope, and the enclosing scope becomes effective again.
+   * A scope must be closed by the thread that opened it, in the reverse order of opening.
+   */
+  @Override
+  public void close() {
+    if (this.closed)
+      return;
+    if (Thread.currentThread() != this.owner)
+      throw new IllegalStateException("A scope must be closed by the thread that opened it: " + this.owner);
+    if (CURRENT.get() != this)
+      throw new IllegalStateException("An inner scope is not closed yet.");
+    this.closed = true;
+    if (this.enclosing == null)
+      CURRENT.remove();
+    else
+      CURRENT.set(this.enclosing);
+  }
+}
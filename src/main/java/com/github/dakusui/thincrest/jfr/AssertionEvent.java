@@ -0,0 +1,26 @@
+package com.github.dakusui.thincrest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.github.dakusui.thincrest.Assertion")
+@Label("Assertion")
+@Category("thincrest")
+@Description("A call of an assertion or assumption method of TestAssertions")
+class AssertionEvent extends Event {
+  @Label("Method")
+  String method;
+
+  @Label("Evaluation Mode")
+  String mode;
+
+  @Label("Site")
+  @Description("The first stack frame outside thincrest")
+  String site;
+
+  @Label("Passed")
+  boolean passed;
+}
@@ -0,0 +1,21 @@
+package com.github.dakusui.thincrest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.github.dakusui.thincrest.Report")
+@Label("Report Composition")
+@Category("thincrest")
+@Description("A traced evaluation by the pcond evaluator, which composes a report if the value fails")
+class ReportEvent extends Event {
+  @Label("Site")
+  @Description("The first stack frame outside thincrest")
+  String site;
+
+  @Label("Replayed")
+  @Description("Whether the value had already failed an evaluation without tracing")
+  boolean replayed;
+}
@@ -0,0 +1,20 @@
+package com.github.dakusui.thincrest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.github.dakusui.thincrest.MetamorphicStage")
+@Label("Metamorphic Stage")
+@Category("thincrest")
+@Description("Processing of a stage, or an item in it, of a metamorphic test case")
+class StageEvent extends Event {
+  @Label("Stage")
+  String stage;
+
+  @Label("Index")
+  @Description("The index of the processed item. -1 if the event covers the whole stage")
+  int index;
+}
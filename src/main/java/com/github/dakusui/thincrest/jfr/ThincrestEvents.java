@@ -0,0 +1,186 @@
+package com.github.dakusui.thincrest.jfr;
+
+import jdk.jfr.EventType;
+
+/**
+ * An entry-point to emit JDK Flight Recorder events from thincrest.
+ *
+ * Each `begin` method returns a token to be given to the corresponding `end` method.
+ * If the JFR is not available in the runtime or the event is not enabled, the token is `null` and the `end` method does nothing.
+ * Classes of `jdk.jfr` are never loaded on a runtime that doesn't have them.
+ */
+public enum ThincrestEvents {
+  ;
+
+  private static final boolean AVAILABLE = isAvailable();
+
+  public static Object beginAssertion(String method, Object mode) {
+    return AVAILABLE ? Jfr.beginAssertion(method, mode) : null;
+  }
+
+  public static void endAssertion(Object token, boolean passed) {
+    if (token != null)
+      Jfr.endAssertion(token, passed);
+  }
+
+  /**
+   * Begins an event for a stage of a metamorphic test case.
+   *
+   * @param stage The name of the stage.
+   * @param index The index of an item processed in the stage. `-1` for the whole stage.
+   * @return A token to be given to {@link ThincrestEvents#end(Object)}.
+   */
+  public static Object beginStage(String stage, int index) {
+    return AVAILABLE ? Jfr.beginStage(stage, index) : null;
+  }
+
+  /**
+   * Begins an event for a traced evaluation, which composes a report if the value fails.
+   *
+   * @param replayed `true` if the value has already failed an evaluation without tracing.
+   * @return A token to be given to {@link ThincrestEvents#end(Object)}.
+   */
+  public static Object beginReport(boolean replayed) {
+    return AVAILABLE ? Jfr.beginReport(replayed) : null;
+  }
+
+  public static Object beginValueFormat() {
+    return AVAILABLE ? Jfr.beginValueFormat() : null;
+  }
+
+  /**
+   * Ends an event for formatting a value for a report.
+   *
+   * @param token   A token returned by {@link ThincrestEvents#beginValueFormat()}.
+   * @param length  The length of the formatted value.
+   * @param spillId The id of the spilled full value. `-1` if it is not spilled.
+   */
+  public static void endValueFormat(Object token, int length, long spillId) {
+    if (token != null)
+      Jfr.endValueFormat(token, length, spillId);
+  }
+
+  public static void end(Object token) {
+    if (token != null)
+      Jfr.end(token);
+  }
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Touches `jdk.jfr` classes.
+   * This class is loaded only if they are available.
+   * Whether an event is enabled is checked on its type, so that no event object is allocated while it is disabled.
+   */
+  private static class Jfr {
+    private static final EventType ASSERTION    = EventType.getEventType(AssertionEvent.class);
+    private static final EventType STAGE        = EventType.getEventType(StageEvent.class);
+    private static final EventType REPORT       = EventType.getEventType(ReportEvent.class);
+    private static final EventType VALUE_FORMAT = EventType.getEventType(ValueFormatEvent.class);
+
+    static Object beginAssertion(String method, Object mode) {
+      if (!ASSERTION.isEnabled())
+        return null;
+      AssertionEvent event = new AssertionEvent();
+      event.method = method;
+      event.mode = String.valueOf(mode);
+      event.site = site();
+      event.begin();
+      return event;
+    }
+
+    static void endAssertion(Object token, boolean passed) {
+      AssertionEvent event = (AssertionEvent) token;
+      event.passed = passed;
+      event.commit();
+    }
+
+    static Object beginStage(String stage, int index) {
+      if (!STAGE.isEnabled())
+        return null;
+      StageEvent event = new StageEvent();
+      event.stage = stage;
+      event.index = index;
+      event.begin();
+      return event;
+    }
+
+    static Object beginReport(boolean replayed) {
+      if (!REPORT.isEnabled())
+        return null;
+      ReportEvent event = new ReportEvent();
+      event.site = site();
+      event.replayed = replayed;
+      event.begin();
+      return event;
+    }
+
+    static Object beginValueFormat() {
+      if (!VALUE_FORMAT.isEnabled())
+        return null;
+      ValueFormatEvent event = new ValueFormatEvent();
+      event.begin();
+      return event;
+    }
+
+    static void endValueFormat(Object token, int length, long spillId) {
+      ValueFormatEvent event = (ValueFormatEvent) token;
+      event.length = length;
+      event.spillId = spillId;
+      event.commit();
+    }
+
+    static void end(Object token) {
+      ((jdk.jfr.Event) token).commit();
+    }
+
+    /**
+     * Returns the first stack frame outside thincrest, pcond, and the JDK.
+     * This is computed only when an event is enabled.
+     */
+    private static String site() {
+      for (StackTraceElement each : Thread.currentThread().getStackTrace()) {
+        if (!isLibraryFrame(each.getClassName()))
+          return each.toString();
+      }
+      return "(unknown)";
+    }
+
+    private static final String[] LIBRARY_PACKAGE_PREFIXES = {
+        "com.github.dakusui.thincrest.",
+        "com.github.dakusui.thincrest_pcond.",
+        "java.",
+        "jdk.",
+        "sun.",
+    };
+
+    /**
+     * Packages of thincrest's own tests and examples, whose frames are sites.
+     * Tests placed in library packages to access package-private members are not distinguished.
+     */
+    private static final String[] TEST_PACKAGE_PREFIXES = {
+        "com.github.dakusui.thincrest.examples.",
+        "com.github.dakusui.thincrest.sandbox.",
+        "com.github.dakusui.thincrest.ut.",
+        "com.github.dakusui.thincrest.utils.",
+    };
+
+    private static boolean isLibraryFrame(String className) {
+      return startsWithAny(className, LIBRARY_PACKAGE_PREFIXES) && !startsWithAny(className, TEST_PACKAGE_PREFIXES);
+    }
+
+    private static boolean startsWithAny(String className, String[] prefixes) {
+      for (String each : prefixes)
+        if (className.startsWith(each))
+          return true;
+      return false;
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.github.dakusui.thincrest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.github.dakusui.thincrest.ReportValue")
+@Label("Report Value Formatting")
+@Category("thincrest")
+@Description("Formatting of a value for a report of a metamorphic test case")
+class ValueFormatEvent extends Event {
+  @Label("Length")
+  @Description("The length of the formatted value")
+  int length;
+
+  @Label("Spill Id")
+  @Description("The id, by which the full value is written to the spill destination. -1 if it is not spilled")
+  long spillId;
+}
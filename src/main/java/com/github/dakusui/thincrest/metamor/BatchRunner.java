@@ -0,0 +1,357 @@
+package com.github.dakusui.thincrest.metamor;
+
+import com.github.dakusui.thincrest.TestAssertions;
+import org.opentest4j.MultipleFailuresError;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.github.dakusui.thincrest.TestAssertions.EvaluationMode.TRACED;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * An interface to check a metamorphic relation over a large number of source values.
+ *
+ * The predicate built by {@link MetamorphicTestCaseFactory#toMetamorphicTestPredicate()} is created only once and shared by all the source values.
+ * Each source value is examined without tracing the evaluation.
+ * Only for failing source values, the evaluation is traced again to compose full reports.
+ *
+ * A runner can stop examining source values after a given number of failures are found.
+ * Also, it can shrink a failing source value into a smaller one that still fails, using a user-supplied shrinker.
+ *
+ * @param <X> Type of source values.
+ */
+public interface BatchRunner<X> {
+  /**
+   * Examines source values given by a stream.
+   *
+   * @param sourceValues A stream of source values.
+   * @return The result of the examination.
+   */
+  Result<X> run(Stream<X> sourceValues);
+
+  /**
+   * Examines source values given by a spliterator.
+   *
+   * @param sourceValues A spliterator of source values.
+   * @return The result of the examination.
+   */
+  default Result<X> run(Spliterator<X> sourceValues) {
+    return this.run(StreamSupport.stream(sourceValues, false));
+  }
+
+  /**
+   * Examines source values given by a stream, and fails if any of them doesn't satisfy the metamorphic relation.
+   *
+   * @param sourceValues A stream of source values.
+   * @see Result#assertSuccessful()
+   */
+  default void assertAll(Stream<X> sourceValues) {
+    this.run(sourceValues).assertSuccessful();
+  }
+
+  static <X> Builder<X> forFactory(MetamorphicTestCaseFactory<X, ?, ?, ?> factory) {
+    return new Builder<>(factory);
+  }
+
+  interface Result<X> {
+    /**
+     * Returns the number of examined source values.
+     *
+     * @return The number of examined source values.
+     */
+    long count();
+
+    /**
+     * Returns failures.
+     * Unless the runner stops on failures and examines source values concurrently, they are in the encounter order of the source values.
+     *
+     * @return Failures.
+     */
+    List<Failure<X>> failures();
+
+    default boolean wasSuccessful() {
+      return this.failures().isEmpty();
+    }
+
+    /**
+     * Throws a `MultipleFailuresError`, which holds reports of all the failing source values, if any.
+     */
+    default void assertSuccessful() {
+      if (!this.wasSuccessful())
+        throw new MultipleFailuresError(
+            String.format("%s of %s source values failed", this.failures().size(), this.count()),
+            this.failures().stream().map(Failure::report).collect(toList()));
+    }
+
+    class Impl<X> implements Result<X> {
+      private final long             count;
+      private final List<Failure<X>> failures;
+
+      public Impl(long count, List<Failure<X>> failures) {
+        this.count = count;
+        this.failures = unmodifiableList(requireNonNull(failures));
+      }
+
+      @Override
+      public long count() {
+        return this.count;
+      }
+
+      @Override
+      public List<Failure<X>> failures() {
+        return this.failures;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("(count:%s, failures:%s)", this.count, this.failures);
+      }
+    }
+  }
+
+  interface Failure<X> {
+    X sourceValue();
+
+    /**
+     * Returns the smallest failing value found by shrinking the source value.
+     * If no shrinker is given, this returns the source value itself.
+     *
+     * @return The shrunk failing value.
+     */
+    X shrunkValue();
+
+    /**
+     * Returns an exception that holds the full report of the failure for the shrunk value.
+     *
+     * @return An exception that holds the full report of the failure.
+     */
+    Throwable report();
+
+    class Impl<X> implements Failure<X> {
+      private final X         sourceValue;
+      private final X         shrunkValue;
+      private final Throwable report;
+
+      public Impl(X sourceValue, Throwable report) {
+        this(sourceValue, sourceValue, report);
+      }
+
+      public Impl(X sourceValue, X shrunkValue, Throwable report) {
+        this.sourceValue = sourceValue;
+        this.shrunkValue = shrunkValue;
+        this.report = requireNonNull(report);
+      }
+
+      @Override
+      public X sourceValue() {
+        return this.sourceValue;
+      }
+
+      @Override
+      public X shrunkValue() {
+        return this.shrunkValue;
+      }
+
+      @Override
+      public Throwable report() {
+        return this.report;
+      }
+
+      @Override
+      public String toString() {
+        if (Objects.equals(this.sourceValue, this.shrunkValue))
+          return String.format("%s:%s", this.sourceValue, this.report.getMessage());
+        return String.format("%s(shrunk from %s):%s", this.shrunkValue, this.sourceValue, this.report.getMessage());
+      }
+    }
+  }
+
+  class Impl<X> implements BatchRunner<X> {
+    private final Predicate<X>           predicate;
+    private final boolean                parallel;
+    private final int                    maxFailures;
+    private final Function<X, Stream<X>> shrinker;
+    private final int                    maxShrinkSteps;
+
+    public Impl(Predicate<X> predicate, boolean parallel) {
+      this(predicate, parallel, Integer.MAX_VALUE, x -> Stream.empty(), 0);
+    }
+
+    public Impl(Predicate<X> predicate, boolean parallel, int maxFailures, Function<X, Stream<X>> shrinker, int maxShrinkSteps) {
+      Utils.requireArgument(maxFailures > 0, "maxFailures must be positive: " + maxFailures);
+      this.predicate = requireNonNull(predicate);
+      this.parallel = parallel;
+      this.maxFailures = maxFailures;
+      this.shrinker = requireNonNull(shrinker);
+      this.maxShrinkSteps = maxShrinkSteps;
+    }
+
+    @Override
+    public Result<X> run(Stream<X> sourceValues) {
+      LongAdder count = new LongAdder();
+      Predicate<X> examined = each -> {
+        count.increment();
+        return passes(this.predicate, each);
+      };
+      Stream<X> stream = this.parallel ? sourceValues.parallel() : sourceValues;
+      List<X> failingValues = this.maxFailures == Integer.MAX_VALUE ?
+          stream.filter(examined.negate()).collect(toList()) :
+          findFailingValuesUntilLimit(stream, examined);
+      return new Result.Impl<>(
+          count.sum(),
+          failingValues.stream()
+              .map(each -> {
+                X shrunk = shrink(each);
+                return new Failure.Impl<>(each, shrunk, composeReport(this.predicate, shrunk));
+              })
+              .collect(toList()));
+    }
+
+    /**
+     * Examines source values until `maxFailures` failures are found.
+     * Since `anyMatch` is a short-circuiting operation, the rest of the source values, including ones being processed by other threads, are not examined once it is reached.
+     * Values skipped after the limit is reached are not tested by `examined`, so that they are not counted.
+     */
+    private List<X> findFailingValuesUntilLimit(Stream<X> stream, Predicate<X> examined) {
+      Queue<X> ret = new ConcurrentLinkedQueue<>();
+      AtomicInteger numFailures = new AtomicInteger(0);
+      stream.anyMatch(each -> {
+        if (numFailures.get() >= this.maxFailures || examined.test(each))
+          return false;
+        if (numFailures.incrementAndGet() > this.maxFailures)
+          return true;
+        ret.add(each);
+        return numFailures.get() >= this.maxFailures;
+      });
+      return new ArrayList<>(ret);
+    }
+
+    /**
+     * Shrinks a failing value greedily.
+     * At each step, candidates given by the shrinker are examined concurrently, and the first failing one in their order is chosen.
+     */
+    private X shrink(X failingValue) {
+      X ret = failingValue;
+      for (int i = 0; i < this.maxShrinkSteps; i++) {
+        Optional<X> next = this.shrinker.apply(ret)
+            .parallel()
+            .filter(each -> !passes(this.predicate, each))
+            .findFirst();
+        if (!next.isPresent() || Objects.equals(next.get(), ret))
+          break;
+        ret = next.get();
+      }
+      return ret;
+    }
+
+    static <X> boolean passes(Predicate<X> predicate, X value) {
+      try {
+        return predicate.test(value);
+      } catch (RuntimeException e) {
+        return false;
+      }
+    }
+
+    /**
+     * Composes a report for a value, which is already known not to satisfy `predicate`.
+     * The value is evaluated only once more, with tracing.
+     */
+    static <X> Throwable composeReport(Predicate<X> predicate, X value) {
+      try {
+        TestAssertions.assertThat(value, predicate, TRACED);
+      } catch (AssertionError | RuntimeException e) {
+        return e;
+      }
+      return new AssertionError(String.format("<%s> failed once, but passed on re-evaluation: %s", value, predicate));
+    }
+  }
+
+  class Builder<X> {
+    private final MetamorphicTestCaseFactory<X, ?, ?, ?> factory;
+    private       boolean                                parallel;
+    private       int                                    maxFailures;
+    private       Function<X, Stream<X>>                 shrinker;
+    private       int                                    maxShrinkSteps;
+
+    public Builder(MetamorphicTestCaseFactory<X, ?, ?, ?> factory) {
+      this.factory = requireNonNull(factory);
+      this.parallel = false;
+      this.maxFailures = Integer.MAX_VALUE;
+      this.shrinker = x -> Stream.empty();
+      this.maxShrinkSteps = 1_000;
+    }
+
+    /**
+     * Lets the runner examine source values concurrently, using a parallel stream.
+     *
+     * @return This builder object
+     */
+    public Builder<X> parallel() {
+      this.parallel = true;
+      return this;
+    }
+
+    /**
+     * Lets the runner stop examining source values, once `maxFailures` failing ones are found.
+     *
+     * @param maxFailures The number of failures, at which the runner stops.
+     * @return This builder object
+     */
+    public Builder<X> maxFailures(int maxFailures) {
+      Utils.requireArgument(maxFailures > 0, "maxFailures must be positive: " + maxFailures);
+      this.maxFailures = maxFailures;
+      return this;
+    }
+
+    /**
+     * Lets the runner stop examining source values on the first failure.
+     *
+     * @return This builder object
+     */
+    public Builder<X> failFast() {
+      return this.maxFailures(1);
+    }
+
+    /**
+     * Specifies a function that returns candidates of smaller values for a given failing value.
+     * Candidates should be ordered from the most preferred one, e.g., the smallest one.
+     *
+     * @param shrinker A function that returns smaller candidates of a given value.
+     * @return This builder object
+     */
+    public Builder<X> shrinker(Function<X, Stream<X>> shrinker) {
+      this.shrinker = requireNonNull(shrinker);
+      return this;
+    }
+
+    /**
+     * Specifies the maximum number of shrinking steps for a failing value.
+     *
+     * @param maxShrinkSteps The maximum number of shrinking steps.
+     * @return This builder object
+     */
+    public Builder<X> maxShrinkSteps(int maxShrinkSteps) {
+      Utils.requireArgument(maxShrinkSteps >= 0, "maxShrinkSteps must not be negative: " + maxShrinkSteps);
+      this.maxShrinkSteps = maxShrinkSteps;
+      return this;
+    }
+
+    public BatchRunner<X> build() {
+      return new Impl<>(this.factory.toMetamorphicTestPredicate(), this.parallel, this.maxFailures, this.shrinker, this.maxShrinkSteps);
+    }
+  }
+}
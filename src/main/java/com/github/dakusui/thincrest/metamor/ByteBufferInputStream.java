@@ -0,0 +1,36 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An input stream that reads bytes between the position and the limit of a buffer, without copying them.
+ * Reading advances the position of the buffer.
+ *
+ * @see Serializer#javaSerialization()
+ */
+class ByteBufferInputStream extends InputStream {
+  private final ByteBuffer buffer;
+
+  ByteBufferInputStream(ByteBuffer buffer) {
+    this.buffer = requireNonNull(buffer);
+  }
+
+  @Override
+  public int read() {
+    return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0)
+      return 0;
+    if (!this.buffer.hasRemaining())
+      return -1;
+    int n = Math.min(len, this.buffer.remaining());
+    this.buffer.get(b, off, n);
+    return n;
+  }
+}
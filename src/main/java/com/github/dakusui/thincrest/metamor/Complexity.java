@@ -0,0 +1,350 @@
+package com.github.dakusui.thincrest.metamor;
+
+import com.github.dakusui.thincrest_pcond.forms.Printables;
+
+import java.util.function.BiFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Candidate complexity classes, to which measured costs of a FUT are fitted.
+ *
+ * A factory built by {@link Complexity#forFunctionUnderTest(String, Function)} executes the FUT for inputs of a geometric series of sizes, which are generated from the source value.
+ * Measured costs are fitted to `cost = a + b * g(n)` for each class by least squares, where the intercept `a` absorbs fixed overheads of an execution.
+ * Since a higher class fits points of a lower one almost as well, the lowest class, whose normalized RMS error exceeds the smallest one at most by a tolerance, is chosen as the best fit.
+ * The test case fails if the best fit is worse than the declared bound, and the report shows the fitted curve and the raw points.
+ *
+ * [source,java]
+ * ----
+ * TestAssertions.assertThat(
+ *     "a,",
+ *     Complexity.forFunctionUnderTest("parse", (String s) -> parse(s))
+ *         .scale("repeat", (String unit, Integer n) -> repeat(unit, n))
+ *         .sizes(1_000, 2, 6)
+ *         .atMost(Complexity.LINEAR)
+ *         .toMetamorphicTestPredicate());
+ * ----
+ *
+ * CPU time of the thread executing the FUT is fitted by default, which isn't affected by other threads as wall time is.
+ * If the FUT allocates memory in proportion to its work, allocated bytes give even more stable results, since they don't depend on timing at all.
+ *
+ * @see Metrics
+ */
+public enum Complexity {
+  CONSTANT("O(1)", "", n -> 1),
+  LOGARITHMIC("O(log n)", "*log(n)", n -> Math.log(n) / Math.log(2)),
+  LINEAR("O(n)", "*n", n -> n),
+  LINEARITHMIC("O(n log n)", "*n*log(n)", n -> n * Math.log(n) / Math.log(2)),
+  QUADRATIC("O(n²)", "*n²", n -> n * n);
+
+  /**
+   * The default tolerance of normalized RMS errors, within which a lower class is preferred.
+   */
+  public static final double DEFAULT_TOLERANCE = 0.02;
+
+  private final String              label;
+  private final String              term;
+  private final DoubleUnaryOperator function;
+
+  Complexity(String label, String term, DoubleUnaryOperator function) {
+    this.label = label;
+    this.term = term;
+    this.function = function;
+  }
+
+  /**
+   * Returns the value of the function that characterizes this class for a size `n`.
+   *
+   * @param n A size of an input.
+   * @return The value of the function.
+   */
+  public double apply(double n) {
+    return this.function.applyAsDouble(n);
+  }
+
+  /**
+   * Fits given points to `cost = a + b * g(n)`, where `g` is the function of this class.
+   *
+   * @param sizes Sizes of inputs.
+   * @param costs Costs measured for the inputs.
+   * @return The fitted curve.
+   */
+  public Fit fit(long[] sizes, long[] costs) {
+    Utils.requireArgument(sizes.length == costs.length, "sizes and costs must have the same length: " + sizes.length + " != " + costs.length);
+    Utils.requireArgument(sizes.length > 0, "No points are given.");
+    double[] g = new double[sizes.length];
+    double meanOfG = 0, meanOfCosts = 0;
+    for (int i = 0; i < sizes.length; i++) {
+      g[i] = this.apply(sizes[i]);
+      meanOfG += g[i] / sizes.length;
+      meanOfCosts += (double) costs[i] / sizes.length;
+    }
+    double covariance = 0, variance = 0;
+    for (int i = 0; i < sizes.length; i++) {
+      covariance += (g[i] - meanOfG) * (costs[i] - meanOfCosts);
+      variance += (g[i] - meanOfG) * (g[i] - meanOfG);
+    }
+    double coefficient = variance == 0 ? 0 : covariance / variance;
+    double intercept = meanOfCosts - coefficient * meanOfG;
+    double sumOfSquaredErrors = 0;
+    for (int i = 0; i < sizes.length; i++) {
+      double error = costs[i] - intercept - coefficient * g[i];
+      sumOfSquaredErrors += error * error;
+    }
+    double rms = Math.sqrt(sumOfSquaredErrors / sizes.length);
+    return new Fit(this, intercept, coefficient, meanOfCosts == 0 ? rms : rms / Math.abs(meanOfCosts), sizes.clone(), costs.clone());
+  }
+
+  @Override
+  public String toString() {
+    return this.label;
+  }
+
+  /**
+   * Fits given points to all the classes and returns the best fit with {@link Complexity#DEFAULT_TOLERANCE}.
+   *
+   * @param sizes Sizes of inputs.
+   * @param costs Costs measured for the inputs.
+   * @return The best fit.
+   * @see Complexity#bestFit(long[], long[], double)
+   */
+  public static Fit bestFit(long[] sizes, long[] costs) {
+    return bestFit(sizes, costs, DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Fits given points to all the classes and returns the fit of the lowest class, whose normalized RMS error exceeds the smallest one at most by `tolerance`.
+   * With `0`, the class with the smallest error is chosen, and if two classes fit equally well, the lower one is chosen.
+   *
+   * @param sizes     Sizes of inputs.
+   * @param costs     Costs measured for the inputs.
+   * @param tolerance A tolerance of normalized RMS errors.
+   * @return The best fit.
+   */
+  public static Fit bestFit(long[] sizes, long[] costs, double tolerance) {
+    Utils.requireArgument(tolerance >= 0, "tolerance must not be negative: " + tolerance);
+    Fit[] fits = new Fit[values().length];
+    double smallestRms = Double.POSITIVE_INFINITY;
+    for (Complexity each : values()) {
+      fits[each.ordinal()] = each.fit(sizes, costs);
+      smallestRms = Math.min(smallestRms, fits[each.ordinal()].rms());
+    }
+    for (Fit each : fits)
+      if (each.rms() <= smallestRms + tolerance)
+        return each;
+    throw new AssertionError();
+  }
+
+  public static <I, O> Builder<Object, I, O> forFunctionUnderTest(String name, Function<I, O> fut) {
+    return new Builder<>(Printables.function(name, fut));
+  }
+
+  /**
+   * A curve fitted to measured costs.
+   */
+  public static class Fit {
+    private final Complexity complexity;
+    private final double     intercept;
+    private final double     coefficient;
+    private final double     rms;
+    private final long[]     sizes;
+    private final long[]     costs;
+
+    Fit(Complexity complexity, double intercept, double coefficient, double rms, long[] sizes, long[] costs) {
+      this.complexity = requireNonNull(complexity);
+      this.intercept = intercept;
+      this.coefficient = coefficient;
+      this.rms = rms;
+      this.sizes = sizes;
+      this.costs = costs;
+    }
+
+    public Complexity complexity() {
+      return this.complexity;
+    }
+
+    public double intercept() {
+      return this.intercept;
+    }
+
+    public double coefficient() {
+      return this.coefficient;
+    }
+
+    /**
+     * Returns the RMS error of this curve divided by the mean of the costs.
+     *
+     * @return The normalized RMS error.
+     */
+    public double rms() {
+      return this.rms;
+    }
+
+    public long[] sizes() {
+      return this.sizes.clone();
+    }
+
+    public long[] costs() {
+      return this.costs.clone();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: cost=%.3g%+.3g%s (rms=%.1f%%), points=%s",
+          this.complexity,
+          this.intercept,
+          this.coefficient,
+          this.complexity.term,
+          this.rms * 100,
+          IntStream.range(0, this.sizes.length)
+              .mapToObj(i -> "(" + this.sizes[i] + "," + this.costs[i] + ")")
+              .collect(Collectors.joining(",", "[", "]")));
+    }
+  }
+
+  /**
+   * A builder of a factory that examines the complexity of a FUT.
+   *
+   * @param <X> Type of the source value.
+   * @param <I> Type of inputs to the FUT.
+   * @param <O> Type of outputs from the FUT.
+   */
+  public static class Builder<X, I, O> {
+    private final Function<I, O>               fut;
+    private       Function<Object, String>     scalerFormatter;
+    private       BiFunction<X, Integer, I>    scaler;
+    private       int                          firstSize;
+    private       int                          ratio;
+    private       int                          count;
+    private       int                          warmups;
+    private       int                          repetitions;
+    private       Function<IoPair<I, O>, Long> cost;
+    private       double                       tolerance;
+
+    public Builder(Function<I, O> fut) {
+      this.fut = requireNonNull(fut);
+      this.sizes(1_000, 2, 6)
+          .measure(3, 5)
+          .tolerance(DEFAULT_TOLERANCE);
+      if (Metrics.Meter.isCpuTimeSupported())
+        this.cost("cpuTime", Metrics::cpuTimeNanos);
+      else
+        this.cost("wallTime", Metrics::wallTimeNanos);
+    }
+
+    /**
+     * Specifies a function that generates an input of a given size from the source value.
+     *
+     * @param scalerName A name of the function.
+     * @param scaler     A function that generates an input of a given size from the source value.
+     * @param <XX>       Type of the source value.
+     * @return This builder object
+     */
+    @SuppressWarnings("unchecked")
+    public <XX> Builder<XX, I, O> scale(String scalerName, BiFunction<XX, Integer, I> scaler) {
+      requireNonNull(scalerName);
+      Builder<XX, I, O> ret = (Builder<XX, I, O>) this;
+      ret.scalerFormatter = x -> String.format("%s(%s)", scalerName, x);
+      ret.scaler = requireNonNull(scaler);
+      return ret;
+    }
+
+    /**
+     * Specifies sizes of inputs, which are `firstSize`, `firstSize * ratio`, ..., `firstSize * ratio^(count - 1)`.
+     *
+     * @param firstSize The smallest size.
+     * @param ratio     The ratio of a size to the previous one.
+     * @param count     The number of sizes.
+     * @return This builder object
+     */
+    public Builder<X, I, O> sizes(int firstSize, int ratio, int count) {
+      Utils.requireArgument(firstSize > 0, "firstSize must be positive: " + firstSize);
+      Utils.requireArgument(ratio > 1, "ratio must be larger than 1: " + ratio);
+      Utils.requireArgument(count > 1, "count must be larger than 1: " + count);
+      Utils.requireArgument(firstSize * Math.pow(ratio, count - 1) <= Integer.MAX_VALUE, "The largest size is too large: " + firstSize + "*" + ratio + "^" + (count - 1));
+      this.firstSize = firstSize;
+      this.ratio = ratio;
+      this.count = count;
+      return this;
+    }
+
+    /**
+     * Specifies how many times the FUT is executed for each size, which is 3 times for warmup and 5 times for measurement by default.
+     *
+     * @param warmups     The number of executions before measuring.
+     * @param repetitions The number of measured executions.
+     * @return This builder object
+     * @see MetamorphicTestCaseFactory.BuilderBase#measure(int, int)
+     */
+    public Builder<X, I, O> measure(int warmups, int repetitions) {
+      Utils.requireArgument(warmups >= 0, "warmups must not be negative: " + warmups);
+      Utils.requireArgument(repetitions > 0, "repetitions must be positive: " + repetitions);
+      this.warmups = warmups;
+      this.repetitions = repetitions;
+      return this;
+    }
+
+    /**
+     * Specifies a tolerance of normalized RMS errors, within which a lower class is preferred.
+     *
+     * @param tolerance A tolerance of normalized RMS errors.
+     * @return This builder object
+     * @see Complexity#bestFit(long[], long[], double)
+     */
+    public Builder<X, I, O> tolerance(double tolerance) {
+      Utils.requireArgument(tolerance >= 0, "tolerance must not be negative: " + tolerance);
+      this.tolerance = tolerance;
+      return this;
+    }
+
+    /**
+     * Specifies a cost to be fitted, which is CPU time by default, or wall time on JVMs that don't support measuring CPU time.
+     *
+     * @param costName A name of the cost.
+     * @param cost     A function to pick up the cost from metrics.
+     * @return This builder object
+     * @see Metrics#allocatedBytes()
+     * @see Metrics#cpuTimeNanos()
+     */
+    public Builder<X, I, O> cost(String costName, ToLongFunction<Metrics> cost) {
+      requireNonNull(cost);
+      this.cost = Printables.function(costName, io -> cost.applyAsLong(Metrics.of(io)));
+      return this;
+    }
+
+    /**
+     * Builds a factory, whose test cases fail if the best fit is worse than `bound`.
+     *
+     * @param bound The worst acceptable complexity class.
+     * @return A factory that examines the complexity of the FUT.
+     */
+    public MetamorphicTestCaseFactory<X, I, O, Fit> atMost(Complexity bound) {
+      requireNonNull(bound);
+      Utils.requireState(this.scaler != null, "scale(String, BiFunction) must be called.");
+      long[] sizes = this.sizes();
+      MetamorphicTestCaseFactoryWithPreformer.Builder<X, I, O, Long, Fit> b = new MetamorphicTestCaseFactoryWithPreformer.Builder<X, I, O, Long, Fit>()
+          .fut(this.fut)
+          .measure(this.warmups, this.repetitions);
+      for (long each : sizes) {
+        int size = (int) each;
+        b.addInputResolver(x -> this.scalerFormatter.apply(x) + "[n=" + size + "]", x -> this.scaler.apply(x, size));
+      }
+      return b.preformer(this.cost)
+          .reduce("fit", (Dataset<Long> ds) -> bestFit(sizes, ds.stream().mapToLong(Long::longValue).toArray(), this.tolerance))
+          .check("isAtMost[" + bound + "]", fit -> fit.complexity().compareTo(bound) <= 0);
+    }
+
+    private long[] sizes() {
+      long[] ret = new long[this.count];
+      ret[0] = this.firstSize;
+      for (int i = 1; i < this.count; i++)
+        ret[i] = ret[i - 1] * this.ratio;
+      return ret;
+    }
+  }
+}
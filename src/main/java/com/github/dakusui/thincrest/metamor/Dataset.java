@@ -1,6 +1,7 @@
 package com.github.dakusui.thincrest.metamor;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Stream;
@@ -41,44 +42,61 @@ public interface Dataset<E> extends Iterable<E> {
     
     Dataset<E> close();
     
+    /**
+     * An implementation of `OnGoing` dataset, which shares its backing buffer with other datasets created from it through the copy constructor.
+     * Each object is a view of the first `size()` elements of the buffer.
+     * Since elements are only appended to the buffer, copying a dataset and adding an element to it are `O(1)` operations.
+     * When an element is added to an object, which is not the longest view of the buffer, the object copies its elements to a new buffer before adding it.
+     *
+     * @param <E> Type of elements.
+     */
     class Impl<E> extends Base<E> implements OnGoing<E> {
-      final List<E> content;
+      private Buffer<E> buffer;
+      private int       size;
       
       public Impl(String name) {
-        super(name);
-        this.content = new ArrayList<>();
+        this(name, new Buffer<>(), 0);
       }
       
       public Impl(String name, Dataset<E> content) {
-        this(name);
-        for (int i = 0; i < content.size(); i++)
-          this.add(content.get(i));
+        this(name, bufferOf(content), content.size());
+      }
+      
+      private Impl(String name, Buffer<E> buffer, int size) {
+        super(name);
+        this.buffer = requireNonNull(buffer);
+        this.size = size;
       }
       
       @Override
       public E get(int i) {
-        return this.content.get(i);
+        if (i < 0 || i >= this.size)
+          throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.size);
+        return this.buffer.get(i);
       }
       
       @Override
       public int size() {
-        return this.content.size();
+        return this.size;
       }
       
       @Override
       public OnGoing<E> add(E value) {
-        this.content.add(value);
+        if (this.size != this.buffer.length())
+          this.buffer = this.buffer.copyOf(this.size);
+        this.buffer.append(value);
+        this.size++;
         return this;
       }
       
       @Override
       public Dataset<E> close() {
-        return new Closed.Impl<>(this.name(), this.content);
+        return new Closed.Impl<>(this.name(), this.asList());
       }
 
       @Override
       public Iterator<E> iterator() {
-        return this.content.iterator();
+        return this.asList().iterator();
       }
 
       @Override
@@ -87,6 +105,62 @@ public interface Dataset<E> extends Iterable<E> {
           return this.name() + ":(empty)";
         return this.name() + ":" + last();
       }
+      
+      private List<E> asList() {
+        final Buffer<E> buffer = this.buffer;
+        final int size = this.size;
+        return new AbstractList<E>() {
+          @Override
+          public E get(int index) {
+            if (index < 0 || index >= size)
+              throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return buffer.get(index);
+          }
+          
+          @Override
+          public int size() {
+            return size;
+          }
+        };
+      }
+      
+      @SuppressWarnings("unchecked")
+      private static <E> Buffer<E> bufferOf(Dataset<E> content) {
+        if (content instanceof Impl)
+          return ((Impl<E>) content).buffer;
+        Buffer<E> ret = new Buffer<>();
+        for (int i = 0; i < content.size(); i++)
+          ret.append(content.get(i));
+        return ret;
+      }
+      
+      private static final class Buffer<E> {
+        private Object[] elements = new Object[8];
+        private int      length   = 0;
+        
+        @SuppressWarnings("unchecked")
+        E get(int i) {
+          return (E) this.elements[i];
+        }
+        
+        int length() {
+          return this.length;
+        }
+        
+        void append(E value) {
+          if (this.length == this.elements.length)
+            this.elements = Arrays.copyOf(this.elements, this.elements.length * 2);
+          this.elements[this.length++] = value;
+        }
+        
+        Buffer<E> copyOf(int length) {
+          Buffer<E> ret = new Buffer<>();
+          ret.elements = new Object[Math.max(length * 2, 8)];
+          System.arraycopy(this.elements, 0, ret.elements, 0, length);
+          ret.length = length;
+          return ret;
+        }
+      }
     }
   }
   
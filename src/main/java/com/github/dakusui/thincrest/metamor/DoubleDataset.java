@@ -0,0 +1,91 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.DoubleStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A dataset of `double` values.
+ * Use `getAsDouble(int)` to access an element without boxing it.
+ *
+ * Datasets returned by the methods of this interface are views of given ones, and elements are not copied.
+ */
+public interface DoubleDataset extends Dataset<Double> {
+  double getAsDouble(int i);
+
+  @Override
+  default Double get(int i) {
+    return this.getAsDouble(i);
+  }
+
+  default DoubleStream doubleStream() {
+    return IntStream.range(0, this.size()).mapToDouble(this::getAsDouble);
+  }
+
+  /**
+   * Returns a `DoubleDataset` that has the same name and elements as a given dataset.
+   * If the given one is already a `DoubleDataset`, it is returned as it is.
+   *
+   * @param dataset A dataset of numbers.
+   * @return A `DoubleDataset`.
+   */
+  static DoubleDataset from(Dataset<? extends Number> dataset) {
+    if (dataset instanceof DoubleDataset)
+      return (DoubleDataset) dataset;
+    return new PrimitiveView.OfDouble<>(dataset.name(), dataset, Number::doubleValue);
+  }
+
+  /**
+   * Returns a `DoubleDataset` of outputs in a given dataset of IoPairs.
+   * Outputs held by `DoubleIoPair`s are read without being boxed.
+   *
+   * @param ioPairs A dataset of IoPairs.
+   * @return A `DoubleDataset` of the outputs.
+   * @see MetamorphicTestCaseFactory#forDoubleFunction(String, java.util.function.DoubleUnaryOperator)
+   */
+  static DoubleDataset outputsOf(Dataset<? extends IoPair<?, Double>> ioPairs) {
+    return new PrimitiveView.OfDouble<>(ioPairs.name(), ioPairs, io -> io instanceof DoubleIoPair ? ((DoubleIoPair) io).outputAsDouble() : io.output());
+  }
+
+  /**
+   * Converts a function on `DoubleDataset` into a reducer, which can be given to `reduce` methods of builders.
+   * Since elements given to a reducer are already preformed, they are unboxed one by one when they are read.
+   * To read outputs of the FUT without boxing them, use {@link DoubleDataset#ofOutputs(Function)} instead.
+   *
+   * @param reducer A function that reduces a `DoubleDataset`.
+   * @param <R>     The type of the reduced value.
+   * @return A reducer of `Dataset<Double>`.
+   */
+  static <R> Function<Dataset<Double>, R> reducer(Function<? super DoubleDataset, ? extends R> reducer) {
+    requireNonNull(reducer);
+    return ds -> reducer.apply(from(ds));
+  }
+
+  /**
+   * Converts a predicate on `DoubleDataset` into one, which can be given to `proposition` methods of builders.
+   *
+   * @param predicate A predicate on a `DoubleDataset`.
+   * @return A predicate on `Dataset<Double>`.
+   */
+  static Predicate<Dataset<Double>> predicate(Predicate<? super DoubleDataset> predicate) {
+    requireNonNull(predicate);
+    return ds -> predicate.test(from(ds));
+  }
+
+  /**
+   * Converts a function on `DoubleDataset` into a transformer of IoPairs, which can be given to builders without a preformer.
+   * The function is given the outputs of the IoPairs, which are read by {@link DoubleDataset#outputsOf(Dataset)}.
+   *
+   * @param transformer A function on outputs of the FUT.
+   * @param <I>         The input type of the FUT.
+   * @param <R>         The type of the transformed value.
+   * @return A transformer of `Dataset<IoPair<I, Double>>`.
+   */
+  static <I, R> Function<Dataset<IoPair<I, Double>>, R> ofOutputs(Function<? super DoubleDataset, ? extends R> transformer) {
+    requireNonNull(transformer);
+    return ds -> transformer.apply(outputsOf(ds));
+  }
+}
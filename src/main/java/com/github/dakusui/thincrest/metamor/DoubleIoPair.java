@@ -0,0 +1,81 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.util.function.DoubleUnaryOperator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An IoPair of a function from `double` to `double`, which holds the input and output as primitives.
+ */
+public interface DoubleIoPair extends IoPair<Double, Double> {
+  double inputAsDouble();
+
+  double outputAsDouble();
+
+  @Override
+  default Double input() {
+    return this.inputAsDouble();
+  }
+
+  @Override
+  default Double output() {
+    return this.outputAsDouble();
+  }
+
+  class Impl implements DoubleIoPair {
+    private final double input;
+    private final double output;
+
+    public Impl(double input, double output) {
+      this.input = input;
+      this.output = output;
+    }
+
+    @Override
+    public double inputAsDouble() {
+      return this.input;
+    }
+
+    @Override
+    public double outputAsDouble() {
+      return this.output;
+    }
+
+    public String toString() {
+      return String.format("[%s]=>[%s]", this.input, this.output);
+    }
+  }
+
+  static DoubleIoPair create(double input, double output) {
+    return new Impl(input, output);
+  }
+
+  /**
+   * Returns a FUT, which executes `fut` and keeps its input and output in `DoubleIoPair`.
+   *
+   * @param name A name of the FUT.
+   * @param fut  A function from `double` to `double`.
+   * @return A FUT that creates `DoubleIoPair`s.
+   */
+  static IoPair.Invoker<Double, Double> invoker(String name, DoubleUnaryOperator fut) {
+    requireNonNull(name);
+    requireNonNull(fut);
+    return new IoPair.Invoker<Double, Double>() {
+      @Override
+      public IoPair<Double, Double> invoke(Double input) {
+        double in = input;
+        return create(in, fut.applyAsDouble(in));
+      }
+
+      @Override
+      public Double apply(Double input) {
+        return fut.applyAsDouble(input);
+      }
+
+      @Override
+      public String toString() {
+        return name;
+      }
+    };
+  }
+}
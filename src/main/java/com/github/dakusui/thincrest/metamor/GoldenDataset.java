@@ -0,0 +1,472 @@
+package com.github.dakusui.thincrest.metamor;
+
+import com.github.dakusui.thincrest_pcond.forms.Printables;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A dataset of IoPairs replayed from a file recorded by {@link Recorder}.
+ *
+ * The region of the file for a dataset is memory-mapped, and only the sizes of its IoPairs are read when it is opened.
+ * An input is deserialized when its IoPair is requested, and an output is deserialized when it is read from the IoPair, which keeps it only softly.
+ * With {@link Serializer#BYTE_BUFFER}, outputs are read-only views of the mapped file and never copied onto heap.
+ *
+ * Recorded datasets can be checked by relations different from the one used at recording, or compared with outputs of another version of the FUT, without executing the FUT for them again.
+ *
+ * [source,java]
+ * ----
+ * try (GoldenDataset.Recorder<Double, Double> recorder = GoldenDataset.recorder(file, serializer, serializer)) {
+ *   recorder.record(factory, sourceValues);
+ * }
+ * try (GoldenDataset.Recording<Double, Double> recording = GoldenDataset.open(file, serializer, serializer)) {
+ *   recording.check(anotherFactory.metamorphicRelation()).assertSuccessful();
+ * }
+ * ----
+ *
+ * @param <I> Type of inputs.
+ * @param <O> Type of outputs.
+ */
+public class GoldenDataset<I, O> extends Dataset.Base<IoPair<I, O>> {
+  private static final int MAGIC       = 0x54434744;
+  private static final int VERSION     = 1;
+  private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+
+  private final Path          file;
+  private final ByteBuffer    region;
+  private final int[]         positions;
+  private final Serializer<I> inputSerializer;
+  private final Serializer<O> outputSerializer;
+
+  private GoldenDataset(String name, Path file, ByteBuffer region, int[] positions, Serializer<I> inputSerializer, Serializer<O> outputSerializer) {
+    super(name);
+    this.file = file;
+    this.region = region;
+    this.positions = positions;
+    this.inputSerializer = inputSerializer;
+    this.outputSerializer = outputSerializer;
+  }
+
+  /**
+   * Returns the `i`-th IoPair.
+   * If a recorded input or output cannot be deserialized, e.g., because the file is corrupt, an `UncheckedIOException` that names the file is thrown.
+   * For an output, it is thrown when the output is read from the returned IoPair.
+   *
+   * @param i The index of an IoPair.
+   * @return The `i`-th IoPair.
+   */
+  @Override
+  public IoPair<I, O> get(int i) {
+    if (i < 0 || i >= this.positions.length)
+      throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.positions.length);
+    ByteBuffer input = slice(this.region, this.positions[i]);
+    ByteBuffer output = slice(this.region, this.positions[i] + Integer.BYTES + input.remaining());
+    Serializer<O> outputSerializer = this.outputSerializer;
+    return IoPair.deferred(
+        this.deserialize(this.inputSerializer, input, "input", i),
+        () -> this.deserialize(outputSerializer, output.duplicate(), "output", i));
+  }
+
+  @Override
+  public int size() {
+    return this.positions.length;
+  }
+
+  @Override
+  public Iterator<IoPair<I, O>> iterator() {
+    return new Iterator<IoPair<I, O>>() {
+      int i = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.i < GoldenDataset.this.size();
+      }
+
+      @Override
+      public IoPair<I, O> next() {
+        if (!this.hasNext())
+          throw new NoSuchElementException();
+        return GoldenDataset.this.get(this.i++);
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s:(recorded, size=%s)", this.name(), this.size());
+  }
+
+  private <E> E deserialize(Serializer<E> serializer, ByteBuffer bytes, String kind, int i) {
+    try {
+      return serializer.deserialize(bytes);
+    } catch (UncheckedIOException | BufferUnderflowException e) {
+      throw corrupt(this.file, String.format("Failed to read the %s of %s[%s]", kind, this.name(), i), e);
+    }
+  }
+
+  /**
+   * Creates a recorder that writes datasets of IoPairs to a file.
+   * An existing file is overwritten.
+   *
+   * @param file             A file to which datasets are written.
+   * @param inputSerializer  A serializer of inputs.
+   * @param outputSerializer A serializer of outputs.
+   * @param <I>              Type of inputs.
+   * @param <O>              Type of outputs.
+   * @return A recorder.
+   */
+  public static <I, O> Recorder<I, O> recorder(Path file, Serializer<I> inputSerializer, Serializer<O> outputSerializer) {
+    return new Recorder<>(file, inputSerializer, outputSerializer);
+  }
+
+  /**
+   * Opens a file written by a recorder.
+   *
+   * @param file             A file written by a recorder.
+   * @param inputSerializer  A serializer of inputs, which must be compatible with the one used for recording.
+   * @param outputSerializer A serializer of outputs, which must be compatible with the one used for recording.
+   * @param <I>              Type of inputs.
+   * @param <O>              Type of outputs.
+   * @return Recorded datasets.
+   */
+  public static <I, O> Recording<I, O> open(Path file, Serializer<I> inputSerializer, Serializer<O> outputSerializer) {
+    return new Recording<>(file, inputSerializer, outputSerializer);
+  }
+
+  /**
+   * Returns a relation that holds if a given FUT returns outputs equivalent to the recorded ones for all the recorded inputs.
+   * This is useful to check a new version of a FUT against outputs recorded for an old one.
+   *
+   * @param futName     A name of the FUT.
+   * @param fut         A FUT to be compared with the recorded outputs.
+   * @param equivalence A predicate that tests if a recorded output and an output from the FUT are equivalent.
+   * @param <I>         Type of inputs.
+   * @param <O>         Type of outputs.
+   * @return A relation over a recorded dataset.
+   */
+  public static <I, O> Predicate<Dataset<IoPair<I, O>>> matches(String futName, Function<I, O> fut, BiPredicate<? super O, ? super O> equivalence) {
+    requireNonNull(fut);
+    requireNonNull(equivalence);
+    return Printables.predicate(
+        "matches[" + futName + "]",
+        ds -> ds.stream().allMatch(each -> equivalence.test(each.output(), fut.apply(each.input()))));
+  }
+
+  /**
+   * Returns an exception that tells a file is truncated or corrupt.
+   */
+  private static UncheckedIOException corrupt(Path file, String message, Throwable cause) {
+    return new UncheckedIOException(new IOException(String.format("Truncated or corrupt recorded dataset file: %s: %s", file, message), cause));
+  }
+
+  /**
+   * Returns a read-only view of the bytes at `position`, which are preceded by their length.
+   * Buffers are cast to `Buffer` when their positions and limits are changed, so that the compiled code runs on Java 8.
+   */
+  private static ByteBuffer slice(ByteBuffer region, int position) {
+    ByteBuffer ret = region.duplicate();
+    int length = ret.getInt(position);
+    ((Buffer) ret).position(position + Integer.BYTES);
+    ((Buffer) ret).limit(position + Integer.BYTES + length);
+    return ret.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Writes datasets of IoPairs to a file.
+   *
+   * A file consists of a header, records of datasets, an index of them, and a footer.
+   * Each record has a name and a count, followed by length-prefixed serialized inputs and outputs.
+   * The index holds the offsets of the records, and the footer holds the offset of the index and the number of records.
+   *
+   * @param <I> Type of inputs.
+   * @param <O> Type of outputs.
+   */
+  public static class Recorder<I, O> implements Closeable {
+    private final Serializer<I>         inputSerializer;
+    private final Serializer<O>         outputSerializer;
+    private final DataOutputStream      out;
+    private final ByteArrayOutputStream record        = new ByteArrayOutputStream();
+    private final DataOutputStream      recordOut     = new DataOutputStream(this.record);
+    private final WritableByteChannel   recordChannel = Channels.newChannel(this.record);
+    private final List<Long>            offsets       = new ArrayList<>();
+    private       long                  position;
+    private       boolean               closed;
+
+    Recorder(Path file, Serializer<I> inputSerializer, Serializer<O> outputSerializer) {
+      this.inputSerializer = requireNonNull(inputSerializer);
+      this.outputSerializer = requireNonNull(outputSerializer);
+      try {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        this.writeInt(MAGIC);
+        this.writeInt(VERSION);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Writes a dataset of IoPairs as a record.
+     * The record is composed in memory first, and it is written to the file only after all of its IoPairs are serialized.
+     * Hence, if reading or serializing an IoPair fails, nothing is written, and the recorder can still be used.
+     *
+     * @param dataset A dataset to be written.
+     * @return This recorder.
+     */
+    public synchronized Recorder<I, O> write(Dataset<IoPair<I, O>> dataset) {
+      Utils.requireState(!this.closed, "The recorder is already closed.");
+      this.record.reset();
+      try {
+        this.putBytes(ByteBuffer.wrap(dataset.name().getBytes(StandardCharsets.UTF_8)));
+        this.recordOut.writeInt(dataset.size());
+        for (IoPair<I, O> each : dataset) {
+          this.putBytes(this.inputSerializer.serialize(each.input()));
+          this.putBytes(this.outputSerializer.serialize(each.output()));
+        }
+        this.record.writeTo(this.out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      this.offsets.add(this.position);
+      this.position += this.record.size();
+      return this;
+    }
+
+    /**
+     * Executes the FUT of a factory for each source value, and writes the resulting dataset of IoPairs, which is given to the metamorphic relation of the factory.
+     *
+     * @param factory      A factory, whose FUT is executed.
+     * @param sourceValues Source values.
+     * @param <X>          Type of source values.
+     * @return This recorder.
+     */
+    public <X> Recorder<I, O> record(MetamorphicTestCaseFactory<X, I, O, ?> factory, Stream<X> sourceValues) {
+      Function<X, Dataset<IoPair<I, O>>> executor = factory.inputResolverSequenceFactory().andThen(factory.metamorphicExecutor());
+      sourceValues.forEachOrdered(each -> this.write(executor.apply(each)));
+      return this;
+    }
+
+    /**
+     * Writes the index and the footer, and closes the file.
+     * Calling this method more than once has no effect.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+      if (this.closed)
+        return;
+      this.closed = true;
+      long indexOffset = this.position;
+      for (long each : this.offsets)
+        this.writeLong(each);
+      this.writeLong(indexOffset);
+      this.writeInt(this.offsets.size());
+      this.writeInt(MAGIC);
+      this.out.close();
+    }
+
+    private void writeInt(int value) throws IOException {
+      this.out.writeInt(value);
+      this.position += Integer.BYTES;
+    }
+
+    private void writeLong(long value) throws IOException {
+      this.out.writeLong(value);
+      this.position += Long.BYTES;
+    }
+
+    private void putBytes(ByteBuffer bytes) throws IOException {
+      ByteBuffer b = bytes.duplicate();
+      this.recordOut.writeInt(b.remaining());
+      while (b.hasRemaining())
+        this.recordChannel.write(b);
+    }
+  }
+
+  /**
+   * Datasets recorded in a file.
+   * Each dataset is mapped when it is requested.
+   *
+   * @param <I> Type of inputs.
+   * @param <O> Type of outputs.
+   */
+  public static class Recording<I, O> extends Dataset.Base<GoldenDataset<I, O>> implements Closeable {
+    private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private final Path          file;
+    private final FileChannel   channel;
+    private final long[]        offsets;
+    private final Serializer<I> inputSerializer;
+    private final Serializer<O> outputSerializer;
+
+    /**
+     * Opens a file and reads its index.
+     * If the file is too short, or its index is corrupt, an `UncheckedIOException` that names the file is thrown.
+     * If its header or footer is lost, e.g., by truncation, an `IllegalArgumentException` that names the file is thrown.
+     */
+    Recording(Path file, Serializer<I> inputSerializer, Serializer<O> outputSerializer) {
+      super(file.getFileName().toString());
+      this.file = file;
+      this.inputSerializer = requireNonNull(inputSerializer);
+      this.outputSerializer = requireNonNull(outputSerializer);
+      try {
+        this.channel = FileChannel.open(file, READ);
+        try {
+          this.offsets = readIndex(file, this.channel);
+        } catch (RuntimeException e) {
+          this.channel.close();
+          throw e;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * Reads the offsets of the records, followed by the offset of the index.
+     */
+    private static long[] readIndex(Path file, FileChannel channel) throws IOException {
+      long size = channel.size();
+      if (size < HEADER_SIZE + FOOTER_SIZE)
+        throw corrupt(file, String.format("Only %s bytes long", size), null);
+      ByteBuffer header = channel.map(READ_ONLY, 0, HEADER_SIZE);
+      ByteBuffer footer = channel.map(READ_ONLY, size - FOOTER_SIZE, FOOTER_SIZE);
+      long indexOffset = footer.getLong();
+      int count = footer.getInt();
+      if (header.getInt() != MAGIC || footer.getInt() != MAGIC)
+        throw new IllegalArgumentException("Not a recorded dataset file: " + file);
+      if (header.getInt() != VERSION)
+        throw new IllegalArgumentException("Unsupported version: " + file);
+      if (count < 0 || indexOffset < HEADER_SIZE || indexOffset + (long) count * Long.BYTES != size - FOOTER_SIZE)
+        throw corrupt(file, String.format("The index of %s records at %s doesn't fit in %s bytes", count, indexOffset, size), null);
+      ByteBuffer index = channel.map(READ_ONLY, indexOffset, (long) count * Long.BYTES);
+      long[] ret = new long[count + 1];
+      ret[count] = indexOffset;
+      for (int i = 0; i < count; i++) {
+        ret[i] = index.getLong();
+        if (ret[i] < (i == 0 ? HEADER_SIZE : ret[i - 1]) || ret[i] > indexOffset)
+          throw corrupt(file, String.format("The offset of the record %s is out of range: %s", i, ret[i]), null);
+      }
+      return ret;
+    }
+
+    /**
+     * Maps the region of the `i`-th dataset, and reads the positions of its IoPairs.
+     * If the region is corrupt, an `UncheckedIOException` that names the file is thrown.
+     *
+     * @param i The index of a dataset.
+     * @return The `i`-th dataset.
+     */
+    @Override
+    public GoldenDataset<I, O> get(int i) {
+      if (i < 0 || i >= this.size())
+        throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.size());
+      long length = this.offsets[i + 1] - this.offsets[i];
+      Utils.requireState(length <= Integer.MAX_VALUE, "Too large dataset: " + length + " bytes");
+      ByteBuffer region;
+      try {
+        region = this.channel.map(READ_ONLY, this.offsets[i], length);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      try {
+        byte[] name = new byte[region.getInt()];
+        region.get(name);
+        int[] positions = new int[region.getInt()];
+        int position = region.position();
+        for (int j = 0; j < positions.length; j++) {
+          positions[j] = position;
+          position = skip(region, skip(region, position));
+        }
+        if (position != region.limit())
+          throw new IllegalArgumentException(String.format("%s bytes are left after the last IoPair", region.limit() - position));
+        return new GoldenDataset<>(new String(name, StandardCharsets.UTF_8), this.file, region, positions, this.inputSerializer, this.outputSerializer);
+      } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+        throw corrupt(this.file, String.format("The record %s is broken", i), e);
+      }
+    }
+
+    /**
+     * Returns the position right after the length-prefixed bytes at `position`.
+     */
+    private static int skip(ByteBuffer region, int position) {
+      int length = region.getInt(position);
+      if (length < 0 || length > region.limit() - position - Integer.BYTES)
+        throw new IllegalArgumentException(String.format("The length at %s is out of range: %s", position, length));
+      return position + Integer.BYTES + length;
+    }
+
+    @Override
+    public int size() {
+      return this.offsets.length - 1;
+    }
+
+    @Override
+    public Iterator<GoldenDataset<I, O>> iterator() {
+      return new Iterator<GoldenDataset<I, O>>() {
+        int i = 0;
+
+        @Override
+        public boolean hasNext() {
+          return this.i < Recording.this.size();
+        }
+
+        @Override
+        public GoldenDataset<I, O> next() {
+          if (!this.hasNext())
+            throw new NoSuchElementException();
+          return Recording.this.get(this.i++);
+        }
+      };
+    }
+
+    /**
+     * Checks a relation over all the recorded datasets, without executing the FUT.
+     * The relation of a factory can be obtained by {@link MetamorphicTestCaseFactory#metamorphicRelation()}.
+     *
+     * @param relation A relation to be checked.
+     * @return The result of the examination.
+     * @see GoldenDataset#matches(String, Function, BiPredicate)
+     */
+    public BatchRunner.Result<Dataset<IoPair<I, O>>> check(Predicate<Dataset<IoPair<I, O>>> relation) {
+      return new BatchRunner.Impl<>(relation, false).run(this.stream().<Dataset<IoPair<I, O>>>map(each -> each));
+    }
+
+    /**
+     * Closes the file.
+     * Datasets already returned remain readable.
+     */
+    @Override
+    public void close() throws IOException {
+      this.channel.close();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s:(recorded, size=%s)", this.name(), this.size());
+    }
+  }
+}
@@ -4,6 +4,7 @@ import com.github.dakusui.thincrest_pcond.core.printable.PrintableFunction;
 import com.github.dakusui.thincrest_pcond.forms.Printables;
 
 import java.util.*;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -13,9 +14,39 @@ import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
 public interface InputResolver<I, O> extends Function<Dataset<IoPair<I, O>>, I> {
+  /**
+   * Returns indices of preceding IoPairs that this resolver reads.
+   * If empty, this resolver may read any of the preceding IoPairs, and if it has no indices, this resolver reads none of them.
+   * An input resolver is executed as soon as the IoPairs at the returned indices are available.
+   *
+   * @return Indices of preceding IoPairs that this resolver reads.
+   */
+  default Optional<int[]> dependencies() {
+    return Optional.empty();
+  }
+  
   class Impl<I, O> extends PrintableFunction<Dataset<IoPair<I, O>>, I> implements InputResolver<I, O> {
+    private final int[] dependencies;
+    
     public Impl(Supplier<String> s, Function<? super Dataset<IoPair<I, O>>, ? extends I> function) {
+      this(s, function, (int[]) null);
+    }
+    
+    /**
+     * Creates an input resolver that reads only IoPairs at given indices.
+     *
+     * @param s            A supplier of the name of this resolver.
+     * @param function     A function that resolves an input value from preceding IoPairs.
+     * @param dependencies Indices of preceding IoPairs that `function` reads. `null` if it may read any of them.
+     */
+    public Impl(Supplier<String> s, Function<? super Dataset<IoPair<I, O>>, ? extends I> function, int[] dependencies) {
       super(new Object(), emptyList(), s, function);
+      this.dependencies = dependencies != null ? dependencies.clone() : null;
+    }
+    
+    @Override
+    public Optional<int[]> dependencies() {
+      return Optional.ofNullable(this.dependencies).map(int[]::clone);
     }
   }
   
@@ -114,7 +145,26 @@ public interface InputResolver<I, O> extends Function<Dataset<IoPair<I, O>>, I>
         }
         
         public Builder<X, I, O> function(Function<Object, String> formatter, Function<X, I> f) {
-          this.functions.add(Printables.function(() -> formatter.apply(this.placeHolderVariableName), x -> new InputResolver.Impl<>(() -> formatter.apply(x), ds -> f.apply(x))));
+          this.functions.add(Printables.function(() -> formatter.apply(this.placeHolderVariableName), x -> new InputResolver.Impl<>(() -> formatter.apply(x), ds -> f.apply(x), new int[0])));
+          return this;
+        }
+        
+        /**
+         * Adds an input resolver that computes an input value from the source value and preceding IoPairs.
+         * The resolver can read only the IoPairs at the indices given by `dependencies`.
+         * Those indices must be smaller than the index of the resolver itself.
+         *
+         * @param formatter    A function that renders the resolver with the source value (or its placeholder).
+         * @param f            A function that computes an input value from the source value and preceding IoPairs.
+         * @param dependencies Indices of preceding IoPairs that `f` reads.
+         * @return This builder object
+         */
+        public Builder<X, I, O> function(Function<Object, String> formatter, BiFunction<X, Dataset<IoPair<I, O>>, I> f, int... dependencies) {
+          requireNonNull(f);
+          int index = this.functions.size();
+          for (int each : dependencies)
+            Utils.requireArgument(0 <= each && each < index, "Dependency index must be in [0, " + index + "): " + each);
+          this.functions.add(Printables.function(() -> formatter.apply(this.placeHolderVariableName), x -> new InputResolver.Impl<>(() -> formatter.apply(x), ds -> f.apply(x, ds), dependencies)));
           return this;
         }
         
@@ -0,0 +1,90 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A dataset of `int` values.
+ * Use `getAsInt(int)` to access an element without boxing it.
+ *
+ * Datasets returned by the methods of this interface are views of given ones, and elements are not copied.
+ */
+public interface IntDataset extends Dataset<Integer> {
+  int getAsInt(int i);
+
+  @Override
+  default Integer get(int i) {
+    return this.getAsInt(i);
+  }
+
+  default IntStream intStream() {
+    return IntStream.range(0, this.size()).map(this::getAsInt);
+  }
+
+  /**
+   * Returns a `IntDataset` that has the same name and elements as a given dataset.
+   * If the given one is already a `IntDataset`, it is returned as it is.
+   *
+   * @param dataset A dataset of numbers.
+   * @return A `IntDataset`.
+   */
+  static IntDataset from(Dataset<? extends Number> dataset) {
+    if (dataset instanceof IntDataset)
+      return (IntDataset) dataset;
+    return new PrimitiveView.OfInt<>(dataset.name(), dataset, Number::intValue);
+  }
+
+  /**
+   * Returns a `IntDataset` of outputs in a given dataset of IoPairs.
+   * Outputs held by `IntIoPair`s are read without being boxed.
+   *
+   * @param ioPairs A dataset of IoPairs.
+   * @return A `IntDataset` of the outputs.
+   * @see MetamorphicTestCaseFactory#forIntFunction(String, java.util.function.IntUnaryOperator)
+   */
+  static IntDataset outputsOf(Dataset<? extends IoPair<?, Integer>> ioPairs) {
+    return new PrimitiveView.OfInt<>(ioPairs.name(), ioPairs, io -> io instanceof IntIoPair ? ((IntIoPair) io).outputAsInt() : io.output());
+  }
+
+  /**
+   * Converts a function on `IntDataset` into a reducer, which can be given to `reduce` methods of builders.
+   * Since elements given to a reducer are already preformed, they are unboxed one by one when they are read.
+   * To read outputs of the FUT without boxing them, use {@link IntDataset#ofOutputs(Function)} instead.
+   *
+   * @param reducer A function that reduces a `IntDataset`.
+   * @param <R>     The type of the reduced value.
+   * @return A reducer of `Dataset<Integer>`.
+   */
+  static <R> Function<Dataset<Integer>, R> reducer(Function<? super IntDataset, ? extends R> reducer) {
+    requireNonNull(reducer);
+    return ds -> reducer.apply(from(ds));
+  }
+
+  /**
+   * Converts a predicate on `IntDataset` into one, which can be given to `proposition` methods of builders.
+   *
+   * @param predicate A predicate on a `IntDataset`.
+   * @return A predicate on `Dataset<Integer>`.
+   */
+  static Predicate<Dataset<Integer>> predicate(Predicate<? super IntDataset> predicate) {
+    requireNonNull(predicate);
+    return ds -> predicate.test(from(ds));
+  }
+
+  /**
+   * Converts a function on `IntDataset` into a transformer of IoPairs, which can be given to builders without a preformer.
+   * The function is given the outputs of the IoPairs, which are read by {@link IntDataset#outputsOf(Dataset)}.
+   *
+   * @param transformer A function on outputs of the FUT.
+   * @param <I>         The input type of the FUT.
+   * @param <R>         The type of the transformed value.
+   * @return A transformer of `Dataset<IoPair<I, Integer>>`.
+   */
+  static <I, R> Function<Dataset<IoPair<I, Integer>>, R> ofOutputs(Function<? super IntDataset, ? extends R> transformer) {
+    requireNonNull(transformer);
+    return ds -> transformer.apply(outputsOf(ds));
+  }
+}
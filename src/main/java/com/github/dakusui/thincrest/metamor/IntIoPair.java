@@ -0,0 +1,81 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.util.function.IntUnaryOperator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An IoPair of a function from `int` to `int`, which holds the input and output as primitives.
+ */
+public interface IntIoPair extends IoPair<Integer, Integer> {
+  int inputAsInt();
+
+  int outputAsInt();
+
+  @Override
+  default Integer input() {
+    return this.inputAsInt();
+  }
+
+  @Override
+  default Integer output() {
+    return this.outputAsInt();
+  }
+
+  class Impl implements IntIoPair {
+    private final int input;
+    private final int output;
+
+    public Impl(int input, int output) {
+      this.input = input;
+      this.output = output;
+    }
+
+    @Override
+    public int inputAsInt() {
+      return this.input;
+    }
+
+    @Override
+    public int outputAsInt() {
+      return this.output;
+    }
+
+    public String toString() {
+      return String.format("[%s]=>[%s]", this.input, this.output);
+    }
+  }
+
+  static IntIoPair create(int input, int output) {
+    return new Impl(input, output);
+  }
+
+  /**
+   * Returns a FUT, which executes `fut` and keeps its input and output in `IntIoPair`.
+   *
+   * @param name A name of the FUT.
+   * @param fut  A function from `int` to `int`.
+   * @return A FUT that creates `IntIoPair`s.
+   */
+  static IoPair.Invoker<Integer, Integer> invoker(String name, IntUnaryOperator fut) {
+    requireNonNull(name);
+    requireNonNull(fut);
+    return new IoPair.Invoker<Integer, Integer>() {
+      @Override
+      public IoPair<Integer, Integer> invoke(Integer input) {
+        int in = input;
+        return create(in, fut.applyAsInt(in));
+      }
+
+      @Override
+      public Integer apply(Integer input) {
+        return fut.applyAsInt(input);
+      }
+
+      @Override
+      public String toString() {
+        return name;
+      }
+    };
+  }
+}
@@ -1,13 +1,26 @@
 package com.github.dakusui.thincrest.metamor;
 
+import com.github.dakusui.thincrest.jfr.ThincrestEvents;
 import com.github.dakusui.thincrest_pcond.core.Evaluator;
 import com.github.dakusui.thincrest_pcond.core.printable.PrintableFunction;
 import com.github.dakusui.thincrest_pcond.forms.Printables;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
 
 public interface IoContext<I, O> {
   String prefix();
@@ -24,35 +37,121 @@ public interface IoContext<I, O> {
     ;
     
     public static <I, O> Function<Dataset<I>, Ongoing<I, O>> toContextFunction(String contextName, String outputContextName) {
-      return Printables.function("begin:" + contextName, input -> new Ongoing.Impl<>(contextName, input, outputContextName));
+      return Printables.function("begin:" + contextName, input -> {
+        Object event = ThincrestEvents.beginStage("begin:" + contextName, -1);
+        try {
+          return new Ongoing.Impl<>(contextName, input, outputContextName);
+        } finally {
+          ThincrestEvents.end(event);
+        }
+      });
     }
     
+    /**
+     * Returns a function that applies a function given by `mapper` to each of the first `numItems` input items in a single loop.
+     * Instead of being reported one by one, the input/output pairs processed by the loop are rendered lazily by the snapshot of the returned context, only when a report is composed.
+     * A runtime exception thrown for an item is wrapped by an {@link ItemProcessingException}, which tells the index and the item.
+     *
+     * @param mapper                A function that returns a function applied to each input item.
+     * @param numItems              The number of items to be processed.
+     * @param variableNameFormatter A function that renders a variable name for an index.
+     * @return A function that processes all the input items in a given context.
+     */
     public static <I, O> Function<Ongoing<I, O>, Ongoing<I, O>> toContextEndomorphicFunction(Function<IoContext<I, O>, Function<I, O>> mapper, int numItems, IntFunction<String> variableNameFormatter) {
       requireNonNull(mapper);
-      Function<Ongoing<I, O>, Ongoing<I, O>> ret = null;
-      for (int i = 0; i < numItems; i++) {
-        Function<Ongoing<I, O>, Ongoing<I, O>> cur = mapperToEndomorphicProcessor(mapper, i, variableNameFormatter);
-        if (ret == null) {
-          ret = cur;
-        } else
-          ret = ret.andThen(cur);
-      }
-      assert ret != null;
-      return ret;
-    }
-    
-    public static <I, O> Function<Ongoing<I, O>, Ongoing<I, O>> mapperToEndomorphicProcessor(Function<IoContext<I, O>, Function<I, O>> mapper, int i, IntFunction<String> variableNameFormatter) {
-      return getOngoingOngoingFunction(mapper, i, variableNameFormatter);
+      return Printables.function(
+          () -> String.format("%s(%s)", mapper, formatIndexRange(numItems, variableNameFormatter)),
+          c -> {
+            Ongoing<I, O> ret = c.cloneObject();
+            int from = ret.output().size();
+            for (int i = 0; i < numItems; i++) {
+              I in = ret.input().get(i);
+              Object event = ThincrestEvents.beginStage(ret.prefix(), i);
+              try {
+                ret.output().add(mapper.apply(ret).apply(in));
+              } catch (RuntimeException e) {
+                throw new ItemProcessingException(mapper, in, variableNameFormatter.apply(i), e);
+              } finally {
+                ThincrestEvents.end(event);
+              }
+            }
+            return new Ongoing.Impl<>(ret.prefix(), ret.input(), ret.output(), from, variableNameFormatter);
+          });
     }
     
-    private static <I, O> Function<Ongoing<I, O>, Ongoing<I, O>> getOngoingOngoingFunction(Function<IoContext<I, O>, Function<I, O>> mapper, int i, IntFunction<String> variableNameFormatter) {
+    /**
+     * Returns a function that applies a function given by `mapper` to each of the first `numItems` input items concurrently on `executor`.
+     *
+     * The items are scheduled as a directed acyclic graph.
+     * An item is processed as soon as the items at the indices returned by `dependencies` for it are processed.
+     * If `dependencies` returns an empty `Optional` for an item, it may read any preceding output, therefore it is processed after all the preceding items are processed.
+     * Only such items are serialized, and an item that declares no dependency, such as an input resolver that reads no IoPair, is submitted right away without waiting for any other.
+     * The output of the context given to `mapper` for an item is a dataset, from which only the outputs of declared items can be read.
+     *
+     * If processing an item fails, items that haven't started yet are cancelled, and a runtime exception is wrapped by an {@link ItemProcessingException} as in sequential processing.
+     * Items already running are not interrupted, since cancelling a `CompletableFuture` doesn't interrupt the thread running it, and they finish on their own.
+     * To bound them, use a timeout of the FUT.
+     *
+     * The returned context is the same as the one returned by {@link Utils#toContextEndomorphicFunction(Function, int, IntFunction)}.
+     *
+     * @param mapper                A function that returns a function applied to each input item.
+     * @param numItems              The number of items to be processed.
+     * @param variableNameFormatter A function that renders a variable name for an index.
+     * @param executor              An executor on which items are processed.
+     * @param dependencies          A function that returns indices of preceding items, whose outputs are read to process a given input item.
+     * @return A function that processes all the input items in a given context.
+     * @throws IllegalArgumentException An index returned by `dependencies` is not the one of a preceding item.
+     */
+    public static <I, O> Function<Ongoing<I, O>, Ongoing<I, O>> toContextEndomorphicFunction(Function<IoContext<I, O>, Function<I, O>> mapper, int numItems, IntFunction<String> variableNameFormatter, Executor executor, Function<? super I, Optional<int[]>> dependencies) {
+      requireNonNull(mapper);
+      requireNonNull(executor);
+      requireNonNull(dependencies);
       return Printables.function(
-          () -> String.format("%s(%s)", mapper, variableNameFormatter.apply(i)),
+          () -> String.format("%s(%s)", mapper, formatIndexRange(numItems, variableNameFormatter)),
           c -> {
-            I in = c.input().get(i);
-            O out = mapper.apply(c).apply(in);
-            c.output().add(out);
-            return c.cloneObject();
+            Ongoing<I, O> ret = c.cloneObject();
+            int from = ret.output().size();
+            List<CompletableFuture<O>> futures = new ArrayList<>(numItems);
+            CompletableFuture<Void> allPreceding = CompletableFuture.completedFuture(null);
+            boolean succeeded = false;
+            try {
+              for (int i = 0; i < numItems; i++) {
+                I in = ret.input().get(i);
+                int[] indices = dependencies.apply(in).orElse(null);
+                if (indices != null)
+                  for (int each : indices)
+                    if (each < 0 || each >= i)
+                      throw new IllegalArgumentException(String.format("%s depends on index %s, which is not in [0, %s): %s", variableNameFormatter.apply(i), each, i, in));
+                IoContext<I, O> context = new Closed.Impl<>(ret.prefix(), ret.input(), new DependencyView<>(ret.output().name(), futures, i, indices));
+                int index = i;
+                Supplier<O> task = () -> {
+                  Object event = ThincrestEvents.beginStage(context.prefix(), index);
+                  try {
+                    return mapper.apply(context).apply(in);
+                  } catch (RuntimeException e) {
+                    throw new ItemProcessingException(mapper, in, variableNameFormatter.apply(index), e);
+                  } finally {
+                    ThincrestEvents.end(event);
+                  }
+                };
+                CompletableFuture<O> future;
+                if (indices == null)
+                  future = allPreceding.thenApplyAsync(v -> task.get(), executor);
+                else if (indices.length == 0)
+                  future = CompletableFuture.supplyAsync(task, executor);
+                else
+                  future = CompletableFuture.allOf(IntStream.of(indices).mapToObj(futures::get).toArray(CompletableFuture[]::new)).thenApplyAsync(v -> task.get(), executor);
+                futures.add(future);
+                allPreceding = CompletableFuture.allOf(allPreceding, future);
+              }
+              for (int i = 0; i < numItems; i++)
+                ret.output().add(join(futures.get(i)));
+              succeeded = true;
+            } finally {
+              if (!succeeded)
+                futures.forEach(f -> f.cancel(false));
+            }
+            return new Ongoing.Impl<>(ret.prefix(), ret.input(), ret.output(), from, variableNameFormatter);
           });
     }
     
@@ -64,6 +163,91 @@ public interface IoContext<I, O> {
     public static <I, O> Function<IoContext<I, O>, Dataset<O>> toOutputExtractorFunction(String contextName) {
       return Printables.function(() -> "output(" + contextName + ")", IoContext::output);
     }
+    
+    /**
+     * An exception thrown when processing an item of a context fails, which tells the index of the item and the item itself, e.g., an input resolver.
+     * The original exception, such as a {@link Timeouts.FutTimeoutException}, is its cause.
+     */
+    public static class ItemProcessingException extends RuntimeException {
+      ItemProcessingException(Object mapper, Object item, String variableName, RuntimeException cause) {
+        super(String.format("%s failed for <%s> at %s: %s", mapper, item, variableName, cause), cause);
+      }
+    }
+    
+    private static <T> T join(CompletableFuture<T> future) {
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException)
+          throw (RuntimeException) e.getCause();
+        if (e.getCause() instanceof Error)
+          throw (Error) e.getCause();
+        throw e;
+      }
+    }
+    
+    /**
+     * A view of outputs, which are computed asynchronously, given to an item processed concurrently.
+     * Only outputs at declared indices can be read.
+     */
+    private static class DependencyView<O> implements Dataset<O> {
+      private final String                     name;
+      private final List<CompletableFuture<O>> futures;
+      private final int                        size;
+      private final int[]                      dependencies;
+      
+      DependencyView(String name, List<CompletableFuture<O>> futures, int size, int[] dependencies) {
+        this.name = requireNonNull(name);
+        this.futures = requireNonNull(futures);
+        this.size = size;
+        this.dependencies = dependencies;
+      }
+      
+      @Override
+      public String name() {
+        return this.name;
+      }
+      
+      @Override
+      public O get(int i) {
+        if (i < 0 || i >= this.size)
+          throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.size);
+        if (this.dependencies != null && IntStream.of(this.dependencies).noneMatch(d -> d == i))
+          throw new IllegalStateException("Index: " + i + " is not declared as a dependency: " + Arrays.toString(this.dependencies));
+        return join(this.futures.get(i));
+      }
+      
+      @Override
+      public int size() {
+        return this.size;
+      }
+      
+      @Override
+      public Iterator<O> iterator() {
+        return new AbstractList<O>() {
+          @Override
+          public O get(int index) {
+            return DependencyView.this.get(index);
+          }
+          
+          @Override
+          public int size() {
+            return DependencyView.this.size();
+          }
+        }.iterator();
+      }
+      
+      @Override
+      public String toString() {
+        return this.name + ":(" + this.size + " items)";
+      }
+    }
+    
+    private static String formatIndexRange(int numItems, IntFunction<String> variableNameFormatter) {
+      if (numItems == 1)
+        return variableNameFormatter.apply(0);
+      return variableNameFormatter.apply(0) + ".." + variableNameFormatter.apply(numItems - 1);
+    }
   }
   
   interface Closed<I, O> extends IoContext<I, O> {
@@ -135,21 +319,76 @@ public interface IoContext<I, O> {
       }
     }
     
+    /**
+     * A snapshot of input/output pairs processed by a single loop.
+     * The pairs are rendered one per line only when `toString()` is called.
+     */
+    class RangeSnapshot extends Snapshot {
+      private final int                 from;
+      private final IntFunction<String> variableNameFormatter;
+      
+      public RangeSnapshot(List<?> in, List<?> out, int from, IntFunction<String> variableNameFormatter) {
+        super(in, out);
+        this.from = from;
+        this.variableNameFormatter = requireNonNull(variableNameFormatter);
+      }
+      
+      @Override
+      public List<?> in() {
+        return (List<?>) super.in();
+      }
+      
+      @Override
+      public List<?> out() {
+        return (List<?>) super.out();
+      }
+      
+      @Override
+      public String toString() {
+        return IntStream.range(0, this.out().size())
+            .mapToObj(i -> String.format("%s: %s=>%s", this.variableNameFormatter.apply(this.from + i), this.in().get(i), this.out().get(i)))
+            .collect(joining(String.format("%n")));
+      }
+    }
+    
     class Impl<I, O> implements Ongoing<I, O> {
       private final String prefix;
-      private final Dataset<I>         input;
-      private final Dataset.OnGoing<O> output;
+      private final Dataset<I>          input;
+      private final Dataset.OnGoing<O>  output;
+      private final int                 rangeStart;
+      private final IntFunction<String> variableNameFormatter;
       
       public Impl(String prefix, Dataset<I> input, String outputDatasetName) {
         this.prefix = prefix;
         this.input = requireNonNull(input);
         this.output = new Dataset.OnGoing.Impl<>(outputDatasetName);
+        this.rangeStart = -1;
+        this.variableNameFormatter = null;
       }
       
       public Impl(String prefix, Dataset<I> input, Dataset<O> output) {
         this.prefix = prefix;
         this.input = requireNonNull(input);
         this.output = new Dataset.OnGoing.Impl<>(output.name(), output);
+        this.rangeStart = -1;
+        this.variableNameFormatter = null;
+      }
+      
+      /**
+       * Creates a context whose snapshot covers outputs from `rangeStart` to the last one, not only the last one.
+       *
+       * @param prefix                A prefix of the name of the context.
+       * @param input                 An input dataset.
+       * @param output                An output dataset.
+       * @param rangeStart            The first index of the outputs covered by the snapshot.
+       * @param variableNameFormatter A function that renders a variable name for an index.
+       */
+      public Impl(String prefix, Dataset<I> input, Dataset<O> output, int rangeStart, IntFunction<String> variableNameFormatter) {
+        this.prefix = prefix;
+        this.input = requireNonNull(input);
+        this.output = new Dataset.OnGoing.Impl<>(output.name(), output);
+        this.rangeStart = rangeStart;
+        this.variableNameFormatter = requireNonNull(variableNameFormatter);
       }
   
       @Override
@@ -177,6 +416,12 @@ public interface IoContext<I, O> {
               return String.format("(context:%s)", Impl.this.name());
             }
           };
+        if (this.rangeStart >= 0 && this.output.size() - this.rangeStart > 1)
+          return new RangeSnapshot(
+              sublist(this.input, this.rangeStart, this.output.size()),
+              sublist(this.output, this.rangeStart, this.output.size()),
+              this.rangeStart,
+              this.variableNameFormatter);
         return new Snapshot(this.input.get(this.output.size() - 1), this.output.last());
       }
       
@@ -184,8 +429,24 @@ public interface IoContext<I, O> {
       public String toString() {
         if (this.output.size() == 0)
           return "(empty)";
+        if (this.rangeStart >= 0 && this.output.size() - this.rangeStart > 1)
+          return this.snapshot().toString();
         return String.format("in: <%s>%nout:<%s>", this.input.get(this.output.size() - 1), this.output.last());
       }
+      
+      private static <E> List<E> sublist(Dataset<E> dataset, int from, int to) {
+        return new AbstractList<E>() {
+          @Override
+          public E get(int index) {
+            return dataset.get(from + index);
+          }
+          
+          @Override
+          public int size() {
+            return to - from;
+          }
+        };
+      }
     }
   }
 }
@@ -1,10 +1,27 @@
 package com.github.dakusui.thincrest.metamor;
 
+import java.lang.ref.SoftReference;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
 public interface IoPair<I, O> {
   I input();
   
   O output();
   
+  /**
+   * Returns costs measured for the execution of the FUT that produced this IoPair.
+   *
+   * @return Metrics of the execution, or empty if it is not measured.
+   * @see Metrics#of(IoPair)
+   */
+  default Optional<Metrics> metrics() {
+    return Optional.empty();
+  }
+  
   class Impl<I, O> implements IoPair<I, O> {
     
     private final I input;
@@ -30,7 +47,121 @@ public interface IoPair<I, O> {
     }
   }
   
+  /**
+   * An IoPair, whose output is given by a supplier when it is requested first.
+   * The output is cached through a soft reference, so that the supplier, which may deserialize it, is not called again while it is still in memory, e.g., when a report prints this object.
+   * The cached output can still be reclaimed under memory pressure, and then it is given by the supplier again.
+   * If the supplier throws an exception, nothing is cached.
+   *
+   * @see Spill#hold(Object)
+   */
+  class Deferred<I, O> implements IoPair<I, O> {
+    private static final Object NULL = new Object();
+    
+    private final    I                     input;
+    private final    Supplier<O>           output;
+    private volatile SoftReference<Object> cache;
+    
+    public Deferred(I input, Supplier<O> output) {
+      this.input = input;
+      this.output = requireNonNull(output);
+      this.cache = null;
+    }
+    
+    @Override
+    public I input() {
+      return input;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public O output() {
+      SoftReference<Object> cache = this.cache;
+      Object cached = cache != null ? cache.get() : null;
+      if (cached == null) {
+        O ret = output.get();
+        this.cache = new SoftReference<>(ret != null ? ret : NULL);
+        return ret;
+      }
+      return cached != NULL ? (O) cached : null;
+    }
+    
+    public String toString() {
+      return String.format("[%s]=>[%s]", input, output());
+    }
+  }
+  
+  /**
+   * An IoPair, which carries metrics measured for the execution of the FUT.
+   *
+   * @see Metrics.Meter#measure(java.util.function.Function, Object)
+   */
+  class Measured<I, O> implements IoPair<I, O> {
+    
+    private final IoPair<I, O> ioPair;
+    private final Metrics      metrics;
+    
+    public Measured(IoPair<I, O> ioPair, Metrics metrics) {
+      this.ioPair = requireNonNull(ioPair);
+      this.metrics = requireNonNull(metrics);
+    }
+    
+    @Override
+    public I input() {
+      return ioPair.input();
+    }
+    
+    @Override
+    public O output() {
+      return ioPair.output();
+    }
+    
+    @Override
+    public Optional<Metrics> metrics() {
+      return Optional.of(metrics);
+    }
+    
+    public String toString() {
+      return ioPair + metrics.toString();
+    }
+  }
+  
+  /**
+   * A function under test, which creates IoPairs of its inputs and outputs by itself.
+   * The FUT is executed through {@link #invoke(Object)} by a metamorphic test case, so that an IoPair can keep its input and output in a specialized form, such as primitives.
+   *
+   * @see DoubleIoPair#invoker(String, java.util.function.DoubleUnaryOperator)
+   */
+  interface Invoker<I, O> extends Function<I, O> {
+    IoPair<I, O> invoke(I input);
+  }
+
+  /**
+   * Returns a function that executes a given FUT and creates an IoPair of its input and output.
+   * If the FUT is an {@link Invoker}, IoPairs are created by it.
+   *
+   * @param fut A function under test.
+   * @param <I> Type of the input.
+   * @param <O> Type of the output.
+   * @return A function that creates an IoPair.
+   */
+  @SuppressWarnings("unchecked")
+  static <I, O> Function<I, IoPair<I, O>> invoker(Function<I, O> fut) {
+    requireNonNull(fut);
+    if (fut instanceof Invoker)
+      return ((Invoker<I, O>) fut)::invoke;
+    return x -> create(x, fut.apply(x));
+  }
+
   static <I, O> IoPair<I, O> create(I input, O output) {
     return new Impl<>(input, output);
   }
+  
+  static <I, O> IoPair<I, O> deferred(I input, Supplier<O> output) {
+    return new Deferred<>(input, output);
+  }
+  
+  static <I, O> IoPair<I, O> measured(IoPair<I, O> ioPair, Metrics metrics) {
+    return new Measured<>(ioPair, metrics);
+  }
 }
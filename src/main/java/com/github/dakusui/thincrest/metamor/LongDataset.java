@@ -0,0 +1,91 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A dataset of `long` values.
+ * Use `getAsLong(int)` to access an element without boxing it.
+ *
+ * Datasets returned by the methods of this interface are views of given ones, and elements are not copied.
+ */
+public interface LongDataset extends Dataset<Long> {
+  long getAsLong(int i);
+
+  @Override
+  default Long get(int i) {
+    return this.getAsLong(i);
+  }
+
+  default LongStream longStream() {
+    return IntStream.range(0, this.size()).mapToLong(this::getAsLong);
+  }
+
+  /**
+   * Returns a `LongDataset` that has the same name and elements as a given dataset.
+   * If the given one is already a `LongDataset`, it is returned as it is.
+   *
+   * @param dataset A dataset of numbers.
+   * @return A `LongDataset`.
+   */
+  static LongDataset from(Dataset<? extends Number> dataset) {
+    if (dataset instanceof LongDataset)
+      return (LongDataset) dataset;
+    return new PrimitiveView.OfLong<>(dataset.name(), dataset, Number::longValue);
+  }
+
+  /**
+   * Returns a `LongDataset` of outputs in a given dataset of IoPairs.
+   * Outputs held by `LongIoPair`s are read without being boxed.
+   *
+   * @param ioPairs A dataset of IoPairs.
+   * @return A `LongDataset` of the outputs.
+   * @see MetamorphicTestCaseFactory#forLongFunction(String, java.util.function.LongUnaryOperator)
+   */
+  static LongDataset outputsOf(Dataset<? extends IoPair<?, Long>> ioPairs) {
+    return new PrimitiveView.OfLong<>(ioPairs.name(), ioPairs, io -> io instanceof LongIoPair ? ((LongIoPair) io).outputAsLong() : io.output());
+  }
+
+  /**
+   * Converts a function on `LongDataset` into a reducer, which can be given to `reduce` methods of builders.
+   * Since elements given to a reducer are already preformed, they are unboxed one by one when they are read.
+   * To read outputs of the FUT without boxing them, use {@link LongDataset#ofOutputs(Function)} instead.
+   *
+   * @param reducer A function that reduces a `LongDataset`.
+   * @param <R>     The type of the reduced value.
+   * @return A reducer of `Dataset<Long>`.
+   */
+  static <R> Function<Dataset<Long>, R> reducer(Function<? super LongDataset, ? extends R> reducer) {
+    requireNonNull(reducer);
+    return ds -> reducer.apply(from(ds));
+  }
+
+  /**
+   * Converts a predicate on `LongDataset` into one, which can be given to `proposition` methods of builders.
+   *
+   * @param predicate A predicate on a `LongDataset`.
+   * @return A predicate on `Dataset<Long>`.
+   */
+  static Predicate<Dataset<Long>> predicate(Predicate<? super LongDataset> predicate) {
+    requireNonNull(predicate);
+    return ds -> predicate.test(from(ds));
+  }
+
+  /**
+   * Converts a function on `LongDataset` into a transformer of IoPairs, which can be given to builders without a preformer.
+   * The function is given the outputs of the IoPairs, which are read by {@link LongDataset#outputsOf(Dataset)}.
+   *
+   * @param transformer A function on outputs of the FUT.
+   * @param <I>         The input type of the FUT.
+   * @param <R>         The type of the transformed value.
+   * @return A transformer of `Dataset<IoPair<I, Long>>`.
+   */
+  static <I, R> Function<Dataset<IoPair<I, Long>>, R> ofOutputs(Function<? super LongDataset, ? extends R> transformer) {
+    requireNonNull(transformer);
+    return ds -> transformer.apply(outputsOf(ds));
+  }
+}
@@ -0,0 +1,81 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.util.function.LongUnaryOperator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An IoPair of a function from `long` to `long`, which holds the input and output as primitives.
+ */
+public interface LongIoPair extends IoPair<Long, Long> {
+  long inputAsLong();
+
+  long outputAsLong();
+
+  @Override
+  default Long input() {
+    return this.inputAsLong();
+  }
+
+  @Override
+  default Long output() {
+    return this.outputAsLong();
+  }
+
+  class Impl implements LongIoPair {
+    private final long input;
+    private final long output;
+
+    public Impl(long input, long output) {
+      this.input = input;
+      this.output = output;
+    }
+
+    @Override
+    public long inputAsLong() {
+      return this.input;
+    }
+
+    @Override
+    public long outputAsLong() {
+      return this.output;
+    }
+
+    public String toString() {
+      return String.format("[%s]=>[%s]", this.input, this.output);
+    }
+  }
+
+  static LongIoPair create(long input, long output) {
+    return new Impl(input, output);
+  }
+
+  /**
+   * Returns a FUT, which executes `fut` and keeps its input and output in `LongIoPair`.
+   *
+   * @param name A name of the FUT.
+   * @param fut  A function from `long` to `long`.
+   * @return A FUT that creates `LongIoPair`s.
+   */
+  static IoPair.Invoker<Long, Long> invoker(String name, LongUnaryOperator fut) {
+    requireNonNull(name);
+    requireNonNull(fut);
+    return new IoPair.Invoker<Long, Long>() {
+      @Override
+      public IoPair<Long, Long> invoke(Long input) {
+        long in = input;
+        return create(in, fut.applyAsLong(in));
+      }
+
+      @Override
+      public Long apply(Long input) {
+        return fut.applyAsLong(input);
+      }
+
+      @Override
+      public String toString() {
+        return name;
+      }
+    };
+  }
+}
@@ -0,0 +1,152 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A function that remembers outputs of a wrapped function for recently given inputs.
+ *
+ * The number of remembered outputs is bounded and the least recently used one is evicted first.
+ * The wrapped function is called only once for an input even if the input is given from multiple threads at the same time.
+ * Numbers of hits and misses are rendered by `toString`, so that they can be seen in a test report.
+ *
+ * @param <I> Input type of the wrapped function.
+ * @param <O> Output type of the wrapped function.
+ */
+public interface MemoizedFunction<I, O> extends Function<I, O> {
+  /**
+   * Returns the number of calls answered by remembered outputs.
+   *
+   * @return The number of hits.
+   */
+  long hits();
+
+  /**
+   * Returns the number of calls, for which the wrapped function was called.
+   *
+   * @return The number of misses.
+   */
+  long misses();
+
+  /**
+   * Returns the number of currently remembered outputs.
+   *
+   * @return The number of currently remembered outputs.
+   */
+  int size();
+
+  static <I, O> MemoizedFunction<I, O> create(Function<I, O> function, int maxSize) {
+    return new Impl<>(function, maxSize);
+  }
+
+  class Impl<I, O> implements MemoizedFunction<I, O> {
+    private final Function<I, O>               function;
+    private final int                          maxSize;
+    private final Map<I, CompletableFuture<O>> cache;
+    private final LongAdder                    hits   = new LongAdder();
+    private final LongAdder                    misses = new LongAdder();
+
+    public Impl(Function<I, O> function, int maxSize) {
+      Utils.requireArgument(maxSize > 0, "maxSize must be positive: " + maxSize);
+      this.function = requireNonNull(function);
+      this.maxSize = maxSize;
+      this.cache = new LinkedHashMap<I, CompletableFuture<O>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<I, CompletableFuture<O>> eldest) {
+          return this.size() > Impl.this.maxSize;
+        }
+      };
+    }
+
+    /**
+     * Only looking up and registering an entry are done under the lock.
+     * The wrapped function is called outside it, so that calls for different inputs can run concurrently.
+     *
+     * A call for an input, whose output is being computed by another call, waits for it.
+     * The wait ends when the current thread is interrupted, or when the time limit of the current execution of the FUT is reached (see {@link Timeouts}).
+     * Hence, a call abandoned by a time limit doesn't block calls for the same input in later test cases beyond their own time limits.
+     * An output computed by an interrupted call isn't remembered, since it may be an incomplete one given up by the wrapped function.
+     */
+    @Override
+    public O apply(I in) {
+      CompletableFuture<O> future;
+      boolean miss = false;
+      synchronized (this.cache) {
+        future = this.cache.get(in);
+        if (future == null) {
+          future = new CompletableFuture<>();
+          this.cache.put(in, future);
+          miss = true;
+        }
+      }
+      if (!miss) {
+        this.hits.increment();
+        return this.await(in, future);
+      }
+      this.misses.increment();
+      try {
+        O ret = this.function.apply(in);
+        if (Thread.currentThread().isInterrupted())
+          throw new Timeouts.FutTimeoutException(String.format("'%s' was interrupted while computing the output for: %s", this.function, in));
+        future.complete(ret);
+        return ret;
+      } catch (Throwable e) {
+        synchronized (this.cache) {
+          this.cache.remove(in, future);
+        }
+        future.completeExceptionally(e);
+        throw e;
+      }
+    }
+
+    private O await(I in, CompletableFuture<O> future) {
+      long nanosLeft = Timeouts.nanosLeft();
+      try {
+        return nanosLeft == Long.MAX_VALUE ?
+            future.get() :
+            future.get(nanosLeft, NANOSECONDS);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException)
+          throw (RuntimeException) e.getCause();
+        if (e.getCause() instanceof Error)
+          throw (Error) e.getCause();
+        throw new IllegalStateException(e.getCause());
+      } catch (TimeoutException e) {
+        throw new Timeouts.FutTimeoutException(String.format("The output of '%s' for: %s, which is computed by another call, wasn't given in time", this.function, in));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new Timeouts.FutTimeoutException(String.format("Interrupted while waiting for the output of '%s' for: %s, which is computed by another call", this.function, in));
+      }
+    }
+
+    @Override
+    public long hits() {
+      return this.hits.sum();
+    }
+
+    @Override
+    public long misses() {
+      return this.misses.sum();
+    }
+
+    @Override
+    public int size() {
+      synchronized (this.cache) {
+        return this.cache.size();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s(memoized: hits=%s, misses=%s, size=%s/%s)", this.function, this.hits(), this.misses(), this.size(), this.maxSize);
+    }
+  }
+}
@@ -1,46 +1,185 @@
 package com.github.dakusui.thincrest.metamor;
 
+import com.github.dakusui.thincrest.jfr.ThincrestEvents;
 import com.github.dakusui.thincrest_pcond.core.EvaluationEntry;
 import com.github.dakusui.thincrest_pcond.core.Evaluator;
 import com.github.dakusui.thincrest_pcond.internals.InternalUtils;
 import com.github.dakusui.thincrest_pcond.validator.ReportComposer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Formattable;
+import java.util.Formatter;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
 import static com.github.dakusui.thincrest_pcond.core.EvaluationEntry.Type.FUNCTION;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A report composer for metamorphic testing.
+ *
+ * By default, values are formatted in full.
+ * A composer created by {@link Builder} with `maxValueLength` summarizes values of functions in the report, whose string forms are longer than it, by their heads, tails, and sizes.
+ * If a spill destination is given, values of entries that require explanations, i.e., ones on the failing path, are written to it in full, element by element, and the report refers to them by their ids.
+ * This is independent of `maxValueLength`.
+ *
+ * The writer for the spill destination is opened on the first spilled value and flushed after each one.
+ * Close the composer to close the writer.
+ */
+public class MetamorphicReportComposer implements ReportComposer, AutoCloseable {
+  private final int              maxValueLength;
+  private final Supplier<Writer> spill;
+  private final AtomicLong       spilledCount = new AtomicLong(0);
+  private       Writer           spillWriter;
+
+  public MetamorphicReportComposer() {
+    this(-1, null);
+  }
+
+  /**
+   * Creates a report composer.
+   *
+   * @param maxValueLength The maximum length of a formatted value in the report. Negative for unlimited.
+   *                       A non-negative value smaller than {@link Summarizer#MIN_LENGTH} is raised to it.
+   * @param spill          A supplier of a writer to which full values on the failing path are written. `null` for no spill.
+   */
+  public MetamorphicReportComposer(int maxValueLength, Supplier<Writer> spill) {
+    this.maxValueLength = maxValueLength < 0 ? -1 : Math.max(maxValueLength, Summarizer.MIN_LENGTH);
+    this.spill = spill;
+  }
 
-public class MetamorphicReportComposer implements ReportComposer {
-  
   @Override
   public FormattedEntry createFormattedEntryForExpectation(EvaluationEntry evaluationEntry) {
     if (evaluationEntry.type() == FUNCTION)
       return new FormattedEntry(
-          InternalUtils.formatObject(extractInput(evaluationEntry.inputExpectation())),
+          this.formatValue(extractInput(evaluationEntry.inputExpectation()), null),
           evaluationEntry.formName(),
           InternalUtils.indent(evaluationEntry.level()),
-          InternalUtils.formatObject(extractOutput(evaluationEntry.outputExpectation())),
+          this.formatValue(extractOutput(evaluationEntry.outputExpectation()), null),
           isExplanationRequiredForExpectation(evaluationEntry)
       );
     return Utils.createFormattedEntryForExpectation(this, evaluationEntry);
   }
-  
+
   @Override
   public FormattedEntry createFormattedEntryForActualValue(EvaluationEntry evaluationEntry) {
-    if (evaluationEntry.type() == FUNCTION)
+    if (evaluationEntry.type() == FUNCTION) {
+      String spillLabel = this.requiresExplanation(evaluationEntry) ? evaluationEntry.formName() : null;
       return new FormattedEntry(
-          InternalUtils.formatObject(extractInput(evaluationEntry.inputActualValue())),
+          this.formatValue(extractInput(evaluationEntry.inputActualValue()), spillLabel),
           evaluationEntry.formName(),
           InternalUtils.indent(evaluationEntry.level()),
-          InternalUtils.formatObject(extractOutput(evaluationEntry.outputActualValue())),
+          this.formatValue(extractOutput(evaluationEntry.outputActualValue()), spillLabel),
           isExplanationRequiredForActualValue(evaluationEntry));
+    }
     return Utils.createFormattedEntryForActualValue(this, evaluationEntry);
   }
-  
+
   @Override
   public boolean requiresExplanation(EvaluationEntry evaluationEntry) {
     if (evaluationEntry.outputExpectation() instanceof IoContext.Ongoing.Snapshot)
       return true;
     return ReportComposer.super.requiresExplanation(evaluationEntry);
   }
-  
+
+  /**
+   * Formats a value for the report.
+   * If the composer is bounded, a long value is summarized.
+   * If the value is on the failing path (`spillLabel` is not `null`) and a spill destination is given, it is written there in full.
+   */
+  String formatValue(Object value, String spillLabel) {
+    Object event = ThincrestEvents.beginValueFormat();
+    String ret = this.maxValueLength < 0 ?
+        InternalUtils.formatObject(value) :
+        new Summarizer(this.maxValueLength).summarize(value);
+    long spillId = -1;
+    if (spillLabel != null && this.spill != null && !Summarizer.isTrivial(value)) {
+      spillId = this.spillValue(spillLabel, value);
+      ret = ret + " (full value: #" + spillId + ")";
+    }
+    ThincrestEvents.endValueFormat(event, ret.length(), spillId);
+    return ret;
+  }
+
+  private synchronized long spillValue(String label, Object value) {
+    long id = this.spilledCount.incrementAndGet();
+    try {
+      if (this.spillWriter == null)
+        this.spillWriter = requireNonNull(this.spill.get());
+      Writer w = this.spillWriter;
+      w.write(String.format("#%s: %s%n", id, label));
+      if (value instanceof Iterable) {
+        int i = 0;
+        for (Object each : (Iterable<?>) value)
+          writeElement(w, i++, each);
+      } else if (value != null && value.getClass().isArray()) {
+        for (int i = 0; i < Array.getLength(value); i++)
+          writeElement(w, i, Array.get(value, i));
+      } else {
+        w.write("  ");
+        writeValue(w, value);
+        w.write(System.lineSeparator());
+      }
+      w.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return id;
+  }
+
+  private static void writeElement(Writer w, int index, Object element) throws IOException {
+    w.write("  [");
+    w.write(Integer.toString(index));
+    w.write("]: ");
+    writeValue(w, element);
+    w.write(System.lineSeparator());
+  }
+
+  /**
+   * Writes a value to a writer.
+   * An array is written element by element, so that neither its identity hash code nor its whole string form is written.
+   */
+  private static void writeValue(Writer w, Object value) throws IOException {
+    if (value == null || !value.getClass().isArray()) {
+      w.write(String.valueOf(value));
+      return;
+    }
+    w.write("[");
+    for (int i = 0; i < Array.getLength(value); i++) {
+      if (i > 0)
+        w.write(", ");
+      writeValue(w, Array.get(value, i));
+    }
+    w.write("]");
+  }
+
+  /**
+   * Closes the writer for the spill destination, if it has been opened.
+   * Values spilled after this method is called are written to a writer newly requested from the supplier.
+   */
+  @Override
+  public synchronized void close() {
+    if (this.spillWriter == null)
+      return;
+    try {
+      this.spillWriter.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      this.spillWriter = null;
+    }
+  }
+
   private Object extractInput(Object o) {
     if (o instanceof IoContext.Ongoing.Snapshot)
       return ((IoContext.Ongoing.Snapshot) o).in();
@@ -51,18 +190,247 @@ public class MetamorphicReportComposer implements ReportComposer {
     }
     return o;
   }
-  
+
   private static Object extractOutput(Object o) {
     if (o instanceof IoContext.Ongoing.Snapshot)
       return ((IoContext.Ongoing.Snapshot) o).out();
     return o;
   }
-  
+
   private static boolean isExplanationRequiredForExpectation(EvaluationEntry evaluationEntry) {
     return evaluationEntry.outputExpectation() instanceof IoContext.Ongoing.Snapshot;
   }
-  
+
   private static boolean isExplanationRequiredForActualValue(EvaluationEntry evaluationEntry) {
     return evaluationEntry.outputActualValue() instanceof IoContext.Ongoing.Snapshot;
   }
+
+  /**
+   * Summarizes a value into a string not longer than a given length.
+   * Elements of collections, datasets, and arrays are formatted one by one, so that the whole string form of a large container is never created.
+   * Elements, which are containers themselves, are summarized in the same way.
+   * A {@link Formattable} value is formatted into a buffer that keeps only its head and tail.
+   */
+  static class Summarizer {
+    static final String ELLIPSIS   = "...";
+    /**
+     * The smallest length, with which a summary of a container can keep its name, its last element, and its size.
+     */
+    static final int    MIN_LENGTH = 40;
+
+    private final int maxLength;
+
+    /**
+     * Creates a summarizer.
+     *
+     * @param maxLength The maximum length of a summary. A value smaller than {@link Summarizer#MIN_LENGTH} is raised to it.
+     */
+    Summarizer(int maxLength) {
+      this.maxLength = Math.max(maxLength, MIN_LENGTH);
+    }
+
+    String summarize(Object value) {
+      if (isContainer(value))
+        return summarizeContainer(value, this.maxLength);
+      if (value instanceof Formattable) {
+        HeadAndTail b = new HeadAndTail(this.maxLength);
+        new Formatter(b).format("%s", value);
+        return b.summary();
+      }
+      return summarizeString(value instanceof CharSequence ? (CharSequence) value : InternalUtils.formatObject(value), this.maxLength);
+    }
+
+    private static boolean isContainer(Object value) {
+      return value instanceof Collection || value instanceof Dataset || (value != null && value.getClass().isArray());
+    }
+
+    private static String summarizeContainer(Object value, int maxLength) {
+      if (value instanceof Collection)
+        return summarizeElements("", ((Collection<?>) value).iterator(), ((Collection<?>) value).size(), maxLength);
+      if (value instanceof Dataset)
+        return summarizeElements(((Dataset<?>) value).name() + ":", ((Dataset<?>) value).iterator(), ((Dataset<?>) value).size(), maxLength);
+      return summarizeElements("", arrayIterator(value), Array.getLength(value), maxLength);
+    }
+
+    private static String summarizeElement(Object element, int maxLength) {
+      return isContainer(element) ?
+          summarizeContainer(element, maxLength) :
+          summarizeString(String.valueOf(element), maxLength);
+    }
+
+    /**
+     * Formats elements from the head until the half of the budget is used, and then the last element.
+     * Each element is summarized into a quarter of the budget.
+     */
+    private static String summarizeElements(String prefix, Iterator<?> elements, int size, int maxLength) {
+      int elementLength = Math.max(maxLength / 4, ELLIPSIS.length());
+      StringBuilder b = new StringBuilder(prefix).append("[");
+      int i = 0;
+      Object last = null;
+      boolean omitted = false;
+      while (elements.hasNext()) {
+        Object each = elements.next();
+        if (b.length() < maxLength / 2) {
+          if (i > 0)
+            b.append(", ");
+          b.append(summarizeElement(each, elementLength));
+        } else
+          omitted = true;
+        last = each;
+        i++;
+      }
+      if (!omitted)
+        return summarizeString(b.append("]"), maxLength);
+      String suffix = ", " + ELLIPSIS + ", " + summarizeElement(last, elementLength) + "](size=" + size + ")";
+      if (b.length() + suffix.length() > maxLength) {
+        int room = Math.max(maxLength - suffix.length(), prefix.length() + 1);
+        int boundary = b.lastIndexOf(", ", room);
+        b.setLength(boundary > prefix.length() ? boundary : room);
+      }
+      return summarizeString(b.append(suffix), maxLength);
+    }
+
+    private static String summarizeString(CharSequence s, int maxLength) {
+      if (s.length() <= maxLength)
+        return s.toString();
+      return summarizeString(s, s.length(), s, maxLength);
+    }
+
+    /**
+     * Summarizes a string of `length` characters, which starts with `head` and ends with `tail`, by its head, tail, and size.
+     */
+    private static String summarizeString(CharSequence head, long length, CharSequence tail, int maxLength) {
+      String sizeInfo = "(size=" + length + ")";
+      int room = Math.max(maxLength - ELLIPSIS.length() - sizeInfo.length(), 0);
+      int headLength = (room + 1) / 2;
+      int tailLength = room - headLength;
+      if (room == 0)
+        return head.subSequence(0, maxLength - ELLIPSIS.length()) + ELLIPSIS;
+      return head.subSequence(0, headLength) + ELLIPSIS + tail.subSequence(tail.length() - tailLength, tail.length()) + sizeInfo;
+    }
+
+    private static Iterator<Object> arrayIterator(Object array) {
+      int length = Array.getLength(array);
+      return new Iterator<Object>() {
+        int i = 0;
+
+        @Override
+        public boolean hasNext() {
+          return i < length;
+        }
+
+        @Override
+        public Object next() {
+          return Array.get(array, i++);
+        }
+      };
+    }
+
+    /**
+     * An appendable that keeps only the first and the last `maxLength` characters of what is appended, and counts the rest.
+     */
+    private static class HeadAndTail implements Appendable {
+      private final int           maxLength;
+      private final StringBuilder head;
+      private final char[]        tail;
+      private       long          length = 0;
+
+      HeadAndTail(int maxLength) {
+        this.maxLength = maxLength;
+        this.head = new StringBuilder(maxLength);
+        this.tail = new char[maxLength];
+      }
+
+      @Override
+      public Appendable append(CharSequence csq) {
+        return this.append(csq, 0, csq.length());
+      }
+
+      @Override
+      public Appendable append(CharSequence csq, int start, int end) {
+        for (int i = start; i < end; i++)
+          this.append(csq.charAt(i));
+        return this;
+      }
+
+      @Override
+      public Appendable append(char c) {
+        if (this.head.length() < this.maxLength)
+          this.head.append(c);
+        this.tail[(int) (this.length % this.maxLength)] = c;
+        this.length++;
+        return this;
+      }
+
+      String summary() {
+        if (this.length <= this.maxLength)
+          return this.head.toString();
+        StringBuilder b = new StringBuilder(this.maxLength);
+        int oldest = (int) (this.length % this.maxLength);
+        b.append(this.tail, oldest, this.maxLength - oldest).append(this.tail, 0, oldest);
+        return summarizeString(this.head, this.length, b, this.maxLength);
+      }
+    }
+
+    static boolean isTrivial(Object value) {
+      return value == null || value instanceof Number || value instanceof Boolean || value instanceof Character;
+    }
+  }
+
+  /**
+   * A builder of a bounded report composer.
+   */
+  public static class Builder {
+    private int              maxValueLength = -1;
+    private Supplier<Writer> spill          = null;
+
+    public Builder() {
+    }
+
+    /**
+     * Specifies the maximum length of a formatted value of a function in the report.
+     * A value smaller than {@link Summarizer#MIN_LENGTH} is raised to it.
+     *
+     * @param maxValueLength The maximum length of a formatted value.
+     * @return This builder object.
+     */
+    public Builder maxValueLength(int maxValueLength) {
+      this.maxValueLength = maxValueLength;
+      return this;
+    }
+
+    /**
+     * Lets the composer write full values on the failing path to a writer.
+     * The writer is requested only when a value is written for the first time.
+     *
+     * @param writer A supplier of a writer.
+     * @return This builder object.
+     */
+    public Builder spillTo(Supplier<Writer> writer) {
+      this.spill = requireNonNull(writer);
+      return this;
+    }
+
+    /**
+     * Lets the composer append full values on the failing path to a file.
+     * The file is opened on the first spilled value and kept open until the composer is closed.
+     *
+     * @param file A path to a file.
+     * @return This builder object.
+     */
+    public Builder spillTo(Path file) {
+      requireNonNull(file);
+      return this.spillTo(() -> {
+        try {
+          return Files.newBufferedWriter(file, StandardCharsets.UTF_8, CREATE, APPEND);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+
+    public MetamorphicReportComposer build() {
+      return new MetamorphicReportComposer(this.maxValueLength, this.spill);
+    }
+  }
 }
@@ -3,7 +3,11 @@ package com.github.dakusui.thincrest.metamor;
 import com.github.dakusui.thincrest.metamor.internals.InternalUtils;
 import com.github.dakusui.thincrest_pcond.forms.Printables;
 
-import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.*;
 
 import static com.github.dakusui.thincrest_pcond.forms.Predicates.transform;
@@ -25,6 +29,20 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
    */
   Function<I, O> fut();
 
+  /**
+   * Returns the function under test as a memoized one, if the factory remembers its outputs.
+   * Use this to examine numbers of hits and misses after executing test cases.
+   *
+   * @return The memoized function under test.
+   * @see BuilderBase#memoize(int)
+   */
+  @SuppressWarnings("unchecked")
+  default Optional<MemoizedFunction<I, O>> memoizedFut() {
+    return this.fut() instanceof MemoizedFunction ?
+        Optional.of((MemoizedFunction<I, O>) this.fut()) :
+        Optional.empty();
+  }
+
   InputResolver.Sequence.Factory<X, I, O> inputResolverSequenceFactory();
 
   Function<Dataset<IoPair<I, O>>, R> metamorphicTransformer();
@@ -41,7 +59,21 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
    * @return A function that executes the FUT for each element in `Dataset<InputResolver<I, O>>`.
    */
   default Function<Dataset<InputResolver<I, O>>, Dataset<IoPair<I, O>>> metamorphicExecutor() {
-    return InternalUtils.createObservableProcessingPipeline("fut", this.metamorphicMapper(), this.inputResolverSequenceFactory().count(), inputVariableNameFormatter(), ioVariableName());
+    return this.executor()
+        .map(executor -> InternalUtils.<InputResolver<I, O>, IoPair<I, O>>createObservableProcessingPipeline("fut", this.metamorphicMapper(), this.inputResolverSequenceFactory().count(), inputVariableNameFormatter(), ioVariableName(), executor, InputResolver::dependencies))
+        .orElseGet(() -> InternalUtils.createObservableProcessingPipeline("fut", this.metamorphicMapper(), this.inputResolverSequenceFactory().count(), inputVariableNameFormatter(), ioVariableName()));
+  }
+
+  /**
+   * Returns an executor on which the FUT is executed concurrently.
+   * Each input resolver waits only for the preceding IoPairs it depends on.
+   * If empty, the FUT is executed for each input resolver sequentially.
+   *
+   * @return An executor for the FUT.
+   * @see InputResolver#dependencies()
+   */
+  default Optional<Executor> executor() {
+    return Optional.empty();
   }
 
   /**
@@ -63,19 +95,81 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
     return i -> this.inputVariableName() + "[" + i + "]";
   }
 
+  /**
+   * Returns a function that executes the FUT for an input resolved in a given context.
+   * Options of the FUT, such as a meter, time limits, and a spill of outputs, are looked up only once, when this method is called, not for each execution.
+   *
+   * @return A function that executes the FUT for an input resolved in a given context.
+   */
   default Function<IoContext<InputResolver<I, O>, IoPair<I, O>>, Function<InputResolver<I, O>, IoPair<I, O>>> metamorphicMapper() {
+    Function<I, O> fut = this.fut();
+    Metrics.Meter meter = this.meter().orElse(null);
+    Function<I, IoPair<I, O>> invoker = Printables.function(
+        () -> Objects.toString(fut),
+        meter != null ?
+            x -> meter.measure(fut, x) :
+            IoPair.invoker(fut));
+    Timeouts timeouts = this.timeouts().orElse(null);
+    Spill<O> spill = this.outputSpill().orElse(null);
     return Printables.function(
-        () -> "  " + fut(),
+        () -> "  " + fut,
         ioContext -> Printables.function(
             () -> "input:" + ioContext.output(),
             inputResolver -> {
               I in = inputResolver.apply(ioContext.output());
-              return IoPair.create(in, fut().apply(in));
+              IoPair<I, O> io = timeouts != null ?
+                  timeouts.apply(invoker, in, ioContext) :
+                  invoker.apply(in);
+              if (spill == null)
+                return io;
+              IoPair<I, O> ret = IoPair.deferred(in, spill.hold(io.output()));
+              return meter != null ?
+                  IoPair.measured(ret, io.metrics().orElseThrow(IllegalStateException::new)) :
+                  ret;
             }));
   }
 
+  /**
+   * Returns a meter to measure costs of the FUT.
+   * If present, the FUT is executed repeatedly for each input and IoPairs carry the measured {@link Metrics}.
+   * If a per-invocation timeout is set, it bounds all the executions for an input.
+   *
+   * @return A meter of the FUT.
+   * @see BuilderBase#measure(int, int)
+   */
+  default Optional<Metrics.Meter> meter() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns a policy to move outputs of the FUT off heap.
+   * If present, an output, whose serialized form is larger than the threshold of the policy, is stored in a memory-mapped file and deserialized each time it is read from its IoPair.
+   * If empty, outputs are held on heap.
+   *
+   * @return A policy to move outputs off heap.
+   * @see BuilderBase#spillOutputs(Serializer, int)
+   */
+  default Optional<Spill<O>> outputSpill() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns time limits for executions of the FUT.
+   * If present, an execution that exceeds a limit is interrupted and abandoned, and the test case fails with a {@link Timeouts.FutTimeoutException}, which is wrapped by an {@link IoContext.Utils.ItemProcessingException} telling the input.
+   * If empty, the FUT is executed on the caller's thread without any time limit.
+   *
+   * @return Time limits for executions of the FUT.
+   * @see BuilderBase#timeout(Duration)
+   * @see BuilderBase#caseTimeout(Duration)
+   */
+  default Optional<Timeouts> timeouts() {
+    return Optional.empty();
+  }
+
   /**
    * A builder method that returns a printable predicate that examines the function under test.
+   * The returned predicate doesn't hold any state of an evaluation, and it can be shared by multiple source values and threads.
+   * Implementations built by builders create it only once and return the same object.
    *
    * @return A printable predicate that examines FUT with a given metamorphic relation.
    */
@@ -83,6 +177,15 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
     return transform(this.inputResolverSequenceFactory().andThen(this.metamorphicExecutor())).check(this.metamorphicRelation());
   }
 
+  /**
+   * Returns a builder of a runner, which examines the metamorphic relation over a large number of source values.
+   *
+   * @return A builder of a batch runner.
+   */
+  default BatchRunner.Builder<X> batchRunner() {
+    return BatchRunner.forFactory(this);
+  }
+
   String ioVariableName();
 
 
@@ -94,6 +197,46 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
     return new Builder<Object, I, O, Object>().fut(fut);
   }
 
+  /**
+   * Returns a builder for a function under test from `double` to `double`.
+   * The FUT creates {@link DoubleIoPair}s, which hold its inputs and outputs as primitives.
+   * A transformer given to the builder without a preformer reads the outputs without boxing them through {@link DoubleDataset#ofOutputs(Function)}.
+   * If the FUT is memoized or measured, its outputs are boxed as the ones of other FUTs.
+   *
+   * @param name A name of the function under test.
+   * @param fut  A function under test.
+   * @return A builder object.
+   * @see DoubleDataset#ofOutputs(Function)
+   * @see DoubleDataset#outputsOf(Dataset)
+   */
+  static Builder<Object, Double, Double, Object> forDoubleFunction(String name, DoubleUnaryOperator fut) {
+    return forFunctionUnderTest(DoubleIoPair.invoker(name, fut));
+  }
+
+  /**
+   * Returns a builder for a function under test from `int` to `int`.
+   *
+   * @param name A name of the function under test.
+   * @param fut  A function under test.
+   * @return A builder object.
+   * @see MetamorphicTestCaseFactory#forDoubleFunction(String, DoubleUnaryOperator)
+   */
+  static Builder<Object, Integer, Integer, Object> forIntFunction(String name, IntUnaryOperator fut) {
+    return forFunctionUnderTest(IntIoPair.invoker(name, fut));
+  }
+
+  /**
+   * Returns a builder for a function under test from `long` to `long`.
+   *
+   * @param name A name of the function under test.
+   * @param fut  A function under test.
+   * @return A builder object.
+   * @see MetamorphicTestCaseFactory#forDoubleFunction(String, DoubleUnaryOperator)
+   */
+  static Builder<Object, Long, Long, Object> forLongFunction(String name, LongUnaryOperator fut) {
+    return forFunctionUnderTest(LongIoPair.invoker(name, fut));
+  }
+
   class Impl<X, I, O, R> implements MetamorphicTestCaseFactory<X, I, O, R> {
 
     private final Function<I, O> fut;
@@ -102,14 +245,21 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
     private final Predicate<R> metamorphicChecker;
     private final String inputVariableName;
     private final String ioVariableName;
+    private final Options<O> options;
+    private volatile Predicate<X> metamorphicTestPredicate;
 
     public Impl(Function<I, O> fut, InputResolver.Sequence.Factory<X, I, O> inputResolverSequenceFactory, Function<Dataset<IoPair<I, O>>, R> metamorphicTransformer, Predicate<R> metamorphicChecker, String inputVariableName, String ioVariableName) {
+      this(fut, inputResolverSequenceFactory, metamorphicTransformer, metamorphicChecker, inputVariableName, ioVariableName, Options.none());
+    }
+
+    public Impl(Function<I, O> fut, InputResolver.Sequence.Factory<X, I, O> inputResolverSequenceFactory, Function<Dataset<IoPair<I, O>>, R> metamorphicTransformer, Predicate<R> metamorphicChecker, String inputVariableName, String ioVariableName, Options<O> options) {
       this.fut = fut;
       this.inputResolverSequenceFactory = inputResolverSequenceFactory;
       this.metamorphicTransformer = metamorphicTransformer;
       this.metamorphicChecker = metamorphicChecker;
       this.inputVariableName = inputVariableName;
       this.ioVariableName = ioVariableName;
+      this.options = requireNonNull(options);
     }
 
     @Override
@@ -142,6 +292,96 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
       return this.ioVariableName;
     }
 
+    @Override
+    public Optional<Executor> executor() {
+      return this.options.executor();
+    }
+
+    @Override
+    public Optional<Spill<O>> outputSpill() {
+      return this.options.outputSpill();
+    }
+
+    @Override
+    public Optional<Timeouts> timeouts() {
+      return this.options.timeouts();
+    }
+
+    @Override
+    public Optional<Metrics.Meter> meter() {
+      return this.options.meter();
+    }
+
+    /**
+     * Since the predicate is immutable, it may be created more than once by racing threads, but one of them is kept afterwards.
+     */
+    @Override
+    public Predicate<X> toMetamorphicTestPredicate() {
+      Predicate<X> ret = this.metamorphicTestPredicate;
+      if (ret == null)
+        this.metamorphicTestPredicate = ret = MetamorphicTestCaseFactory.super.toMetamorphicTestPredicate();
+      return ret;
+    }
+  }
+
+  /**
+   * Options on how the FUT is executed, which are given to a factory by a builder.
+   * An option is `null`, if it is not specified.
+   *
+   * @param <O> Output type of the function under test.
+   * @see BuilderBase#optionsToBuild()
+   */
+  class Options<O> {
+    private final Executor      executor;
+    private final Spill<O>      outputSpill;
+    private final Timeouts      timeouts;
+    private final Metrics.Meter meter;
+
+    /**
+     * Creates an object that holds options.
+     *
+     * @param executor    An executor on which the FUT is executed concurrently. `null` for sequential execution.
+     * @param outputSpill A policy to move outputs off heap. `null` to hold them on heap.
+     * @param timeouts    Time limits for executions of the FUT. `null` for unlimited.
+     * @param meter       A meter to measure costs of the FUT. `null` not to measure them.
+     */
+    public Options(Executor executor, Spill<O> outputSpill, Timeouts timeouts, Metrics.Meter meter) {
+      this.executor = executor;
+      this.outputSpill = outputSpill;
+      this.timeouts = timeouts;
+      this.meter = meter;
+    }
+
+    /**
+     * Returns an object, in which no option is specified.
+     *
+     * @param <O> Output type of the function under test.
+     * @return An object without any option.
+     */
+    public static <O> Options<O> none() {
+      return new Options<>(null, null, null, null);
+    }
+
+    public Optional<Executor> executor() {
+      return Optional.ofNullable(this.executor);
+    }
+
+    public Optional<Spill<O>> outputSpill() {
+      return Optional.ofNullable(this.outputSpill);
+    }
+
+    public Optional<Timeouts> timeouts() {
+      return Optional.ofNullable(this.timeouts);
+    }
+
+    public Optional<Metrics.Meter> meter() {
+      return Optional.ofNullable(this.meter);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("options(executor=%s, outputSpill=%s, timeouts=%s, meter=%s)", this.executor, this.outputSpill, this.timeouts, this.meter);
+    }
   }
 
   abstract class BuilderBase<B extends BuilderBase<B, X, I, O, R>, X, I, O, R> {
@@ -152,7 +392,7 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
         this.parent = parent;
       }
 
-      abstract void add(Function<Object, String> formatter, Function<X, I> function);
+      abstract void add(Consumer<InputResolver.Sequence.Factory.Builder<X, I, O>> inputResolverAdder);
 
       abstract int count();
     }
@@ -164,6 +404,12 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
     protected String inputVariableName;
     protected String ioVariableName;
     protected String outputVariableName;
+    protected Executor executor;
+    protected int memoizationCacheSize;
+    protected Spill<O> outputSpill;
+    protected Duration invocationTimeout;
+    protected Duration caseTimeout;
+    protected Metrics.Meter meter;
 
     protected BuilderBase() {
       this.sourceVariableName("x")
@@ -173,12 +419,19 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
     }
 
     protected <BB extends BuilderBase<BB, XX, I, O, RR>, XX, RR> BB newBuilder(Supplier<BB> constructor) {
-      return constructor.get()
+      BB ret = constructor.get()
           .fut(this.fut)
           .sourceVariableName(this.sourceVariableName)
           .inputVariableName(this.inputVariableName)
           .ioVariableName(this.ioVariableName)
           .outputVariableName(this.outputVariableName);
+      ret.executor = this.executor;
+      ret.memoizationCacheSize = this.memoizationCacheSize;
+      ret.outputSpill = this.outputSpill;
+      ret.invocationTimeout = this.invocationTimeout;
+      ret.caseTimeout = this.caseTimeout;
+      ret.meter = this.meter;
+      return ret;
     }
 
     protected <BB extends BuilderBase<BB, X, I, O, RR>, RR> BB newBuilderWithSpecifiedRelationType(Supplier<BB> constructor) {
@@ -230,7 +483,7 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
         }
 
         @Override
-        void add(Function<Object, String> formatter, Function<X, I> function) {
+        void add(Consumer<InputResolver.Sequence.Factory.Builder<X, I, O>> inputResolverAdder) {
           throw new IllegalStateException();
         }
 
@@ -250,10 +503,30 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
       return this.inputResolverSequenceFactory(b.apply(ib));
     }
 
-    @SuppressWarnings("unchecked")
     public B addInputResolver(Function<Object, String> formatter, Function<X, I> f) {
       requireNonNull(formatter);
       requireNonNull(f);
+      return this.addInputResolver(b -> b.function(formatter, f));
+    }
+
+    /**
+     * Adds an input resolver that computes an input value from the source value and preceding IoPairs.
+     * With this method, you can define a relation that transforms an output of a preceding execution of the FUT into an input of the next one.
+     *
+     * @param formatter    A function that renders the resolver with the source value (or its placeholder).
+     * @param f            A function that computes an input value from the source value and preceding IoPairs.
+     * @param dependencies Indices of preceding IoPairs that `f` reads.
+     * @return This builder object
+     * @see InputResolver.Sequence.Factory.Builder#function(Function, BiFunction, int...)
+     */
+    public B addInputResolver(Function<Object, String> formatter, BiFunction<X, Dataset<IoPair<I, O>>, I> f, int... dependencies) {
+      requireNonNull(formatter);
+      requireNonNull(f);
+      return this.addInputResolver(b -> b.function(formatter, f, dependencies));
+    }
+
+    @SuppressWarnings("unchecked")
+    private B addInputResolver(Consumer<InputResolver.Sequence.Factory.Builder<X, I, O>> adder) {
       if (this.inputResolverSequenceFactoryProvider == null) {
         this.inputResolverSequenceFactoryProvider = new InputResolverSequenceFactoryProvider<X, I, O>(this) {
           int count = 0;
@@ -261,8 +534,8 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
           };
 
           @Override
-          void add(Function<Object, String> formatter, Function<X, I> f) {
-            inputResolverAdder = inputResolverAdder.andThen(b -> b.function(formatter, f));
+          void add(Consumer<InputResolver.Sequence.Factory.Builder<X, I, O>> adder) {
+            inputResolverAdder = inputResolverAdder.andThen(adder);
             count++;
           }
 
@@ -279,7 +552,7 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
           }
         };
       }
-      this.inputResolverSequenceFactoryProvider.add(formatter, f);
+      this.inputResolverSequenceFactoryProvider.add(adder);
       return (B) this;
     }
 
@@ -323,6 +596,192 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
       return (B) this;
     }
 
+    /**
+     * Specifies a function under test, whose outputs are remembered for up to `cacheSize` recently given inputs.
+     *
+     * @param fut       A function under test
+     * @param cacheSize The maximum number of remembered outputs.
+     * @return This builder object
+     * @see BuilderBase#memoize(int)
+     */
+    public B fut(Function<I, O> fut, int cacheSize) {
+      return this.fut(fut).memoize(cacheSize);
+    }
+
+    /**
+     * Lets the factory remember outputs of the FUT for up to `cacheSize` recently given inputs.
+     * The FUT is called only once for the same input as long as its output is remembered, even across source values examined by the same factory.
+     * Numbers of hits and misses are printed in the test report.
+     *
+     * Use this only for a FUT, whose output depends only on its input.
+     * This can't be combined with {@link BuilderBase#measure(int, int)}, since remembered outputs would be measured instead of executions of the FUT.
+     *
+     * @param cacheSize The maximum number of remembered outputs.
+     * @return This builder object
+     * @see MemoizedFunction
+     */
+    @SuppressWarnings("unchecked")
+    public B memoize(int cacheSize) {
+      Utils.requireArgument(cacheSize > 0, "cacheSize must be positive: " + cacheSize);
+      this.memoizationCacheSize = cacheSize;
+      return (B) this;
+    }
+
+    /**
+     * Returns the FUT to be given to a factory being built.
+     * A memoized one is returned, if specified.
+     *
+     * @return The FUT to be given to a factory.
+     * @throws IllegalStateException The FUT is both memoized and measured.
+     */
+    protected Function<I, O> futToBuild() {
+      Utils.requireState(this.memoizationCacheSize == 0 || this.meter == null, "A memoized FUT can't be measured: memoize(" + this.memoizationCacheSize + ") and " + this.meter + " are specified.");
+      return this.memoizationCacheSize > 0 ?
+          MemoizedFunction.create(this.fut, this.memoizationCacheSize) :
+          this.fut;
+    }
+
+    /**
+     * Returns time limits to be given to a factory being built.
+     * `null` is returned, if neither limit is specified.
+     *
+     * @return Time limits to be given to a factory.
+     */
+    protected Timeouts timeoutsToBuild() {
+      if (this.invocationTimeout == null && this.caseTimeout == null)
+        return null;
+      return new Timeouts(this.invocationTimeout, this.caseTimeout);
+    }
+
+    /**
+     * Returns options on how the FUT is executed, to be given to a factory being built.
+     *
+     * @return Options to be given to a factory.
+     */
+    protected Options<O> optionsToBuild() {
+      return new Options<>(this.executor, this.outputSpill, this.timeoutsToBuild(), this.meter);
+    }
+
+    /**
+     * Lets the factory move outputs of the FUT, whose serialized forms are larger than `threshold` bytes, off heap.
+     * Such outputs are stored in memory-mapped temporary files as soon as they are returned, and deserialized each time they are read from their IoPairs.
+     * Preformers, reducers, and propositions see them as usual.
+     * Note that every output is serialized to measure its size, and the threshold is applied to each output, not to their total size.
+     *
+     * @param serializer A serializer of outputs.
+     * @param threshold  The maximum size of a serialized output kept on heap.
+     * @return This builder object
+     * @see Serializer#BYTE_ARRAY
+     * @see Serializer#BYTE_BUFFER
+     */
+    public B spillOutputs(Serializer<O> serializer, int threshold) {
+      return this.spillOutputs(new Spill<>(serializer, threshold));
+    }
+
+    /**
+     * Lets the factory move outputs of the FUT off heap by a given policy.
+     *
+     * @param outputSpill A policy to move outputs off heap.
+     * @return This builder object
+     * @see BuilderBase#spillOutputs(Serializer, int)
+     */
+    @SuppressWarnings("unchecked")
+    public B spillOutputs(Spill<O> outputSpill) {
+      this.outputSpill = requireNonNull(outputSpill);
+      return (B) this;
+    }
+
+    /**
+     * Sets a time limit for each execution of the FUT.
+     * An execution that doesn't finish in time is interrupted and abandoned, and the test case fails with a {@link Timeouts.FutTimeoutException} as the cause of an {@link IoContext.Utils.ItemProcessingException} instead of hanging.
+     * The remaining input resolvers of the test case are not executed.
+     *
+     * Note that the FUT is then executed on a pooled thread, where thread-locals of the caller, such as a {@link com.github.dakusui.thincrest.ValidatorScope}, are not visible.
+     *
+     * @param invocationTimeout A time limit for each execution of the FUT.
+     * @return This builder object
+     * @see BuilderBase#caseTimeout(Duration)
+     */
+    @SuppressWarnings("unchecked")
+    public B timeout(Duration invocationTimeout) {
+      this.invocationTimeout = requireNonNull(invocationTimeout);
+      return (B) this;
+    }
+
+    /**
+     * Sets a time limit for all the executions of the FUT in a test case, which starts when the FUT is executed for the first time in it.
+     * An execution running at the deadline is interrupted and abandoned, and the ones after it are not started.
+     *
+     * @param caseTimeout A time limit for a test case.
+     * @return This builder object
+     * @see BuilderBase#timeout(Duration)
+     */
+    @SuppressWarnings("unchecked")
+    public B caseTimeout(Duration caseTimeout) {
+      this.caseTimeout = requireNonNull(caseTimeout);
+      return (B) this;
+    }
+
+    /**
+     * Lets the factory measure costs of the FUT, so that relations over them can be examined.
+     * For each input, the FUT is executed `warmups` times, and then `repetitions` times to measure wall time, CPU time, and allocated bytes.
+     * Each IoPair carries the values measured in the execution, whose wall time is the median, which can be retrieved by {@link Metrics#of(IoPair)}.
+     *
+     * Note that measured values are affected by other threads, when the FUT is executed concurrently.
+     * This can't be combined with {@link BuilderBase#memoize(int)}.
+     *
+     * @param warmups     The number of executions before measuring.
+     * @param repetitions The number of measured executions.
+     * @return This builder object
+     * @see Metrics
+     */
+    @SuppressWarnings("unchecked")
+    public B measure(int warmups, int repetitions) {
+      this.meter = new Metrics.Meter(warmups, repetitions);
+      return (B) this;
+    }
+
+    /**
+     * Lets the factory measure costs of a single execution of the FUT for each input.
+     *
+     * @return This builder object
+     * @see BuilderBase#measure(int, int)
+     */
+    public B measure() {
+      return this.measure(0, 1);
+    }
+
+    /**
+     * Lets the factory execute the FUT concurrently on a given `executor`.
+     * Input resolvers added by {@link BuilderBase#addInputResolver(Function, Function)} are independent of preceding IoPairs and executed right away.
+     * Ones added by {@link BuilderBase#addInputResolver(Function, BiFunction, int...)} wait only for the IoPairs they depend on.
+     * Input resolvers that don't declare their dependencies (see {@link InputResolver#dependencies()}) may read any preceding IoPair, so they wait for all the preceding ones.
+     * The resulting dataset of IoPairs and the report are the same as the ones in sequential execution.
+     *
+     * When the FUT fails for an input, resolvers that haven't started yet are cancelled, but running ones are not interrupted.
+     *
+     * On Java 21 or later, an executor returned by `Executors.newVirtualThreadPerTaskExecutor()` can be used.
+     *
+     * @param executor An executor on which the FUT is executed.
+     * @return This builder object
+     * @see InputResolver#dependencies()
+     */
+    @SuppressWarnings("unchecked")
+    public B parallel(Executor executor) {
+      this.executor = requireNonNull(executor);
+      return (B) this;
+    }
+
+    /**
+     * Lets the factory execute the FUT concurrently on the common pool of `ForkJoinPool`.
+     *
+     * @return This builder object
+     * @see BuilderBase#parallel(Executor)
+     */
+    public B parallel() {
+      return this.parallel(ForkJoinPool.commonPool());
+    }
+
     public <P> MetamorphicTestCaseFactoryWithPreformer.Builder<X, I, O, P, R> withPreformer() {
       return this.newBuilderWithSpecifiedRelationType(MetamorphicTestCaseFactoryWithPreformer.Builder::new);
     }
@@ -387,7 +846,7 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
     }
 
     public MetamorphicTestCaseFactory<X, I, O, Proposition> proposition(String propositionName, Predicate<Dataset<IoPair<I, O>>> p) {
-      return this.proposition(args -> MessageFormat.format(propositionName, args), p);
+      return this.proposition(new Proposition.MessageFormatter(propositionName), p);
     }
 
     public <P> MetamorphicTestCaseFactoryWithPreformer.Builder<X, I, O, P, R> preformer(Function<IoPair<I, O>, P> preformer) {
@@ -401,7 +860,7 @@ public interface MetamorphicTestCaseFactory<X, I, O, R> {
 
     @Override
     public MetamorphicTestCaseFactory<X, I, O, R> build() {
-      return new Impl<>(this.fut, this.inputResolverSequenceFactoryProvider.get(), this.transformer, this.checker, this.inputVariableName, this.ioVariableName);
+      return new Impl<>(this.futToBuild(), this.inputResolverSequenceFactoryProvider.get(), this.transformer, this.checker, this.inputVariableName, this.ioVariableName, this.optionsToBuild());
     }
   }
 }
@@ -1,15 +1,18 @@
 package com.github.dakusui.thincrest.metamor;
 
 
+import com.github.dakusui.thincrest.jfr.ThincrestEvents;
 import com.github.dakusui.thincrest.metamor.internals.InternalUtils;
 import com.github.dakusui.thincrest_pcond.forms.Printables;
 
-import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Predicate;
+import java.util.stream.Collector;
 
 import static java.util.Objects.requireNonNull;
 
@@ -44,22 +47,90 @@ public interface MetamorphicTestCaseFactoryWithPreformer<X, I, O, P, R> extends
 
   class Impl<X, I, O, P, R> implements MetamorphicTestCaseFactoryWithPreformer<X, I, O, P, R> {
 
-    private final Function<I, O>                          fut;
-    private final InputResolver.Sequence.Factory<X, I, O> inputResolverSequenceFactory;
-    private final Function<IoPair<I, O>, P>               preformer;
-    private final Function<Dataset<P>, R>                 reducer;
-    private final Predicate<R>                            checker;
-    private final String                                  ioVariableName;
-    private final String                                  inputVariableName;
+    private final    Function<I, O>                          fut;
+    private final    InputResolver.Sequence.Factory<X, I, O> inputResolverSequenceFactory;
+    private final    Function<IoPair<I, O>, P>               preformer;
+    private final    Function<Dataset<P>, R>                 reducer;
+    private final    Collector<? super P, ?, ? extends R>    collector;
+    private final    Predicate<R>                            checker;
+    private final    String                                  ioVariableName;
+    private final    String                                  inputVariableName;
+    private final    MetamorphicTestCaseFactory.Options<O>   options;
+    private volatile Predicate<X>                            metamorphicTestPredicate;
 
     public Impl(Function<I, O> fut, InputResolver.Sequence.Factory<X, I, O> inputResolverSequenceFactory, Function<IoPair<I, O>, P> preformer, Function<Dataset<P>, R> reducer, Predicate<R> checker, String inputVariableName, String ioVariableName) {
+      this(fut, inputResolverSequenceFactory, preformer, reducer, null, checker, inputVariableName, ioVariableName, MetamorphicTestCaseFactory.Options.none());
+    }
+
+    /**
+     * Creates a factory.
+     * If `collector` is not `null`, preformed values are folded into it one by one, instead of being stored in a dataset given to `reducer`.
+     *
+     * @param collector A collector that reduces preformed values. `reducer` must be equivalent to it.
+     * @param options   Options on how the FUT is executed.
+     */
+    public Impl(Function<I, O> fut, InputResolver.Sequence.Factory<X, I, O> inputResolverSequenceFactory, Function<IoPair<I, O>, P> preformer, Function<Dataset<P>, R> reducer, Collector<? super P, ?, ? extends R> collector, Predicate<R> checker, String inputVariableName, String ioVariableName, MetamorphicTestCaseFactory.Options<O> options) {
       this.fut = requireNonNull(fut);
       this.inputResolverSequenceFactory = inputResolverSequenceFactory;
       this.preformer = requireNonNull(preformer);
       this.reducer = requireNonNull(reducer);
+      this.collector = collector;
       this.checker = requireNonNull(checker);
       this.inputVariableName = requireNonNull(inputVariableName);
       this.ioVariableName = requireNonNull(ioVariableName);
+      this.options = requireNonNull(options);
+    }
+
+    /**
+     * If a collector is given, each IoPair is preformed and accumulated as soon as the FUT returns it, in the order of the input resolvers even if they are processed concurrently.
+     * The output of an IoPair is released once it is accumulated and no input resolver that may read it is left, and it is shown as `(released)` in the report.
+     */
+    @Override
+    public Function<Dataset<InputResolver<I, O>>, Dataset<IoPair<I, O>>> metamorphicExecutor() {
+      if (this.collector == null)
+        return MetamorphicTestCaseFactoryWithPreformer.super.metamorphicExecutor();
+      int numItems = this.inputResolverSequenceFactory().count();
+      Function<IoContext<InputResolver<I, O>, IoPair<I, O>>, Dataset<IoPair<I, O>>> outputExtractor = InternalUtils.toFoldedOutputExtractorFunction("fut");
+      return InternalUtils.<I, O, P, Object, R>toBeginFoldingFunction(this.preformer, this.collector())
+          .andThen(this.executor()
+              .map(executor -> InternalUtils.createObservableProcessingPipeline("fut", this.metamorphicMapper(), numItems, inputVariableNameFormatter(), ioVariableName(), executor, InputResolver::dependencies, outputExtractor))
+              .orElseGet(() -> InternalUtils.createObservableProcessingPipeline("fut", this.metamorphicMapper(), numItems, inputVariableNameFormatter(), ioVariableName(), outputExtractor)));
+    }
+
+    @Override
+    public Function<IoContext<InputResolver<I, O>, IoPair<I, O>>, Function<InputResolver<I, O>, IoPair<I, O>>> metamorphicMapper() {
+      Function<IoContext<InputResolver<I, O>, IoPair<I, O>>, Function<InputResolver<I, O>, IoPair<I, O>>> ret = MetamorphicTestCaseFactoryWithPreformer.super.metamorphicMapper();
+      return this.collector == null ? ret : InternalUtils.toFoldingMapper(ret);
+    }
+
+    /**
+     * If a collector is given, the values preformed by the fold are rendered in the report, instead of preforming the IoPairs again.
+     * The reducer returns the result folded by the executor, or folds the preformed values if they are given by other means.
+     */
+    @Override
+    public Function<Dataset<IoPair<I, O>>, R> metamorphicTransformer() {
+      if (this.collector == null)
+        return MetamorphicTestCaseFactoryWithPreformer.super.metamorphicTransformer();
+      return Printables.<Dataset<IoPair<I, O>>, Dataset<P>>function(
+              () -> "preform:" + this.preformer,
+              ds -> InternalUtils.preformedView(this.ioVariableName, ds, this.preformer))
+          .andThen(Printables.function(
+              () -> "reduce:" + this.reducer,
+              ds -> {
+                Object event = ThincrestEvents.beginStage("reduce", -1);
+                try {
+                  return InternalUtils.isFolded(ds) ?
+                      InternalUtils.<R>resultOfFold(ds) :
+                      InternalUtils.fold(ds, Function.identity(), this.collector(), this.options.executor().orElse(null));
+                } finally {
+                  ThincrestEvents.end(event);
+                }
+              }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collector<P, Object, R> collector() {
+      return (Collector<P, Object, R>) this.collector;
     }
 
 
@@ -80,7 +151,14 @@ public interface MetamorphicTestCaseFactoryWithPreformer<X, I, O, P, R> extends
 
     @Override
     public Function<Dataset<P>, R> metamorphicReducer() {
-      return Printables.function(() -> "reduce:" + reducer, this.reducer);
+      return Printables.function(() -> "reduce:" + reducer, ds -> {
+        Object event = ThincrestEvents.beginStage("reduce", -1);
+        try {
+          return this.reducer.apply(ds);
+        } finally {
+          ThincrestEvents.end(event);
+        }
+      });
     }
 
     @Override
@@ -107,11 +185,43 @@ public interface MetamorphicTestCaseFactoryWithPreformer<X, I, O, P, R> extends
     public IntFunction<String> ioVariableNameFormatter() {
       return i -> this.ioVariableName + "[" + i + "]";
     }
+
+    @Override
+    public Optional<Executor> executor() {
+      return this.options.executor();
+    }
+
+    @Override
+    public Optional<Spill<O>> outputSpill() {
+      return this.options.outputSpill();
+    }
+
+    @Override
+    public Optional<Timeouts> timeouts() {
+      return this.options.timeouts();
+    }
+
+    @Override
+    public Optional<Metrics.Meter> meter() {
+      return this.options.meter();
+    }
+
+    /**
+     * Since the predicate is immutable, it may be created more than once by racing threads, but one of them is kept afterwards.
+     */
+    @Override
+    public Predicate<X> toMetamorphicTestPredicate() {
+      Predicate<X> ret = this.metamorphicTestPredicate;
+      if (ret == null)
+        this.metamorphicTestPredicate = ret = MetamorphicTestCaseFactoryWithPreformer.super.toMetamorphicTestPredicate();
+      return ret;
+    }
   }
 
   class Builder<X, I, O, P, R> extends BuilderBase<Builder<X, I, O, P, R>, X, I, O, R> {
-    private Function<Dataset<P>, R>   reducer;
-    private Function<IoPair<I, O>, P> preformer;
+    private Function<Dataset<P>, R>              reducer;
+    private Collector<? super P, ?, ? extends R> collector;
+    private Function<IoPair<I, O>, P>            preformer;
 
     public Builder() {
     }
@@ -144,6 +254,25 @@ public interface MetamorphicTestCaseFactoryWithPreformer<X, I, O, P, R> extends
 
     public Builder<X, I, O, P, R> reducer(Function<Dataset<P>, R> reducer) {
       this.reducer = requireNonNull(reducer);
+      this.collector = null;
+      return this;
+    }
+
+    /**
+     * Specifies a reducer as a `Collector`.
+     * Each IoPair is preformed and accumulated as soon as the FUT returns it, and preformed values are not stored in a dataset.
+     * If the factory is built with an executor, IoPairs are accumulated in the order of the input resolvers, no matter in which order they are returned.
+     * The report still shows the preformed values, which are computed again only when it is composed.
+     *
+     * @param reducerName A name of the reducer.
+     * @param collector   A collector that reduces preformed values.
+     * @param <A>         The type of the accumulator.
+     * @return This builder object
+     */
+    public <A> Builder<X, I, O, P, R> reduce(String reducerName, Collector<? super P, A, ? extends R> collector) {
+      requireNonNull(collector);
+      this.reduce(reducerName, ds -> ds.stream().collect(collector));
+      this.collector = collector;
       return this;
     }
 
@@ -174,11 +303,12 @@ public interface MetamorphicTestCaseFactoryWithPreformer<X, I, O, P, R> extends
     }
 
     public MetamorphicTestCaseFactory<X, I, O, Proposition> proposition(String propositionName, Predicate<Dataset<P>> p) {
-      return this.proposition(args -> MessageFormat.format(propositionName, Arrays.stream(args).map(Objects::toString).toArray()), p);
+      Proposition.MessageFormatter formatter = new Proposition.MessageFormatter(propositionName);
+      return this.proposition(args -> formatter.apply(Arrays.stream(args).map(Objects::toString).toArray()), p);
     }
 
     public MetamorphicTestCaseFactoryWithPreformer<X, I, O, P, R> build() {
-      return new Impl<>(fut, inputResolverSequenceFactoryProvider.get(), preformer, reducer, checker, inputVariableName, ioVariableName);
+      return new Impl<>(futToBuild(), inputResolverSequenceFactoryProvider.get(), preformer, reducer, collector, checker, inputVariableName, ioVariableName, optionsToBuild());
     }
   }
 }
@@ -0,0 +1,229 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Costs measured for an execution of the FUT.
+ *
+ * All the values are taken from the same execution, whose wall time is the median of repeated measurements, so that they describe an execution that actually happened.
+ * A value is `-1` if the JVM doesn't support measuring it.
+ * An {@link IoPair} created by a factory built with {@link MetamorphicTestCaseFactory.BuilderBase#measure(int, int)} carries its metrics,
+ * so that preformers, reducers, and propositions can examine costs of the FUT just like its outputs.
+ *
+ * [source,java]
+ * ----
+ * MetamorphicTestCaseFactory.forFunctionUnderTest("sort", fut)
+ *     .measure(3, 5)
+ *     .makeInputResolversEndomorphic()
+ *     .addInputResolver((x) -> String.format("twice(%s)", x), x -> twice(x))
+ *     .preformer("wallTime", io -> Metrics.of(io).wallTimeNanos())
+ *     .proposition("{1}<=2.2*{0}", (Dataset<Long> ds) -> ds.get(1) <= 2.2 * ds.get(0))
+ * ----
+ */
+public class Metrics {
+  private final long wallTimeNanos;
+  private final long cpuTimeNanos;
+  private final long allocatedBytes;
+  private final int  repetitions;
+
+  public Metrics(long wallTimeNanos, long cpuTimeNanos, long allocatedBytes, int repetitions) {
+    this.wallTimeNanos = wallTimeNanos;
+    this.cpuTimeNanos = cpuTimeNanos;
+    this.allocatedBytes = allocatedBytes;
+    this.repetitions = repetitions;
+  }
+
+  /**
+   * Returns the elapsed time of an execution in nanoseconds.
+   *
+   * @return The elapsed time of an execution.
+   */
+  public long wallTimeNanos() {
+    return this.wallTimeNanos;
+  }
+
+  /**
+   * Returns the CPU time consumed by the thread executing the FUT in nanoseconds.
+   *
+   * @return The CPU time of an execution, or `-1` if not supported.
+   */
+  public long cpuTimeNanos() {
+    return this.cpuTimeNanos;
+  }
+
+  /**
+   * Returns the number of bytes allocated on heap by the thread executing the FUT.
+   * This is measured by `com.sun.management.ThreadMXBean`, which is looked up at runtime, and `-1` is returned on JVMs that don't provide it.
+   *
+   * @return The allocated bytes of an execution, or `-1` if not supported.
+   */
+  public long allocatedBytes() {
+    return this.allocatedBytes;
+  }
+
+  /**
+   * Returns the number of measured executions, from which the values are computed.
+   *
+   * @return The number of measured executions.
+   */
+  public int repetitions() {
+    return this.repetitions;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("{wall=%sns,cpu=%sns,alloc=%sB}", this.wallTimeNanos, this.cpuTimeNanos, this.allocatedBytes);
+  }
+
+  /**
+   * Returns metrics carried by a given IoPair.
+   *
+   * @param ioPair An IoPair created by a factory that measures the FUT.
+   * @return The metrics of the IoPair.
+   * @throws IllegalStateException The IoPair doesn't carry metrics.
+   */
+  public static Metrics of(IoPair<?, ?> ioPair) {
+    return ioPair.metrics().orElseThrow(() -> new IllegalStateException("Metrics are not measured for: " + ioPair + ". Use BuilderBase#measure(int, int) to measure them."));
+  }
+
+  /**
+   * Executes the FUT repeatedly and measures its costs.
+   *
+   * The FUT is executed `warmups` times without measuring, then `repetitions` times with measuring.
+   * The output of the last execution is used for the IoPair, and the metrics of the execution, whose wall time is the median, are reported.
+   * All the executions are done on the calling thread, since CPU time and allocated bytes are measured per thread.
+   */
+  public static class Meter {
+    /**
+     * `com.sun.management.ThreadMXBean`, or `null` on JVMs that don't provide it.
+     * It is looked up reflectively, so that this class can be loaded on such JVMs.
+     */
+    private static final Class<?>     ALLOCATION_MX_BEAN_CLASS = allocationMXBeanClass();
+    /**
+     * A handle of `com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)`, whose receiver type is `java.lang.management.ThreadMXBean`.
+     * It is invoked exactly, so that it doesn't allocate anything by itself.
+     */
+    private static final MethodHandle THREAD_ALLOCATED_BYTES   = threadAllocatedBytes(ALLOCATION_MX_BEAN_CLASS);
+
+    private final int warmups;
+    private final int repetitions;
+
+    public Meter(int warmups, int repetitions) {
+      Utils.requireArgument(warmups >= 0, "warmups must not be negative: " + warmups);
+      Utils.requireArgument(repetitions > 0, "repetitions must be positive: " + repetitions);
+      this.warmups = warmups;
+      this.repetitions = repetitions;
+    }
+
+    /**
+     * Executes `fut` for `input` and returns an IoPair that carries the output and the metrics.
+     *
+     * @param fut   A FUT to be measured.
+     * @param input An input to the FUT.
+     * @param <I>   Type of the input.
+     * @param <O>   Type of the output.
+     * @return An IoPair that carries the metrics.
+     */
+    public <I, O> IoPair.Measured<I, O> measure(Function<I, O> fut, I input) {
+      for (int i = 0; i < this.warmups; i++)
+        fut.apply(input);
+      ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+      boolean cpuTimeSupported = isCpuTimeSupported();
+      boolean allocationSupported = isAllocationSupported(threadMXBean);
+      long threadId = Thread.currentThread().getId();
+      long[] wallTimes = new long[this.repetitions];
+      long[] cpuTimes = new long[this.repetitions];
+      long[] allocations = new long[this.repetitions];
+      O output = null;
+      for (int i = 0; i < this.repetitions; i++) {
+        long allocatedBefore = allocationSupported ? allocatedBytes(threadMXBean, threadId) : -1;
+        long cpuTimeBefore = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : -1;
+        long wallTimeBefore = System.nanoTime();
+        output = fut.apply(input);
+        wallTimes[i] = System.nanoTime() - wallTimeBefore;
+        cpuTimes[i] = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() - cpuTimeBefore : -1;
+        allocations[i] = allocationSupported ? allocatedBytes(threadMXBean, threadId) - allocatedBefore : -1;
+      }
+      int median = indexOfMedian(wallTimes);
+      return new IoPair.Measured<>(IoPair.create(input, output), new Metrics(wallTimes[median], cpuTimes[median], allocations[median], this.repetitions));
+    }
+
+    @Override
+    public String toString() {
+      return String.format("meter(warmups=%s, repetitions=%s)", this.warmups, this.repetitions);
+    }
+
+    /**
+     * Returns `false` on JVMs that don't support measuring CPU time of the current thread, or where it is disabled.
+     */
+    static boolean isCpuTimeSupported() {
+      ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+      return threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Returns `false` on JVMs that don't provide `com.sun.management.ThreadMXBean`, or where measuring allocations is disabled.
+     */
+    private static boolean isAllocationSupported(ThreadMXBean threadMXBean) {
+      if (THREAD_ALLOCATED_BYTES == null || !ALLOCATION_MX_BEAN_CLASS.isInstance(threadMXBean))
+        return false;
+      try {
+        return (Boolean) ALLOCATION_MX_BEAN_CLASS.getMethod("isThreadAllocatedMemorySupported").invoke(threadMXBean)
+            && (Boolean) ALLOCATION_MX_BEAN_CLASS.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadMXBean);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        return false;
+      }
+    }
+
+    private static long allocatedBytes(ThreadMXBean threadMXBean, long threadId) {
+      try {
+        return (long) THREAD_ALLOCATED_BYTES.invokeExact(threadMXBean, threadId);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private static Class<?> allocationMXBeanClass() {
+      try {
+        return Class.forName("com.sun.management.ThreadMXBean");
+      } catch (ClassNotFoundException | LinkageError e) {
+        return null;
+      }
+    }
+
+    private static MethodHandle threadAllocatedBytes(Class<?> allocationMXBeanClass) {
+      if (allocationMXBeanClass == null)
+        return null;
+      try {
+        Method method = allocationMXBeanClass.getMethod("getThreadAllocatedBytes", long.class);
+        return MethodHandles.publicLookup()
+            .unreflect(method)
+            .asType(MethodType.methodType(long.class, ThreadMXBean.class, long.class));
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        return null;
+      }
+    }
+
+    /**
+     * Returns the index of the median of `values`, or of the larger one of the two in the middle, if the length is even.
+     */
+    static int indexOfMedian(long[] values) {
+      return IntStream.range(0, values.length)
+          .boxed()
+          .sorted(Comparator.comparingLong(i -> values[i]))
+          .skip(values.length / 2)
+          .findFirst()
+          .orElseThrow(IllegalArgumentException::new);
+    }
+  }
+}
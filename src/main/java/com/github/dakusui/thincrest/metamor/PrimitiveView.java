@@ -0,0 +1,100 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A view of a dataset, whose elements are read as primitives through an accessor.
+ * Elements are read from the viewed dataset each time they are requested, and they are not copied.
+ *
+ * @param <E> Type of elements in the viewed dataset.
+ * @param <N> Type of boxed elements in this dataset.
+ * @see DoubleDataset
+ * @see IntDataset
+ * @see LongDataset
+ */
+abstract class PrimitiveView<E, N extends Number> extends Dataset.Base<N> {
+  final Dataset<? extends E> dataset;
+
+  PrimitiveView(String name, Dataset<? extends E> dataset) {
+    super(name);
+    this.dataset = requireNonNull(dataset);
+  }
+
+  @Override
+  public int size() {
+    return this.dataset.size();
+  }
+
+  @Override
+  public Iterator<N> iterator() {
+    return this.asList().iterator();
+  }
+
+  @Override
+  public String toString() {
+    return this.name() + ":" + this.asList();
+  }
+
+  private List<N> asList() {
+    return new AbstractList<N>() {
+      @Override
+      public N get(int index) {
+        return PrimitiveView.this.get(index);
+      }
+
+      @Override
+      public int size() {
+        return PrimitiveView.this.size();
+      }
+    };
+  }
+
+  static class OfDouble<E> extends PrimitiveView<E, Double> implements DoubleDataset {
+    private final ToDoubleFunction<? super E> accessor;
+
+    OfDouble(String name, Dataset<? extends E> dataset, ToDoubleFunction<? super E> accessor) {
+      super(name, dataset);
+      this.accessor = requireNonNull(accessor);
+    }
+
+    @Override
+    public double getAsDouble(int i) {
+      return this.accessor.applyAsDouble(this.dataset.get(i));
+    }
+  }
+
+  static class OfInt<E> extends PrimitiveView<E, Integer> implements IntDataset {
+    private final ToIntFunction<? super E> accessor;
+
+    OfInt(String name, Dataset<? extends E> dataset, ToIntFunction<? super E> accessor) {
+      super(name, dataset);
+      this.accessor = requireNonNull(accessor);
+    }
+
+    @Override
+    public int getAsInt(int i) {
+      return this.accessor.applyAsInt(this.dataset.get(i));
+    }
+  }
+
+  static class OfLong<E> extends PrimitiveView<E, Long> implements LongDataset {
+    private final ToLongFunction<? super E> accessor;
+
+    OfLong(String name, Dataset<? extends E> dataset, ToLongFunction<? super E> accessor) {
+      super(name, dataset);
+      this.accessor = requireNonNull(accessor);
+    }
+
+    @Override
+    public long getAsLong(int i) {
+      return this.accessor.applyAsLong(this.dataset.get(i));
+    }
+  }
+}
@@ -2,9 +2,11 @@ package com.github.dakusui.thincrest.metamor;
 
 import com.github.dakusui.thincrest_pcond.core.printable.PrintableFunction;
 
+import java.text.MessageFormat;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import static java.util.Collections.emptyList;
@@ -19,6 +21,7 @@ public interface Proposition {
     final         Function<Object[], String> formatter;
     private final Predicate<Dataset<X>>      predicate;
     private final Dataset<X>                 dataset;
+    private       String                     description;
     
     public Impl(Predicate<Dataset<X>> predicate, Function<Object[], String> formatter, Dataset<X> dataset) {
       this.predicate = predicate;
@@ -36,11 +39,42 @@ public interface Proposition {
       return this.dataset.size();
     }
     
+    /**
+     * The description is rendered only when it is requested for the first time, e.g., when a report is composed.
+     */
     @Override
     public String toString() {
-      return this.formatter.apply(IntStream.range(0, this.arity())
-          .mapToObj(dataset::get)
-          .toArray());
+      String ret = this.description;
+      if (ret == null)
+        this.description = ret = this.formatter.apply(IntStream.range(0, this.arity())
+            .mapToObj(dataset::get)
+            .toArray());
+      return ret;
+    }
+  }
+  
+  /**
+   * A formatter of a proposition, whose pattern is parsed by `MessageFormat` only once, when it is created.
+   * Since `MessageFormat` is not thread-safe, each thread formats with its own copy of the parsed one, so that formatting is not serialized.
+   */
+  class MessageFormatter implements Function<Object[], String> {
+    private final String                     pattern;
+    private final ThreadLocal<MessageFormat> messageFormat;
+    
+    public MessageFormatter(String pattern) {
+      this.pattern = requireNonNull(pattern);
+      MessageFormat parsed = new MessageFormat(pattern);
+      this.messageFormat = ThreadLocal.withInitial(() -> (MessageFormat) parsed.clone());
+    }
+    
+    @Override
+    public String apply(Object[] args) {
+      return this.messageFormat.get().format(args);
+    }
+    
+    @Override
+    public String toString() {
+      return this.pattern;
     }
   }
   
@@ -56,7 +90,7 @@ public interface Proposition {
         super(
             new Object(),
             emptyList(),
-            () -> formatter.apply(IntStream.range(0, arity).mapToObj(placeHolderFormatter).toArray()),
+            memoize(() -> formatter.apply(IntStream.range(0, arity).mapToObj(placeHolderFormatter).toArray())),
             ds -> new Proposition.Impl<>(predicate, formatter, ds));
       }
       
@@ -64,6 +98,15 @@ public interface Proposition {
       public Proposition apply(Dataset<X> ds) {
         return super.apply(ds);
       }
+      
+      private static Supplier<String> memoize(Supplier<String> supplier) {
+        String[] value = new String[1];
+        return () -> {
+          if (value[0] == null)
+            value[0] = supplier.get();
+          return value[0];
+        };
+      }
     }
   }
 }
@@ -1,5 +1,6 @@
 package com.github.dakusui.thincrest.metamor;
 
+import com.github.dakusui.thincrest.jfr.ThincrestEvents;
 import com.github.dakusui.thincrest_pcond.core.Evaluable;
 import com.github.dakusui.thincrest_pcond.core.printable.PrintablePredicate;
 
@@ -11,7 +12,16 @@ public class PropositionPredicate extends PrintablePredicate<Proposition> implem
   public static final PropositionPredicate INSTANCE = new PropositionPredicate();
   
   protected PropositionPredicate() {
-    super(new Object(), emptyList(), () -> "evaluate", Proposition::evaluate);
+    super(new Object(), emptyList(), () -> "evaluate", PropositionPredicate::evaluate);
+  }
+  
+  private static boolean evaluate(Proposition proposition) {
+    Object event = ThincrestEvents.beginStage("check", -1);
+    try {
+      return proposition.evaluate();
+    } finally {
+      ThincrestEvents.end(event);
+    }
   }
   
   @Override
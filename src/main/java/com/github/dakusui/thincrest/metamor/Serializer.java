@@ -0,0 +1,112 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * An interface to convert values to and from bytes, so that they can be stored off heap by {@link Spill}.
+ *
+ * @param <E> Type of values.
+ */
+public interface Serializer<E> {
+  /**
+   * Serializes a value.
+   * The bytes between the position and the limit of the returned buffer are stored.
+   * The returned buffer is not modified.
+   *
+   * @param value A value to be serialized.
+   * @return A buffer that holds the serialized form of the value.
+   */
+  ByteBuffer serialize(E value);
+
+  /**
+   * Deserializes a value from the bytes between the position and the limit of a given buffer.
+   * The buffer is read-only, and it is valid as long as the returned value is reachable.
+   *
+   * @param bytes A buffer that holds a serialized form of a value.
+   * @return The deserialized value.
+   */
+  E deserialize(ByteBuffer bytes);
+
+  /**
+   * A serializer of byte arrays.
+   * A deserialized array is a copy of the stored bytes.
+   */
+  Serializer<byte[]> BYTE_ARRAY = new Serializer<byte[]>() {
+    @Override
+    public ByteBuffer serialize(byte[] value) {
+      return ByteBuffer.wrap(value);
+    }
+
+    @Override
+    public byte[] deserialize(ByteBuffer bytes) {
+      byte[] ret = new byte[bytes.remaining()];
+      bytes.get(ret);
+      return ret;
+    }
+
+    @Override
+    public String toString() {
+      return "BYTE_ARRAY";
+    }
+  };
+
+  /**
+   * A serializer of byte buffers.
+   * A deserialized buffer is a read-only view of the stored bytes, which are not copied onto heap.
+   */
+  Serializer<ByteBuffer> BYTE_BUFFER = new Serializer<ByteBuffer>() {
+    @Override
+    public ByteBuffer serialize(ByteBuffer value) {
+      return value.duplicate();
+    }
+
+    @Override
+    public ByteBuffer deserialize(ByteBuffer bytes) {
+      return bytes.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+      return "BYTE_BUFFER";
+    }
+  };
+
+  /**
+   * Returns a serializer that uses Java's object serialization.
+   *
+   * @param <E> Type of values.
+   * @return A serializer that uses Java's object serialization.
+   */
+  static <E extends Serializable> Serializer<E> javaSerialization() {
+    return new Serializer<E>() {
+      @Override
+      public ByteBuffer serialize(E value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+          out.writeObject(value);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public E deserialize(ByteBuffer bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(bytes))) {
+          return (E) in.readObject();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+
+      @Override
+      public String toString() {
+        return "javaSerialization";
+      }
+    };
+  }
+}
@@ -0,0 +1,146 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A policy to move values off heap.
+ * A value, whose serialized form is larger than `threshold` bytes, is copied to an {@link Arena} and the value itself is released.
+ *
+ * Every value is serialized once to measure its size, even if it is kept on heap after all.
+ * Hence, the cost of the serializer is paid for each value, and a cheap one, such as {@link Serializer#BYTE_ARRAY}, is preferable.
+ * The threshold is applied to each value separately, not to the total size of held values.
+ * That is, values smaller than the threshold are always kept on heap, no matter how many of them are held.
+ *
+ * @param <E> Type of values.
+ */
+public class Spill<E> {
+  private final Serializer<E> serializer;
+  private final int           threshold;
+  private final Arena         arena;
+
+  /**
+   * Creates a policy, which stores values larger than `threshold` bytes in temporary files in the default temporary-file directory.
+   *
+   * @param serializer A serializer of values.
+   * @param threshold  The maximum size of a serialized value kept on heap.
+   */
+  public Spill(Serializer<E> serializer, int threshold) {
+    this(serializer, threshold, new Arena());
+  }
+
+  public Spill(Serializer<E> serializer, int threshold, Arena arena) {
+    Utils.requireArgument(threshold >= 0, "threshold must not be negative: " + threshold);
+    this.serializer = requireNonNull(serializer);
+    this.threshold = threshold;
+    this.arena = requireNonNull(arena);
+  }
+
+  /**
+   * Returns a supplier of a given value.
+   * The value is serialized to measure its size, and if it is larger than the threshold, it is moved off heap.
+   * In that case, the supplier deserializes it each time it is called.
+   *
+   * @param value A value to be held.
+   * @return A supplier of the value.
+   */
+  public Supplier<E> hold(E value) {
+    ByteBuffer bytes = this.serializer.serialize(value);
+    if (bytes.remaining() <= this.threshold)
+      return () -> value;
+    ByteBuffer stored = this.arena.store(bytes);
+    Serializer<E> serializer = this.serializer;
+    return () -> serializer.deserialize(stored.duplicate());
+  }
+
+  @Override
+  public String toString() {
+    return String.format("spill(%s, threshold=%s)", this.serializer, this.threshold);
+  }
+
+  /**
+   * An allocator of off-heap regions backed by memory-mapped temporary files.
+   *
+   * Regions are cut from chunks of `chunkSize` bytes, and a value larger than a chunk gets a file of its own.
+   * Each file is deleted right after it is mapped, so that it doesn't remain even if the JVM is killed.
+   * Its pages can still be written back to the disk by the OS, and they are released when all the regions in the chunk become unreachable.
+   */
+  public static class Arena {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private final Path       directory;
+    private final int        chunkSize;
+    private       ByteBuffer chunk;
+
+    public Arena() {
+      this(Paths.get(System.getProperty("java.io.tmpdir")), DEFAULT_CHUNK_SIZE);
+    }
+
+    public Arena(Path directory, int chunkSize) {
+      Utils.requireArgument(chunkSize > 0, "chunkSize must be positive: " + chunkSize);
+      this.directory = requireNonNull(directory);
+      this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Copies the bytes between the position and the limit of a given buffer to an off-heap region.
+     *
+     * @param bytes A buffer that holds bytes to be stored.
+     * @return A read-only buffer of the region.
+     */
+    public ByteBuffer store(ByteBuffer bytes) {
+      ByteBuffer region = this.allocate(bytes.remaining());
+      region.put(bytes.duplicate());
+      ((Buffer) region).flip();
+      return region.asReadOnlyBuffer();
+    }
+
+    /**
+     * Buffers are cast to `Buffer` when their positions and limits are changed, so that the compiled code runs on Java 8.
+     */
+    private synchronized ByteBuffer allocate(int size) {
+      if (size > this.chunkSize)
+        return map(this.directory, size);
+      if (this.chunk == null || this.chunk.remaining() < size)
+        this.chunk = map(this.directory, this.chunkSize);
+      ByteBuffer ret = this.chunk.slice();
+      ((Buffer) ret).limit(size);
+      ((Buffer) this.chunk).position(this.chunk.position() + size);
+      return ret;
+    }
+
+    private static ByteBuffer map(Path directory, int size) {
+      try {
+        Path file = Files.createTempFile(directory, "thincrest-", ".spill");
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+          return channel.map(READ_WRITE, 0, size);
+        } finally {
+          try {
+            Files.delete(file);
+          } catch (IOException e) {
+            file.toFile().deleteOnExit();
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return String.format("arena(%s, chunkSize=%s)", this.directory, this.chunkSize);
+    }
+  }
+}
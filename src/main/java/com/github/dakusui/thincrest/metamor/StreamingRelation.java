@@ -0,0 +1,385 @@
+package com.github.dakusui.thincrest.metamor;
+
+import com.github.dakusui.thincrest_pcond.forms.Predicates;
+import com.github.dakusui.thincrest_pcond.forms.Printables;
+import org.opentest4j.MultipleFailuresError;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * An interface to check a metamorphic relation over windows of consecutive invocations of a function under test, whose inputs are given as a stream.
+ *
+ * Unlike {@link MetamorphicTestCaseFactory}, the number of inputs doesn't need to be known up front, and the stream can be very long.
+ * Each input is given to the FUT as soon as it is read, and the relation is checked for every window of `windowSize` consecutive IoPairs, sliding by one.
+ * Only the last `windowSize` IoPairs are kept in a ring buffer, and only the windows, for which the relation doesn't hold, are kept for the report.
+ * Since the number of kept windows is bounded by `maxFailures`, the memory used doesn't grow with the length of the stream.
+ *
+ * @param <I> Type of inputs to the FUT.
+ * @param <O> Type of outputs from the FUT.
+ */
+public interface StreamingRelation<I, O> {
+  /**
+   * Examines inputs given by an iterator.
+   *
+   * @param inputs An iterator of inputs.
+   * @return The result of the examination.
+   */
+  Result<I, O> run(Iterator<I> inputs);
+
+  /**
+   * Examines inputs given by a spliterator.
+   *
+   * @param inputs A spliterator of inputs.
+   * @return The result of the examination.
+   */
+  default Result<I, O> run(Spliterator<I> inputs) {
+    return this.run(Spliterators.iterator(inputs));
+  }
+
+  /**
+   * Examines inputs given by a stream.
+   * The stream is consumed sequentially, in its encounter order.
+   *
+   * @param inputs A stream of inputs.
+   * @return The result of the examination.
+   */
+  default Result<I, O> run(Stream<I> inputs) {
+    return this.run(inputs.sequential().iterator());
+  }
+
+  /**
+   * Examines inputs given by a stream, and fails if the relation doesn't hold for any window.
+   *
+   * @param inputs A stream of inputs.
+   * @see Result#assertSuccessful()
+   */
+  default void assertAll(Stream<I> inputs) {
+    this.run(inputs).assertSuccessful();
+  }
+
+  static <I, O> Builder<I, O> forFunctionUnderTest(String name, Function<I, O> fut) {
+    return new Builder<>(Printables.function(name, fut));
+  }
+
+  interface Result<I, O> {
+    /**
+     * Returns the number of inputs given to the FUT.
+     *
+     * @return The number of inputs given to the FUT.
+     */
+    long count();
+
+    /**
+     * Returns failures in the order of their windows.
+     * Failures of the FUT are also included.
+     *
+     * @return Failures.
+     */
+    List<Failure<I, O>> failures();
+
+    default boolean wasSuccessful() {
+      return this.failures().isEmpty();
+    }
+
+    /**
+     * Throws a `MultipleFailuresError`, which holds reports of all the failures, if any.
+     */
+    default void assertSuccessful() {
+      if (!this.wasSuccessful())
+        throw new MultipleFailuresError(
+            String.format("%s failures were found in %s inputs", this.failures().size(), this.count()),
+            this.failures().stream().map(Failure::report).collect(toList()));
+    }
+
+    class Impl<I, O> implements Result<I, O> {
+      private final long                count;
+      private final List<Failure<I, O>> failures;
+
+      public Impl(long count, List<Failure<I, O>> failures) {
+        this.count = count;
+        this.failures = unmodifiableList(requireNonNull(failures));
+      }
+
+      @Override
+      public long count() {
+        return this.count;
+      }
+
+      @Override
+      public List<Failure<I, O>> failures() {
+        return this.failures;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("(count:%s, failures:%s)", this.count, this.failures);
+      }
+    }
+  }
+
+  interface Failure<I, O> {
+    /**
+     * Returns the index of the first input of the failing window in the stream.
+     * If the FUT threw an exception, this is the index of the input given to it.
+     *
+     * @return The index of the first input of the window.
+     */
+    long index();
+
+    /**
+     * Returns IoPairs in the failing window.
+     * If the FUT threw an exception, this holds the preceding IoPairs, which would share a window with the input.
+     * If the stream ended before any window was filled, this holds the IoPairs given so far.
+     *
+     * @return IoPairs in the failing window.
+     */
+    Dataset<IoPair<I, O>> window();
+
+    /**
+     * Returns an exception that holds the full report of the failure.
+     *
+     * @return An exception that holds the full report of the failure.
+     */
+    Throwable report();
+
+    class Impl<I, O> implements Failure<I, O> {
+      private final long                  index;
+      private final Dataset<IoPair<I, O>> window;
+      private final Throwable             report;
+
+      public Impl(long index, Dataset<IoPair<I, O>> window, Throwable report) {
+        this.index = index;
+        this.window = requireNonNull(window);
+        this.report = requireNonNull(report);
+      }
+
+      @Override
+      public long index() {
+        return this.index;
+      }
+
+      @Override
+      public Dataset<IoPair<I, O>> window() {
+        return this.window;
+      }
+
+      @Override
+      public Throwable report() {
+        return this.report;
+      }
+
+      @Override
+      public String toString() {
+        return String.format("%s:%s", this.window.name(), this.report.getMessage());
+      }
+    }
+  }
+
+  class Impl<I, O> implements StreamingRelation<I, O> {
+    private final Function<I, O>                               fut;
+    private final int                                          windowSize;
+    private final Predicate<Dataset<IoPair<I, O>>>             relation;
+    private final Function<Dataset<IoPair<I, O>>, Proposition> propositionFactory;
+    private final String                                       ioVariableName;
+    private final int                                          maxFailures;
+
+    public Impl(Function<I, O> fut, int windowSize, Predicate<Dataset<IoPair<I, O>>> relation, Function<Dataset<IoPair<I, O>>, Proposition> propositionFactory, String ioVariableName, int maxFailures) {
+      Utils.requireArgument(windowSize > 0, "windowSize must be positive: " + windowSize);
+      Utils.requireArgument(maxFailures > 0, "maxFailures must be positive: " + maxFailures);
+      this.fut = requireNonNull(fut);
+      this.windowSize = windowSize;
+      this.relation = requireNonNull(relation);
+      this.propositionFactory = requireNonNull(propositionFactory);
+      this.ioVariableName = requireNonNull(ioVariableName);
+      this.maxFailures = maxFailures;
+    }
+
+    /**
+     * Reads inputs until they are exhausted or `maxFailures` failures are found.
+     * The relation is first evaluated on a view of the ring buffer without tracing.
+     * Only a failing window is copied and evaluated again with tracing, to compose its report.
+     *
+     * An exception thrown by the FUT is counted as a failure, as {@link BatchRunner} does, and windows including the input are not examined.
+     * If the inputs are exhausted before any window is examined, it is also counted as a failure, so that too short a stream doesn't pass silently.
+     */
+    @Override
+    public Result<I, O> run(Iterator<I> inputs) {
+      Object[] ring = new Object[this.windowSize];
+      Window<IoPair<I, O>> view = new Window<>(ring);
+      Dataset<IoPair<I, O>> window = new Dataset.Closed.Impl<>(this.ioVariableName, view);
+      List<Failure<I, O>> failures = new ArrayList<>();
+      long count = 0;
+      long examined = 0;
+      int filled = 0;
+      while (failures.size() < this.maxFailures && inputs.hasNext()) {
+        I input = inputs.next();
+        O output;
+        try {
+          output = this.fut.apply(input);
+        } catch (RuntimeException e) {
+          failures.add(new Failure.Impl<>(count, this.lastIoPairs(ring, count, Math.min(filled, this.windowSize - 1)), new AssertionError(
+              String.format("%s threw an exception for <%s> at %s[%s]: %s", this.fut, input, this.ioVariableName, count, e), e)));
+          count++;
+          filled = 0;
+          continue;
+        }
+        ring[(int) (count % this.windowSize)] = IoPair.create(input, output);
+        count++;
+        if (filled < this.windowSize)
+          filled++;
+        if (filled < this.windowSize)
+          continue;
+        examined++;
+        view.start = (int) (count % this.windowSize);
+        if (!BatchRunner.Impl.passes(this.relation, window)) {
+          long index = count - this.windowSize;
+          Dataset<IoPair<I, O>> failingWindow = new Dataset.Closed.Impl<>(
+              String.format("%s[%s..%s]", this.ioVariableName, index, count - 1),
+              new ArrayList<>(view));
+          failures.add(new Failure.Impl<>(index, failingWindow, BatchRunner.Impl.composeReport(this.toPredicate(), failingWindow)));
+        }
+      }
+      if (examined == 0 && failures.isEmpty())
+        failures.add(new Failure.Impl<>(count - filled, this.lastIoPairs(ring, count, filled), new AssertionError(
+            String.format("No window of %s IoPairs was examined, since only %s inputs were given", this.windowSize, count))));
+      return new Result.Impl<>(count, failures);
+    }
+
+    /**
+     * Copies the last `filled` IoPairs in the ring buffer, which holds `count` inputs so far, into a dataset.
+     */
+    @SuppressWarnings("unchecked")
+    private Dataset<IoPair<I, O>> lastIoPairs(Object[] ring, long count, int filled) {
+      List<IoPair<I, O>> ioPairs = new ArrayList<>(filled);
+      for (long i = count - filled; i < count; i++)
+        ioPairs.add((IoPair<I, O>) ring[(int) (i % this.windowSize)]);
+      return new Dataset.Closed.Impl<>(
+          filled == 0 ? this.ioVariableName : String.format("%s[%s..%s]", this.ioVariableName, count - filled, count - 1),
+          ioPairs);
+    }
+
+    private Predicate<Dataset<IoPair<I, O>>> toPredicate() {
+      return Predicates.transform(this.propositionFactory).check(PropositionPredicate.INSTANCE);
+    }
+
+    /**
+     * A read-only view of a full ring buffer, whose oldest element is at `start`.
+     */
+    private static class Window<E> extends AbstractList<E> {
+      private final Object[] ring;
+      private       int      start;
+
+      Window(Object[] ring) {
+        this.ring = ring;
+      }
+
+      @SuppressWarnings("unchecked")
+      @Override
+      public E get(int index) {
+        if (index < 0 || index >= this.ring.length)
+          throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.ring.length);
+        return (E) this.ring[(this.start + index) % this.ring.length];
+      }
+
+      @Override
+      public int size() {
+        return this.ring.length;
+      }
+    }
+  }
+
+  class Builder<I, O> {
+    /**
+     * The number of failures, at which a relation stops reading inputs, unless specified otherwise.
+     */
+    public static final int DEFAULT_MAX_FAILURES = 10;
+
+    private final Function<I, O> fut;
+    private       int            windowSize;
+    private       String         ioVariableName;
+    private       int            maxFailures;
+
+    public Builder(Function<I, O> fut) {
+      this.fut = requireNonNull(fut);
+      this.windowSize = 2;
+      this.ioVariableName = "io";
+      this.maxFailures = DEFAULT_MAX_FAILURES;
+    }
+
+    /**
+     * Specifies the number of consecutive IoPairs in a window.
+     *
+     * @param windowSize The number of IoPairs in a window.
+     * @return This builder object
+     */
+    public Builder<I, O> windowSize(int windowSize) {
+      Utils.requireArgument(windowSize > 0, "windowSize must be positive: " + windowSize);
+      this.windowSize = windowSize;
+      return this;
+    }
+
+    /**
+     * Lets the relation be checked for every pair of consecutive IoPairs.
+     * This is the default.
+     *
+     * @return This builder object
+     */
+    public Builder<I, O> pairwise() {
+      return this.windowSize(2);
+    }
+
+    public Builder<I, O> ioVariableName(String ioVariableName) {
+      this.ioVariableName = requireNonNull(ioVariableName);
+      return this;
+    }
+
+    /**
+     * Lets the relation stop reading inputs, once `maxFailures` failures are found.
+     * Since failing windows are kept for the report, this bounds the memory used by the relation.
+     * By default, it is {@link Builder#DEFAULT_MAX_FAILURES}.
+     *
+     * @param maxFailures The number of failures, at which the relation stops.
+     * @return This builder object
+     */
+    public Builder<I, O> maxFailures(int maxFailures) {
+      Utils.requireArgument(maxFailures > 0, "maxFailures must be positive: " + maxFailures);
+      this.maxFailures = maxFailures;
+      return this;
+    }
+
+    /**
+     * Lets the relation stop reading inputs on the first failure.
+     *
+     * @return This builder object
+     */
+    public Builder<I, O> failFast() {
+      return this.maxFailures(1);
+    }
+
+    public StreamingRelation<I, O> proposition(Function<Object[], String> formatter, Predicate<Dataset<IoPair<I, O>>> p) {
+      return new Impl<>(
+          this.fut,
+          this.windowSize,
+          p,
+          Proposition.Factory.create(p, formatter, i -> this.ioVariableName + "[" + i + "]", this.windowSize),
+          this.ioVariableName,
+          this.maxFailures);
+    }
+
+    public StreamingRelation<I, O> proposition(String propositionName, Predicate<Dataset<IoPair<I, O>>> p) {
+      return this.proposition(new Proposition.MessageFormatter(propositionName), p);
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.github.dakusui.thincrest.metamor;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Time limits for executions of the FUT in metamorphic test cases.
+ *
+ * Each execution is bounded by the per-invocation timeout and by the time left for the test case, whichever comes first.
+ * The time of a test case is counted from the first execution of the FUT in it.
+ * A test case is identified by the input dataset of its {@link IoContext}, which is shared by all the contexts given to the FUT in the test case, even when they are executed concurrently.
+ * When a limit is exceeded, the thread executing the FUT is interrupted and abandoned, and a {@link FutTimeoutException} is thrown.
+ * The exception aborts the remaining input resolvers of the test case, and it is reported as a failure of the test case.
+ *
+ * To be interrupted and abandoned, the FUT is executed on a thread in a shared pool, not on the caller's thread.
+ * Hence, values of thread-locals set by the caller are not visible to the FUT.
+ * For instance, assertions made inside the FUT use the default validator, even in a {@link com.github.dakusui.thincrest.ValidatorScope} opened by the caller.
+ * Also, the FUT shouldn't rely on thread-locals left by its previous executions, since consecutive executions may run on different threads.
+ *
+ * @see MetamorphicTestCaseFactory.BuilderBase#timeout(Duration)
+ * @see MetamorphicTestCaseFactory.BuilderBase#caseTimeout(Duration)
+ */
+public class Timeouts {
+  private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+    Thread ret = new Thread(r, "thincrest-fut");
+    ret.setDaemon(true);
+    return ret;
+  });
+
+  /**
+   * The start time and the time limit of the execution of the FUT on the current thread, both in nanoseconds.
+   */
+  private static final ThreadLocal<long[]> CURRENT_LIMIT = new ThreadLocal<>();
+
+  private final Duration          invocationTimeout;
+  private final Duration          caseTimeout;
+  private final Map<Object, Long> caseStartTimes = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Creates an object that holds time limits.
+   *
+   * @param invocationTimeout A time limit for each execution of the FUT. `null` for unlimited.
+   * @param caseTimeout       A time limit for all the executions of the FUT in a test case. `null` for unlimited.
+   */
+  public Timeouts(Duration invocationTimeout, Duration caseTimeout) {
+    Utils.requireArgument(invocationTimeout == null || !invocationTimeout.isNegative(), "invocationTimeout must not be negative: " + invocationTimeout);
+    Utils.requireArgument(caseTimeout == null || !caseTimeout.isNegative(), "caseTimeout must not be negative: " + caseTimeout);
+    this.invocationTimeout = invocationTimeout;
+    this.caseTimeout = caseTimeout;
+  }
+
+  /**
+   * Executes a FUT for an input within the time limits.
+   *
+   * @param fut     A FUT to be executed.
+   * @param input   An input to the FUT.
+   * @param context A context of the test case, in which the FUT is executed.
+   * @param <I>     Type of the input.
+   * @param <O>     Type of the output.
+   * @return The output of the FUT.
+   */
+  public <I, O> O apply(Function<I, O> fut, I input, IoContext<?, ?> context) {
+    long limit = Math.min(nanosOf(this.invocationTimeout), this.timeLeftFor(context.input(), System.nanoTime()));
+    if (limit <= 0)
+      throw new FutTimeoutException(String.format("No time was left to execute '%s' for: %s (invocation timeout: %s, case timeout: %s)", fut, input, this.invocationTimeout, this.caseTimeout));
+    long start = System.nanoTime();
+    Future<O> future = EXECUTOR.submit(() -> {
+      CURRENT_LIMIT.set(new long[] { start, limit });
+      try {
+        return fut.apply(input);
+      } finally {
+        CURRENT_LIMIT.remove();
+      }
+    });
+    try {
+      return future.get(limit, NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw new FutTimeoutException(String.format("'%s' didn't finish in %s for: %s (invocation timeout: %s, case timeout: %s)", fut, Duration.ofNanos(limit), input, this.invocationTimeout, this.caseTimeout));
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new FutTimeoutException(String.format("Interrupted while executing '%s' for: %s", fut, input));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Returns nanoseconds left for a test case.
+   * Only differences of values of `System.nanoTime()` are compared, since the values themselves may be negative and may overflow.
+   */
+  private long timeLeftFor(Object testCase, long now) {
+    if (this.caseTimeout == null)
+      return Long.MAX_VALUE;
+    long elapsed = now - this.caseStartTimes.computeIfAbsent(testCase, k -> now);
+    return nanosOf(this.caseTimeout) - Math.max(elapsed, 0);
+  }
+
+  /**
+   * Returns nanoseconds left for the execution of the FUT on the current thread.
+   * Code called by the FUT, which waits for something, can use this not to wait beyond the time limit.
+   *
+   * @return Nanoseconds left, or `Long.MAX_VALUE` if the current thread isn't executing the FUT within time limits.
+   */
+  static long nanosLeft() {
+    long[] limit = CURRENT_LIMIT.get();
+    if (limit == null)
+      return Long.MAX_VALUE;
+    return limit[1] - Math.max(System.nanoTime() - limit[0], 0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("timeouts(invocation=%s, case=%s)", this.invocationTimeout, this.caseTimeout);
+  }
+
+  private static long nanosOf(Duration duration) {
+    if (duration == null)
+      return Long.MAX_VALUE;
+    try {
+      return duration.toNanos();
+    } catch (ArithmeticException e) {
+      return Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * An exception thrown when an execution of the FUT exceeds a time limit.
+   */
+  public static class FutTimeoutException extends RuntimeException {
+    public FutTimeoutException(String message) {
+      super(message);
+    }
+  }
+}
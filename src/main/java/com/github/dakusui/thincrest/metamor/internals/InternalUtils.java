@@ -1,20 +1,433 @@
 package com.github.dakusui.thincrest.metamor.internals;
 
 import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.InputResolver;
 import com.github.dakusui.thincrest.metamor.IoContext;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.Metrics;
+import com.github.dakusui.thincrest_pcond.core.printable.PrintableFunction;
+import com.github.dakusui.thincrest_pcond.forms.Printables;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.stream.Collector;
 
 import static com.github.dakusui.thincrest.metamor.IoContext.Utils.toContextEndomorphicFunction;
+import static java.util.Objects.requireNonNull;
 
 public enum InternalUtils {
   ;
   
   public static <I, O> Function<Dataset<I>, Dataset<O>> createObservableProcessingPipeline(String contextName, Function<IoContext<I, O>, Function<I, O>> mapper, int numItems, IntFunction<String> variableNameFormatter, String outputContextName) {
+    return createObservableProcessingPipeline(contextName, mapper, numItems, variableNameFormatter, outputContextName, IoContext.Utils.toOutputExtractorFunction(contextName));
+  }
+  
+  public static <I, O> Function<Dataset<I>, Dataset<O>> createObservableProcessingPipeline(String contextName, Function<IoContext<I, O>, Function<I, O>> mapper, int numItems, IntFunction<String> variableNameFormatter, String outputContextName, Function<IoContext<I, O>, Dataset<O>> outputExtractor) {
     return IoContext.Utils.<I, O>toContextFunction(contextName, outputContextName)
         .andThen(toContextEndomorphicFunction(mapper, numItems, variableNameFormatter))
         .andThen(IoContext.Utils.toCloseFunction(contextName))
-        .andThen(IoContext.Utils.toOutputExtractorFunction(contextName));
+        .andThen(outputExtractor);
+  }
+  
+  public static <I, O> Function<Dataset<I>, Dataset<O>> createObservableProcessingPipeline(String contextName, Function<IoContext<I, O>, Function<I, O>> mapper, int numItems, IntFunction<String> variableNameFormatter, String outputContextName, Executor executor, Function<? super I, Optional<int[]>> dependencies) {
+    return createObservableProcessingPipeline(contextName, mapper, numItems, variableNameFormatter, outputContextName, executor, dependencies, IoContext.Utils.toOutputExtractorFunction(contextName));
+  }
+  
+  public static <I, O> Function<Dataset<I>, Dataset<O>> createObservableProcessingPipeline(String contextName, Function<IoContext<I, O>, Function<I, O>> mapper, int numItems, IntFunction<String> variableNameFormatter, String outputContextName, Executor executor, Function<? super I, Optional<int[]>> dependencies, Function<IoContext<I, O>, Dataset<O>> outputExtractor) {
+    return IoContext.Utils.<I, O>toContextFunction(contextName, outputContextName)
+        .andThen(toContextEndomorphicFunction(mapper, numItems, variableNameFormatter, executor, dependencies))
+        .andThen(IoContext.Utils.toCloseFunction(contextName))
+        .andThen(outputExtractor);
+  }
+  
+  /**
+   * Returns a function that starts folding IoPairs returned by the FUT.
+   * It wraps a dataset of input resolvers, so that a mapper returned by {@link InternalUtils#toFoldingMapper(Function)} can find the fold through its context.
+   * Dependencies of the input resolvers tell the fold when an IoPair isn't read any more, so that its output can be released.
+   *
+   * @param preformer A function applied to each IoPair before it is accumulated.
+   * @param collector A collector into which preformed values are accumulated.
+   * @return A function that starts folding.
+   */
+  public static <I, O, P, A, R> Function<Dataset<InputResolver<I, O>>, Dataset<InputResolver<I, O>>> toBeginFoldingFunction(Function<? super IoPair<I, O>, ? extends P> preformer, Collector<? super P, A, R> collector) {
+    return ((PrintableFunction<Dataset<InputResolver<I, O>>, Dataset<InputResolver<I, O>>>) Printables.<Dataset<InputResolver<I, O>>, Dataset<InputResolver<I, O>>>function(
+        () -> "begin:fold",
+        items -> new FoldingInput<>(items, new Folding<>(items, preformer, collector)))).makeTrivial();
+  }
+  
+  /**
+   * Returns a mapper, which accumulates each IoPair returned by `mapper` into the fold started by {@link InternalUtils#toBeginFoldingFunction(Function, Collector)} as soon as it is returned.
+   * The index of an IoPair is the size of the output dataset of the context, which is the index of the item in a context started from an empty output.
+   * The output of a returned IoPair is released, once it is accumulated and no input resolver that may read it is left.
+   * If the context isn't folding, IoPairs are not accumulated.
+   *
+   * @param mapper A mapper, whose IoPairs are accumulated.
+   * @return A mapper that accumulates IoPairs.
+   */
+  public static <I, O> Function<IoContext<InputResolver<I, O>, IoPair<I, O>>, Function<InputResolver<I, O>, IoPair<I, O>>> toFoldingMapper(Function<IoContext<InputResolver<I, O>, IoPair<I, O>>, Function<InputResolver<I, O>, IoPair<I, O>>> mapper) {
+    requireNonNull(mapper);
+    return Printables.function(
+        mapper::toString,
+        context -> {
+          Function<InputResolver<I, O>, IoPair<I, O>> ret = mapper.apply(context);
+          if (!(context.input() instanceof FoldingInput))
+            return ret;
+          @SuppressWarnings("unchecked")
+          Folding<I, O, ?, ?, ?> folding = (Folding<I, O, ?, ?, ?>) ((FoldingInput<InputResolver<I, O>>) context.input()).folding;
+          int index = context.output().size();
+          return Printables.function(ret::toString, in -> {
+            Releasable<I, O> out = new Releasable<>(ret.apply(in));
+            folding.accept(index, out);
+            return out;
+          });
+        });
+  }
+  
+  /**
+   * Returns a function that extracts outputs from a context, which carry the result of the fold if the context is folding.
+   *
+   * @param contextName A name of the context.
+   * @return A function to extract outputs.
+   * @see InternalUtils#resultOfFold(Dataset)
+   */
+  public static <I, O> Function<IoContext<I, O>, Dataset<O>> toFoldedOutputExtractorFunction(String contextName) {
+    return Printables.function(
+        () -> "output(" + contextName + ")",
+        context -> context.input() instanceof FoldingInput ?
+            new Folded<>(context.output(), ((FoldingInput<I>) context.input()).folding) :
+            context.output());
+  }
+  
+  /**
+   * Returns a view of `items`, to each of which `preformer` is applied when it is read.
+   * If `items` carries the result of a fold, the view carries it, too, and shows the values preformed by the fold instead of applying `preformer` again.
+   *
+   * @param name      A name of the view.
+   * @param items     Items to be preformed.
+   * @param preformer A function applied to each item.
+   * @return A view of preformed items.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T, P> Dataset<P> preformedView(String name, Dataset<T> items, Function<? super T, ? extends P> preformer) {
+    requireNonNull(preformer);
+    if (!(items instanceof Folded))
+      return new PreformedView<>(name, items, i -> preformer.apply(items.get(i)));
+    Folded<T> folded = (Folded<T>) items;
+    return new Folded<>(new PreformedView<>(name, items, i -> (P) folded.folding.preformed(i)), folded.folding);
+  }
+  
+  public static boolean isFolded(Dataset<?> items) {
+    return items instanceof Folded;
+  }
+  
+  /**
+   * Returns the result of the fold carried by `items`.
+   *
+   * @param items A dataset, which carries the result of a fold.
+   * @return The result of the fold.
+   * @throws IllegalArgumentException `items` doesn't carry the result of a fold.
+   * @see InternalUtils#isFolded(Dataset)
+   */
+  @SuppressWarnings("unchecked")
+  public static <R> R resultOfFold(Dataset<?> items) {
+    if (!isFolded(items))
+      throw new IllegalArgumentException("Not folded: " + items);
+    return (R) ((Folded<?>) items).result;
+  }
+  
+  /**
+   * Preforms each item in `items` and accumulates it into `collector`.
+   * If `executor` is given, items are split into contiguous chunks, whose accumulators are created concurrently and combined in the order of the chunks.
+   *
+   * @param items     Items to be folded.
+   * @param preformer A function applied to each item before it is accumulated.
+   * @param collector A collector into which preformed items are accumulated.
+   * @param executor  An executor on which chunks are accumulated. `null` to fold items sequentially.
+   * @return The result of the collector.
+   */
+  public static <T, P, A, R> R fold(Dataset<T> items, Function<? super T, ? extends P> preformer, Collector<? super P, A, R> collector, Executor executor) {
+    int size = items.size();
+    int numChunks = executor == null ? 1 : Math.max(Math.min(size, Runtime.getRuntime().availableProcessors()), 1);
+    if (numChunks == 1)
+      return collector.finisher().apply(accumulate(items, 0, size, preformer, collector));
+    List<CompletableFuture<A>> chunks = new ArrayList<>(numChunks);
+    for (int i = 0; i < numChunks; i++) {
+      int from = (int) ((long) size * i / numChunks);
+      int to = (int) ((long) size * (i + 1) / numChunks);
+      chunks.add(CompletableFuture.supplyAsync(() -> accumulate(items, from, to, preformer, collector), executor));
+    }
+    A ret = join(chunks.get(0));
+    for (int i = 1; i < numChunks; i++)
+      ret = collector.combiner().apply(ret, join(chunks.get(i)));
+    return collector.finisher().apply(ret);
+  }
+  
+  private static <T, P, A> A accumulate(Dataset<T> items, int from, int to, Function<? super T, ? extends P> preformer, Collector<? super P, A, ?> collector) {
+    A ret = collector.supplier().get();
+    BiConsumer<A, ? super P> accumulator = collector.accumulator();
+    for (int i = from; i < to; i++)
+      accumulator.accept(ret, preformer.apply(items.get(i)));
+    return ret;
+  }
+  
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw e;
+    }
+  }
+  
+  /**
+   * Accumulates IoPairs given in any order into a collector in the order of their indices.
+   * An IoPair given ahead of its preceding ones is preformed right away, but held until they are given.
+   * Preformed values are kept to be shown in the report, but the output of an IoPair is released, once it is accumulated and the last input resolver that may read it is done.
+   */
+  static class Folding<I, O, P, A, R> {
+    private final Function<? super IoPair<I, O>, ? extends P> preformer;
+    private final Collector<? super P, A, R>                  collector;
+    private final Object[]                                    preformed;
+    private final boolean[]                                   given;
+    private final Releasable<?, ?>[]                          ioPairs;
+    private final int[][]                                     releasedAfter;
+    private final A                                           accumulator;
+    private       int                                         next;
+    
+    Folding(Dataset<InputResolver<I, O>> inputResolvers, Function<? super IoPair<I, O>, ? extends P> preformer, Collector<? super P, A, R> collector) {
+      this.preformer = requireNonNull(preformer);
+      this.collector = requireNonNull(collector);
+      this.preformed = new Object[inputResolvers.size()];
+      this.given = new boolean[inputResolvers.size()];
+      this.ioPairs = new Releasable<?, ?>[inputResolvers.size()];
+      this.releasedAfter = releasedAfter(inputResolvers);
+      this.accumulator = collector.supplier().get();
+      this.next = 0;
+    }
+    
+    @SuppressWarnings("unchecked")
+    void accept(int index, Releasable<I, O> ioPair) {
+      P preformed = this.preformer.apply(ioPair);
+      synchronized (this) {
+        this.preformed[index] = preformed;
+        this.ioPairs[index] = ioPair;
+        this.given[index] = true;
+        BiConsumer<A, ? super P> accumulator = this.collector.accumulator();
+        for (; this.next < this.given.length && this.given[this.next]; this.next++) {
+          accumulator.accept(this.accumulator, (P) this.preformed[this.next]);
+          for (int each : this.releasedAfter[this.next]) {
+            this.ioPairs[each].release();
+            this.ioPairs[each] = null;
+          }
+        }
+      }
+    }
+    
+    synchronized Object preformed(int index) {
+      if (!this.given[index])
+        throw new IllegalStateException("Not folded yet: " + index);
+      return this.preformed[index];
+    }
+    
+    synchronized R result() {
+      if (this.next != this.given.length)
+        throw new IllegalStateException(String.format("Only %s of %s items are folded.", this.next, this.given.length));
+      return this.collector.finisher().apply(this.accumulator);
+    }
+    
+    /**
+     * Returns indices of IoPairs, which can be released after the IoPair at each index is accumulated.
+     * An IoPair can be released after the last input resolver that may read it, which is the one itself if no others do.
+     * An input resolver that doesn't declare its dependencies may read any preceding IoPair.
+     */
+    private static int[][] releasedAfter(Dataset<? extends InputResolver<?, ?>> inputResolvers) {
+      int numItems = inputResolvers.size();
+      int[] lastReaders = new int[numItems];
+      int lastUndeclared = -1;
+      for (int i = numItems - 1; i >= 0; i--) {
+        lastReaders[i] = Math.max(i, lastUndeclared);
+        if (lastUndeclared < 0 && !inputResolvers.get(i).dependencies().isPresent())
+          lastUndeclared = i;
+      }
+      for (int i = 0; i < numItems; i++) {
+        int reader = i;
+        inputResolvers.get(i).dependencies().ifPresent(d -> {
+          for (int each : d)
+            lastReaders[each] = Math.max(lastReaders[each], reader);
+        });
+      }
+      int[] counts = new int[numItems];
+      for (int each : lastReaders)
+        counts[each]++;
+      int[][] ret = new int[numItems][];
+      for (int i = 0; i < numItems; i++)
+        ret[i] = new int[counts[i]];
+      for (int i = numItems - 1; i >= 0; i--)
+        ret[lastReaders[i]][--counts[lastReaders[i]]] = i;
+      return ret;
+    }
+  }
+  
+  /**
+   * An IoPair, whose output is dropped once it is folded and no input resolver reads it any more.
+   */
+  static class Releasable<I, O> implements IoPair<I, O> {
+    private final    I                 input;
+    private final    Optional<Metrics> metrics;
+    private volatile IoPair<I, O>      ioPair;
+    
+    Releasable(IoPair<I, O> ioPair) {
+      this.ioPair = requireNonNull(ioPair);
+      this.input = ioPair.input();
+      this.metrics = ioPair.metrics();
+    }
+    
+    @Override
+    public I input() {
+      return this.input;
+    }
+    
+    @Override
+    public O output() {
+      IoPair<I, O> ioPair = this.ioPair;
+      if (ioPair == null)
+        throw new IllegalStateException("The output for " + this.input + " is released, since it is already folded.");
+      return ioPair.output();
+    }
+    
+    @Override
+    public Optional<Metrics> metrics() {
+      return this.metrics;
+    }
+    
+    void release() {
+      this.ioPair = null;
+    }
+    
+    @Override
+    public String toString() {
+      IoPair<I, O> ioPair = this.ioPair;
+      return ioPair == null ?
+          String.format("[%s]=>(released)", this.input) :
+          ioPair.toString();
+    }
+  }
+  
+  private abstract static class DelegatingDataset<E> implements Dataset<E> {
+    final Dataset<E> delegate;
+    
+    DelegatingDataset(Dataset<E> delegate) {
+      this.delegate = requireNonNull(delegate);
+    }
+    
+    @Override
+    public String name() {
+      return this.delegate.name();
+    }
+    
+    @Override
+    public E get(int i) {
+      return this.delegate.get(i);
+    }
+    
+    @Override
+    public int size() {
+      return this.delegate.size();
+    }
+    
+    @Override
+    public Iterator<E> iterator() {
+      return this.delegate.iterator();
+    }
+    
+    @Override
+    public String toString() {
+      return this.delegate.toString();
+    }
+  }
+  
+  private static class FoldingInput<E> extends DelegatingDataset<E> {
+    final Folding<?, ?, ?, ?, ?> folding;
+    
+    FoldingInput(Dataset<E> delegate, Folding<?, ?, ?, ?, ?> folding) {
+      super(delegate);
+      this.folding = requireNonNull(folding);
+    }
+  }
+  
+  private static class Folded<E> extends DelegatingDataset<E> {
+    final Folding<?, ?, ?, ?, ?> folding;
+    final Object                 result;
+    
+    Folded(Dataset<E> delegate, Folding<?, ?, ?, ?, ?> folding) {
+      super(delegate);
+      this.folding = folding;
+      this.result = folding.result();
+    }
+  }
+  
+  private static class PreformedView<P> implements Dataset<P> {
+    private final String                   name;
+    private final Dataset<?>               items;
+    private final IntFunction<? extends P> preformed;
+    
+    PreformedView(String name, Dataset<?> items, IntFunction<? extends P> preformed) {
+      this.name = requireNonNull(name);
+      this.items = requireNonNull(items);
+      this.preformed = requireNonNull(preformed);
+    }
+    
+    @Override
+    public String name() {
+      return this.name;
+    }
+    
+    @Override
+    public P get(int i) {
+      if (i < 0 || i >= this.size())
+        throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.size());
+      return this.preformed.apply(i);
+    }
+    
+    @Override
+    public int size() {
+      return this.items.size();
+    }
+    
+    @Override
+    public Iterator<P> iterator() {
+      return this.asList().iterator();
+    }
+    
+    @Override
+    public String toString() {
+      return this.name + ":" + this.asList();
+    }
+    
+    private List<P> asList() {
+      return new AbstractList<P>() {
+        @Override
+        public P get(int index) {
+          return PreformedView.this.get(index);
+        }
+        
+        @Override
+        public int size() {
+          return PreformedView.this.size();
+        }
+      };
+    }
   }
 }
@@ -19,10 +19,10 @@ import static java.util.Arrays.asList;
 
 @TestClassExpectation(value = {
     @EnsureJUnitResult(type = WasNotSuccessful.class, args = {}),
-    @EnsureJUnitResult(type = RunCountIsEqualTo.class, args = "10"),
+    @EnsureJUnitResult(type = RunCountIsEqualTo.class, args = "14"),
     @EnsureJUnitResult(type = IgnoreCountIsEqualTo.class, args = "0"),
     @EnsureJUnitResult(type = AssumptionFailureCountIsEqualTo.class, args = "3"),
-    @EnsureJUnitResult(type = SizeOfFailuresIsEqualTo.class, args = "5")
+    @EnsureJUnitResult(type = SizeOfFailuresIsEqualTo.class, args = "8")
 })
 public class ThincrestExample {
   @TestMethodExpectation(FAILURE)
@@ -35,6 +35,28 @@ public class ThincrestExample {
     );
   }
   
+  @TestMethodExpectation(PASSING)
+  @Test
+  public void testStringReplayOnFailure() {
+    assertThat(
+        "Hello, World",
+        transform(function("toUpperCase", o -> Objects.toString(o).toUpperCase()))
+            .check(containsString("HELLO")),
+        EvaluationMode.REPLAY_ON_FAILURE
+    );
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testStringReplayOnFailure_2() {
+    assertThat(
+        "Howdy, World",
+        transform(function("toUpperCase", o -> Objects.toString(o).toUpperCase()))
+            .check(containsString("HELLO")),
+        EvaluationMode.REPLAY_ON_FAILURE
+    );
+  }
+
   @TestMethodExpectation(FAILURE)
   @Test
   public void testStream() {
@@ -84,6 +106,44 @@ public class ThincrestExample {
                 )));
   }
   
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void assertAllSalutesFailFast() {
+    assertAll(
+        AllMode.FAIL_FAST,
+        () -> objectValue(new Salute())
+            .invoke("inEnglish")
+            .asString()
+            .length()
+            .then()
+            .greaterThan(0),
+        () -> objectValue(new Salute())
+            .invoke("inJapanese")
+            .asString()
+            .length()
+            .then()
+            .greaterThan(0));
+  }
+  
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void assertAllSalutesConcurrently() {
+    assertAll(
+        concurrentExecutor(),
+        () -> objectValue(new Salute())
+            .invoke("inJapanese")
+            .asString()
+            .length()
+            .then()
+            .greaterThan(0),
+        () -> objectValue(new Salute())
+            .invoke("inEnglish")
+            .asString()
+            .length()
+            .then()
+            .greaterThan(0));
+  }
+  
   @TestMethodExpectation(PASSING)
   @Test
   public void assertSaluteInJapanese() {
@@ -1,25 +1,42 @@
 package com.github.dakusui.thincrest.metamor;
 
 import com.github.dakusui.thincrest.TestAssertions;
+import com.github.dakusui.thincrest.ValidatorScope;
 import com.github.dakusui.thincrest_pcond.core.Evaluator;
 import com.github.dakusui.thincrest_pcond.core.printable.PrintableFunction;
 import com.github.dakusui.thincrest_pcond.forms.Functions;
 import com.github.dakusui.thincrest_pcond.forms.Printables;
-import com.github.dakusui.thincrest_pcond.validator.Validator;
-import org.junit.AfterClass;
-import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExternalResource;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public abstract class MetamorExampleBase {
 
-  @BeforeClass
-  public static void beforeAll() {
-    Validator.reconfigure(b -> b.reportComposer(new MetamorphicReportComposer()));
-  }
+  @Rule
+  public final ExternalResource validatorScope = new ExternalResource() {
+    private ValidatorScope scope;
+
+    @Override
+    protected void before() {
+      this.scope = ValidatorScope.open(b -> b.reportComposer(new MetamorphicReportComposer()));
+    }
+
+    @Override
+    protected void after() {
+      this.scope.close();
+    }
+  };
 
   @Test
   public void testMetamorphicTest4a() {
@@ -37,6 +54,18 @@ public abstract class MetamorExampleBase {
             .toMetamorphicTestPredicate());
   }
 
+  @Test
+  public void testMetamorphicTest4b() {
+    TestAssertions.assertThat(
+        1.23,
+        MetamorphicTestCaseFactory.forDoubleFunction("Math::sin", Math::sin)
+            .<MetamorphicTestCaseFactory.Builder<Double, Double, Double, Object>>makeInputResolversEndomorphic()
+            .addInputResolver((x) -> String.format("πー%s", x), x -> Math.PI - x - ERROR)
+            .transformer(Printables.function("[0] - [1]", DoubleDataset.ofOutputs(ds -> ds.getAsDouble(0) - ds.getAsDouble(1))))
+            .check(makeAcceptObjectAsParameter(isCloseTo(0.0, acceptableError())))
+            .toMetamorphicTestPredicate());
+  }
+
   @Test
   public void testMetamorphicTest1a() {
     TestAssertions.assertThat(
@@ -208,6 +237,20 @@ public abstract class MetamorExampleBase {
             .toMetamorphicTestPredicate());
   }
 
+  @Test
+  public void testMetamorphicTest2b() {
+    /* error */
+    TestAssertions.assertThat(
+        1.23,
+        MetamorphicTestCaseFactory.forFunctionUnderTest("Math::sin", (Double x) -> Math.sin(x + ERROR /* error */))
+            .parallel()
+            .makeInputResolversEndomorphic()
+            .addInputResolver((x) -> String.format("πー%s", x), x -> Math.PI - x)
+            .outputOnly()
+            .proposition("{0}={1}", (Dataset<Double> ds) -> areCloseToEachOther(ds.get(0), ds.get(1), acceptableError()))
+            .toMetamorphicTestPredicate());
+  }
+
   @Test
   public void testMetamorphicTest3a() {
     /* error */
@@ -223,6 +266,174 @@ public abstract class MetamorExampleBase {
             .toMetamorphicTestPredicate());
   }
 
+  @Test
+  public void testMetamorphicTest3b() {
+    /* error */
+    TestAssertions.assertThat(
+        1.23,
+        MetamorphicTestCaseFactory.forFunctionUnderTest("Math::sin", (Double x) -> Math.sin(x + ERROR /* error */))
+            .makeInputResolversEndomorphic()
+            .addInputResolver((x) -> String.format("π/2ー%s", x), x -> Math.PI / 2 - x)
+            .outputOnly()
+            .preform("^2", x -> x * x)
+            .reduce("sum", Collectors.summingDouble(x -> x))
+            .check(makeAcceptObjectAsParameter(isCloseTo(1.0, acceptableError())))
+            .toMetamorphicTestPredicate());
+  }
+
+  @Test
+  public void testMetamorphicTest3d() {
+    /*
+     * Allocation for 2n elements is slightly less than twice as large as n elements, because of the array header, which is negligible for large n.
+     * When acceptableError is 0, the FUT pads every array with a fixed 1MB, whose allocation doesn't scale with n.
+     */
+    int padding = acceptableError() > 0 ? 0 : 131_072;
+    TestAssertions.assertThat(
+        100_000,
+        MetamorphicTestCaseFactory.forFunctionUnderTest("new long[n]", (Integer n) -> new long[n + padding])
+            .measure(3, 5)
+            .makeInputResolversEndomorphic()
+            .addInputResolver((x) -> String.format("2*%s", x), x -> 2 * x)
+            .preformer("allocatedBytes", io -> Metrics.of(io).allocatedBytes())
+            .reduce("[1]/[0]", (Dataset<Long> ds) -> (double) ds.get(1) / ds.get(0))
+            .check(makeAcceptObjectAsParameter(isCloseTo(2.0, 0.01)))
+            .toMetamorphicTestPredicate());
+  }
+
+  @Test
+  public void testMetamorphicTest3c() {
+    /* error */
+    TestAssertions.assertThat(
+        1.23,
+        MetamorphicTestCaseFactory.forFunctionUnderTest("Math::sin", (Double x) -> Math.sin(x + ERROR /* error */))
+            .spillOutputs(Serializer.javaSerialization(), 0)
+            .makeInputResolversEndomorphic()
+            .addInputResolver((x) -> String.format("π/2ー%s", x), x -> Math.PI / 2 - x)
+            .outputOnly()
+            .preform("^2", x -> x * x)
+            .reduce("sum", ds -> ds.stream().mapToDouble(x -> x).sum())
+            .check(makeAcceptObjectAsParameter(isCloseTo(1.0, acceptableError())))
+            .toMetamorphicTestPredicate());
+  }
+
+  @Test
+  public void testMetamorphicTest5a() {
+    /* error */
+    MetamorphicTestCaseFactory.forFunctionUnderTest("Math::sin", (Double x) -> Math.sin(x + ERROR /* error */))
+        .makeInputResolversEndomorphic()
+        .addInputResolver((x) -> String.format("πー%s", x), x -> Math.PI - x)
+        .outputOnly()
+        .proposition("{0}={1}", (Dataset<Double> ds) -> areCloseToEachOther(ds.get(0), ds.get(1), acceptableError()))
+        .batchRunner()
+        .parallel()
+        .build()
+        .assertAll(IntStream.range(0, 1_000).mapToObj(i -> i * 0.01));
+  }
+
+  @Test
+  public void testMetamorphicTest5b() {
+    /* error */
+    MetamorphicTestCaseFactory.forFunctionUnderTest("Math::sin", (Double x) -> Math.sin(x + ERROR /* error */))
+        .makeInputResolversEndomorphic()
+        .addInputResolver((x) -> String.format("πー%s", x), x -> Math.PI - x)
+        .outputOnly()
+        .proposition("{0}={1}", (Dataset<Double> ds) -> areCloseToEachOther(ds.get(0), ds.get(1), acceptableError()))
+        .batchRunner()
+        .parallel()
+        .failFast()
+        .shrinker(x -> x > 0 ? Stream.of(0.0, x / 2) : Stream.empty())
+        .build()
+        .assertAll(IntStream.range(0, 1_000).mapToObj(i -> i * 0.01));
+  }
+
+  @Test
+  public void testMetamorphicTest5c() {
+    /* error */
+    MetamorphicTestCaseFactory.forFunctionUnderTest("Math::sin", (Double x) -> Math.sin(x + ERROR /* error */))
+        .memoize(100)
+        .makeInputResolversEndomorphic()
+        .addInputResolver((x) -> String.format("πー%s", x), x -> Math.PI - x)
+        .outputOnly()
+        .proposition("{0}={1}", (Dataset<Double> ds) -> areCloseToEachOther(ds.get(0), ds.get(1), acceptableError()))
+        .batchRunner()
+        .build()
+        .assertAll(IntStream.range(0, 1_000).mapToObj(i -> (i % 10) * 0.01));
+  }
+
+  @Test
+  public void testMetamorphicTest5e() {
+    /* A FUT, which takes 10ms, is given no time when acceptableError is 0 */
+    MetamorphicTestCaseFactory.forFunctionUnderTest("slowSin", (Double x) -> {
+          sleep(10);
+          return Math.sin(x);
+        })
+        .timeout(Duration.ofMillis((long) (acceptableError() * 1_000_000)))
+        .caseTimeout(Duration.ofSeconds(10))
+        .makeInputResolversEndomorphic()
+        .addInputResolver((x) -> String.format("πー%s", x), x -> Math.PI - x)
+        .outputOnly()
+        .proposition("{0}={1}", (Dataset<Double> ds) -> areCloseToEachOther(ds.get(0), ds.get(1), acceptableError()))
+        .batchRunner()
+        .build()
+        .assertAll(IntStream.range(0, 10).mapToObj(i -> i * 0.01));
+  }
+
+  @Test
+  public void testMetamorphicTest6a() {
+    /* error */
+    StreamingRelation.forFunctionUnderTest("Math::sin", (Double x) -> Math.sin(x + ERROR /* error */))
+        .pairwise()
+        .maxFailures(3)
+        .proposition("output({0})=output({1})", (Dataset<IoPair<Double, Double>> ds) -> areCloseToEachOther(ds.get(0).output(), ds.get(1).output(), acceptableError()))
+        .assertAll(Stream.iterate(1.23, x -> x + 2 * Math.PI).limit(10_000));
+  }
+
+  @Test
+  public void testMetamorphicTest5d() throws IOException {
+    Path file = Files.createTempFile("thincrest-", ".golden");
+    try {
+      Serializer<Double> serializer = Serializer.javaSerialization();
+      try (GoldenDataset.Recorder<Double, Double> recorder = GoldenDataset.recorder(file, serializer, serializer)) {
+        recorder.record(
+            MetamorphicTestCaseFactory.forFunctionUnderTest("Math::sin", (Double x) -> Math.sin(x))
+                .makeInputResolversEndomorphic()
+                .addInputResolver((x) -> String.format("πー%s", x), x -> Math.PI - x)
+                .outputOnly()
+                .proposition("{0}={1}", (Dataset<Double> ds) -> true),
+            IntStream.range(0, 100).mapToObj(i -> i * 0.01));
+      }
+      try (GoldenDataset.Recording<Double, Double> recording = GoldenDataset.open(file, serializer, serializer)) {
+        /* error */
+        recording.check(GoldenDataset.matches("Math::sin", (Double x) -> Math.sin(x + ERROR /* error */), (o, p) -> areCloseToEachOther(o, p, acceptableError())))
+            .assertSuccessful();
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testMetamorphicTest7a() {
+    /* Allocation of new long[n] is O(n), which is not acceptable when acceptableError is 0 */
+    TestAssertions.assertThat(
+        1,
+        Complexity.forFunctionUnderTest("new long[n]", (Integer n) -> new long[n])
+            .scale("times", (Integer unit, Integer n) -> unit * n)
+            .sizes(1_000, 2, 6)
+            .cost("allocatedBytes", Metrics::allocatedBytes)
+            .atMost(acceptableError() > 0 ? Complexity.LINEAR : Complexity.LOGARITHMIC)
+            .toMetamorphicTestPredicate());
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
   private static PrintableFunction<String, String> functionToUpperCase() {
     return ((PrintableFunction<String, String>) Printables.function("toUpperCase", (String s) -> {
       System.out.println("s:" + s);
@@ -261,12 +472,6 @@ public abstract class MetamorExampleBase {
     return Printables.predicate("isEqualTo('hello')", new Ret());
   }
 
-
-  @AfterClass
-  public static void afterAll() {
-    Validator.resetToDefault();
-  }
-
   public static final double ERROR = 0.0000;
 
   public abstract double acceptableError();
@@ -6,14 +6,16 @@ import com.github.dakusui.thincrest.utils.metatest.TestClassExpectation.ResultPr
 import com.github.dakusui.thincrest.utils.metatest.TestMethodExpectation;
 import org.junit.Test;
 
+import java.io.IOException;
+
 import static com.github.dakusui.thincrest.utils.metatest.TestMethodExpectation.Result.FAILURE;
 
 @TestClassExpectation(value = {
     @EnsureJUnitResult(type = WasNotSuccessful.class, args = {}),
-    @EnsureJUnitResult(type = RunCountIsEqualTo.class, args = "13"),
+    @EnsureJUnitResult(type = RunCountIsEqualTo.class, args = "25"),
     @EnsureJUnitResult(type = IgnoreCountIsEqualTo.class, args = "0"),
     @EnsureJUnitResult(type = AssumptionFailureCountIsEqualTo.class, args = "0"),
-    @EnsureJUnitResult(type = SizeOfFailuresIsEqualTo.class, args = "13")
+    @EnsureJUnitResult(type = SizeOfFailuresIsEqualTo.class, args = "25")
 })
 public class MetamorExampleFailing extends MetamorExampleBase{
   @TestMethodExpectation(FAILURE)
@@ -22,6 +24,12 @@ public class MetamorExampleFailing extends MetamorExampleBase{
     super.testMetamorphicTest4a();
   }
 
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest4b() {
+    super.testMetamorphicTest4b();
+  }
+
   @TestMethodExpectation(FAILURE)
   @Test
   public void testMetamorphicTest1a() {
@@ -89,12 +97,78 @@ public class MetamorExampleFailing extends MetamorExampleBase{
     super.testMetamorphicTest2a();
   }
 
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest2b() {
+    super.testMetamorphicTest2b();
+  }
+
   @TestMethodExpectation(FAILURE)
   @Test
   public void testMetamorphicTest3a() {
     super.testMetamorphicTest3a();
   }
 
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest3b() {
+    super.testMetamorphicTest3b();
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest3c() {
+    super.testMetamorphicTest3c();
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest3d() {
+    super.testMetamorphicTest3d();
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest5a() {
+    super.testMetamorphicTest5a();
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest5b() {
+    super.testMetamorphicTest5b();
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest5c() {
+    super.testMetamorphicTest5c();
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest5d() throws IOException {
+    super.testMetamorphicTest5d();
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest5e() {
+    super.testMetamorphicTest5e();
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest6a() {
+    super.testMetamorphicTest6a();
+  }
+
+  @TestMethodExpectation(FAILURE)
+  @Test
+  public void testMetamorphicTest7a() {
+    super.testMetamorphicTest7a();
+  }
+
   public double acceptableError() {
     return 0.000;
   }
@@ -5,7 +5,7 @@ import com.github.dakusui.thincrest.utils.metatest.TestClassExpectation.EnsureJU
 import com.github.dakusui.thincrest.utils.metatest.TestClassExpectation.ResultPredicateFactory.*;
 
 @TestClassExpectation(value = {
-    @EnsureJUnitResult(type = RunCountIsEqualTo.class, args = "13"),
+    @EnsureJUnitResult(type = RunCountIsEqualTo.class, args = "25"),
     @EnsureJUnitResult(type = IgnoreCountIsEqualTo.class, args = "0"),
     @EnsureJUnitResult(type = AssumptionFailureCountIsEqualTo.class, args = "0"),
     @EnsureJUnitResult(type = SizeOfFailuresIsEqualTo.class, args = "0")
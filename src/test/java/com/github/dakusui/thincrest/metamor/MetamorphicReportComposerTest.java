@@ -0,0 +1,244 @@
+package com.github.dakusui.thincrest.metamor;
+
+import com.github.dakusui.thincrest.metamor.MetamorphicReportComposer.Summarizer;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Formattable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.dakusui.thincrest.utils.JfrTestUtils.eventsNamed;
+import static com.github.dakusui.thincrest.utils.JfrTestUtils.recordEvents;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetamorphicReportComposerTest extends TestBase {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testShortValueIsNotSummarized() {
+    assertEquals("[1, 2, 3]", new Summarizer(100).summarize(asList(1, 2, 3)));
+    assertEquals("hello", new Summarizer(100).summarize("hello"));
+  }
+
+  @Test
+  public void testLongStringIsSummarizedByHeadTailAndSize() {
+    String value = repeat('a', 500) + repeat('z', 500);
+
+    String summary = new Summarizer(60).summarize(value);
+
+    assertTrue(summary, summary.length() <= 60);
+    assertTrue(summary, summary.startsWith("aaaa"));
+    assertTrue(summary, summary.endsWith("zzz(size=1000)"));
+    assertTrue(summary, summary.contains("..."));
+  }
+
+  @Test
+  public void testLargeCollectionIsSummarizedByHeadLastElementAndSize() {
+    List<Integer> value = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+
+    String summary = new Summarizer(80).summarize(value);
+
+    assertTrue(summary, summary.length() <= 80);
+    assertTrue(summary, summary.startsWith("[0, 1, 2"));
+    assertTrue(summary, summary.endsWith(", ..., 9999](size=10000)"));
+  }
+
+  @Test
+  public void testDatasetNameIsKeptEvenForSmallestBudget() {
+    Dataset.OnGoing<String> dataset = new Dataset.OnGoing.Impl<>("ds");
+    for (int i = 0; i < 1_000; i++)
+      dataset.add("element-" + i);
+
+    for (int budget : new int[] { 0, 3, 10, Summarizer.MIN_LENGTH }) {
+      String summary = new Summarizer(budget).summarize(dataset.close());
+
+      assertTrue(budget + ":" + summary, summary.length() <= Summarizer.MIN_LENGTH);
+      assertTrue(budget + ":" + summary, summary.startsWith("ds:["));
+      assertTrue(budget + ":" + summary, summary.endsWith("](size=1000)"));
+    }
+  }
+
+  @Test
+  public void testArrayIsSummarizedElementByElement() {
+    String summary = new Summarizer(50).summarize(new int[100]);
+
+    assertTrue(summary, summary.startsWith("[0, 0"));
+    assertTrue(summary, summary.endsWith("](size=100)"));
+  }
+
+  @Test
+  public void testArrayElementIsSummarizedElementByElement() {
+    String summary = new Summarizer(100).summarize(asList(new byte[] { 1, 2 }, new byte[] { 3 }));
+
+    assertEquals("[[1, 2], [3]]", summary);
+  }
+
+  @Test
+  public void testFormattableValueIsSummarizedByHeadTailAndSize() {
+    Formattable value = (formatter, flags, width, precision) -> {
+      for (int i = 0; i < 1_000; i++)
+        formatter.format("%s", i % 10);
+    };
+
+    String summary = new Summarizer(60).summarize(value);
+
+    assertTrue(summary, summary.length() <= 60);
+    assertTrue(summary, summary.startsWith("0123"));
+    assertTrue(summary, summary.endsWith("6789(size=1000)"));
+  }
+
+  @Test
+  public void testArraysAreSpilledElementByElement() {
+    StringWriter writer = new StringWriter();
+    MetamorphicReportComposer composer = new MetamorphicReportComposer.Builder()
+        .spillTo(() -> writer)
+        .build();
+
+    composer.formatValue(new int[] { 1, 2 }, "array");
+    composer.formatValue(asList(new byte[] { 3, 4 }, new Object[] { "a", new long[] { 5 } }), "list");
+
+    assertEquals(String.format("#1: array%n  [0]: 1%n  [1]: 2%n#2: list%n  [0]: [3, 4]%n  [1]: [a, [5]]%n"), writer.toString());
+  }
+
+  @Test
+  public void testValueOnFailingPathIsSpilledWithoutMaxValueLength() {
+    StringWriter writer = new StringWriter();
+    MetamorphicReportComposer composer = new MetamorphicReportComposer.Builder()
+        .spillTo(() -> writer)
+        .build();
+
+    String formatted = composer.formatValue(asList("a", "b"), "label");
+
+    assertTrue(formatted, formatted.endsWith(" (full value: #1)"));
+    assertEquals(String.format("#1: label%n  [0]: a%n  [1]: b%n"), writer.toString());
+  }
+
+  @Test
+  public void testValueNotOnFailingPathOrTrivialIsNotSpilled() {
+    AtomicInteger requested = new AtomicInteger(0);
+    MetamorphicReportComposer composer = new MetamorphicReportComposer.Builder()
+        .maxValueLength(50)
+        .spillTo(() -> {
+          requested.incrementAndGet();
+          return new StringWriter();
+        })
+        .build();
+
+    assertEquals("[a, b]", composer.formatValue(asList("a", "b"), null));
+    assertEquals("123", composer.formatValue(123, "label"));
+    assertEquals(0, requested.get());
+  }
+
+  @Test
+  public void testSpilledValueIsReferredFromSummary() {
+    StringWriter writer = new StringWriter();
+    MetamorphicReportComposer composer = new MetamorphicReportComposer.Builder()
+        .maxValueLength(50)
+        .spillTo(() -> writer)
+        .build();
+
+    String first = composer.formatValue(repeat('x', 1_000), "first");
+    String second = composer.formatValue(repeat('y', 1_000), "second");
+
+    assertTrue(first, first.endsWith("(size=1000) (full value: #1)"));
+    assertTrue(second, second.endsWith("(size=1000) (full value: #2)"));
+    assertTrue(writer.toString().contains(repeat('x', 1_000)));
+    assertTrue(writer.toString().contains("#2: second"));
+  }
+
+  @Test
+  public void testSpillFileIsWrittenAndClosed() throws IOException {
+    Path file = this.temporaryFolder.getRoot().toPath().resolve("spill.txt");
+    try (MetamorphicReportComposer composer = new MetamorphicReportComposer.Builder().spillTo(file).build()) {
+      composer.formatValue("full value", "label");
+    }
+
+    assertEquals(asList("#1: label", "  full value"), Files.readAllLines(file, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testClosingComposerClosesWriterOnlyIfOpened() {
+    AtomicBoolean closed = new AtomicBoolean(false);
+    AtomicInteger requested = new AtomicInteger(0);
+    MetamorphicReportComposer composer = new MetamorphicReportComposer.Builder()
+        .spillTo(() -> {
+          requested.incrementAndGet();
+          return new StringWriter() {
+            @Override
+            public void close() {
+              closed.set(true);
+            }
+          };
+        })
+        .build();
+
+    composer.close();
+    assertEquals(0, requested.get());
+
+    composer.formatValue("value", "label");
+    composer.close();
+    composer.close();
+    assertEquals(1, requested.get());
+    assertTrue(closed.get());
+  }
+
+  @Test
+  public void testSpillWriterIsFlushedForEachValue() {
+    AtomicInteger flushed = new AtomicInteger(0);
+    Writer writer = new StringWriter() {
+      @Override
+      public void flush() {
+        flushed.incrementAndGet();
+      }
+    };
+    MetamorphicReportComposer composer = new MetamorphicReportComposer.Builder().spillTo(() -> writer).build();
+
+    composer.formatValue("v1", "l1");
+    composer.formatValue("v2", "l2");
+
+    assertEquals(2, flushed.get());
+    assertFalse(writer.toString().isEmpty());
+  }
+
+  @Test
+  public void testFormattingIsRecordedAsJfrEvent() {
+    MetamorphicReportComposer composer = new MetamorphicReportComposer.Builder()
+        .maxValueLength(50)
+        .spillTo(StringWriter::new)
+        .build();
+
+    List<RecordedEvent> events = eventsNamed(recordEvents(() -> {
+      composer.formatValue("short", null);
+      composer.formatValue(repeat('x', 1_000), "label");
+    }), "ReportValue");
+
+    assertEquals(2, events.size());
+    assertEquals(5, events.get(0).getInt("length"));
+    assertEquals(-1, events.get(0).getLong("spillId"));
+    assertEquals(1, events.get(1).getLong("spillId"));
+  }
+
+  private static String repeat(char c, int times) {
+    StringBuilder b = new StringBuilder();
+    for (int i = 0; i < times; i++)
+      b.append(c);
+    return b.toString();
+  }
+}
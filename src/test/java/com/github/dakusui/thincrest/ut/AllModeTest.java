@@ -0,0 +1,123 @@
+package com.github.dakusui.thincrest.ut;
+
+import com.github.dakusui.thincrest.TestAssertions;
+import com.github.dakusui.thincrest.TestAssertions.AllMode;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.counting;
+import static com.github.dakusui.thincrest.utils.TestFixtures.statement;
+import static com.github.dakusui.thincrest.utils.TestFixtures.supplier;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class AllModeTest extends TestBase {
+  @Test
+  public void testFailFastDoesNotCreateStatementsAfterFailingOne() {
+    AtomicInteger created = new AtomicInteger(0);
+    AtomicInteger evaluatedFirst = new AtomicInteger(0);
+    AtomicInteger evaluatedSecond = new AtomicInteger(0);
+
+    assertThrows(AssertionError.class, () -> TestAssertions.assertAll(
+        AllMode.FAIL_FAST,
+        supplier(created, "hello", counting(evaluatedFirst, v -> v.startsWith("h"))),
+        supplier(created, "world", counting(evaluatedSecond, v -> v.startsWith("h"))),
+        supplier(created, "!", v -> true)));
+
+    assertEquals(2, created.get());
+    assertEquals(2, evaluatedFirst.get());
+    assertEquals(2, evaluatedSecond.get());
+  }
+
+  @Test
+  public void testFailFastEvaluatesEachStatementOnceIfAllHold() {
+    AtomicInteger created = new AtomicInteger(0);
+    AtomicInteger evaluated = new AtomicInteger(0);
+
+    TestAssertions.assertAll(
+        AllMode.FAIL_FAST,
+        supplier(created, "hello", counting(evaluated, v -> v.startsWith("h"))),
+        supplier(created, "hi", counting(evaluated, v -> v.startsWith("h"))));
+
+    assertEquals(2, created.get());
+    assertEquals(2, evaluated.get());
+  }
+
+  @Test
+  public void testStatementsAreVerifiedConcurrently() {
+    CyclicBarrier barrier = new CyclicBarrier(3);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      TestAssertions.assertAll(
+          executor,
+          () -> statement(await(barrier, "a"), v -> true),
+          () -> statement(await(barrier, "b"), v -> true),
+          () -> statement(await(barrier, "c"), v -> true));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Earlier statements take longer to be created, so that they are completed in the reverse order.
+   */
+  @Test
+  public void testReportKeepsDeclarationOrder() {
+    AtomicInteger evaluated = new AtomicInteger(0);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    AssertionError e;
+    try {
+      e = assertThrows(AssertionError.class, () -> TestAssertions.assertAll(
+          executor,
+          () -> statement(sleep(200, "first-value"), counting(evaluated, v -> true)),
+          () -> statement(sleep(100, "second-value"), counting(evaluated, v -> false)),
+          () -> statement(sleep(0, "third-value"), counting(evaluated, v -> true))));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    String report = e.getMessage();
+    assertTrue(report, report.indexOf("first-value") < report.indexOf("second-value"));
+    assertTrue(report, report.indexOf("second-value") < report.indexOf("third-value"));
+    assertEquals(6, evaluated.get());
+  }
+
+  @Test
+  public void testConcurrentExecutorRunsStatements() {
+    AtomicInteger created = new AtomicInteger(0);
+
+    TestAssertions.assertAll(
+        TestAssertions.concurrentExecutor(),
+        supplier(created, "hello", v -> v.startsWith("h")),
+        supplier(created, "hi", v -> v.startsWith("h")));
+
+    assertEquals(2, created.get());
+  }
+
+  private static <T> T await(CyclicBarrier barrier, T value) {
+    try {
+      barrier.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+      throw new AssertionError("Statements were not created concurrently", e);
+    }
+    return value;
+  }
+
+  private static <T> T sleep(long millis, T value) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+    return value;
+  }
+}
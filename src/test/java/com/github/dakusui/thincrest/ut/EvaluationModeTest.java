@@ -0,0 +1,69 @@
+package com.github.dakusui.thincrest.ut;
+
+import com.github.dakusui.thincrest.TestAssertions;
+import com.github.dakusui.thincrest.TestAssertions.EvaluationMode;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.counting;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class EvaluationModeTest extends TestBase {
+  @Test
+  public void testPassingValueIsEvaluatedOnlyOnce() {
+    AtomicInteger evaluated = new AtomicInteger(0);
+
+    TestAssertions.assertThat("hello", counting(evaluated, (String v) -> v.startsWith("h")), EvaluationMode.REPLAY_ON_FAILURE);
+
+    assertEquals(1, evaluated.get());
+  }
+
+  @Test
+  public void testFailingValueIsReplayedWithTracingOnlyOnce() {
+    AtomicInteger evaluated = new AtomicInteger(0);
+
+    assertThrows(AssertionError.class, () -> TestAssertions.assertThat("world", counting(evaluated, (String v) -> v.startsWith("h")), EvaluationMode.REPLAY_ON_FAILURE));
+
+    assertEquals(2, evaluated.get());
+  }
+
+  /**
+   * How the exception is reported depends on the validator, but the predicate must be replayed only once.
+   */
+  @Test
+  public void testExceptionFromPredicateIsReplayedWithTracing() {
+    AtomicInteger evaluated = new AtomicInteger(0);
+
+    assertThrows(Throwable.class, () -> TestAssertions.assertThat("world", counting(evaluated, (String v) -> {
+      throw new IllegalStateException("boom");
+    }), EvaluationMode.REPLAY_ON_FAILURE));
+
+    assertEquals(2, evaluated.get());
+  }
+
+  /**
+   * The predicate fails only for the first evaluation, which isn't idempotent.
+   */
+  @Test
+  public void testValuePassingOnlyOnReplayIsReported() {
+    AtomicInteger evaluated = new AtomicInteger(0);
+
+    AssertionError e = assertThrows(AssertionError.class, () -> TestAssertions.assertThat("hello", counting(evaluated, (String v) -> evaluated.get() > 1), EvaluationMode.REPLAY_ON_FAILURE));
+
+    assertEquals(2, evaluated.get());
+    assertTrue(e.getMessage(), e.getMessage().contains("passedOnlyOnReplay"));
+  }
+
+  @Test
+  public void testTracedModeEvaluatesPassingValueOnlyOnce() {
+    AtomicInteger evaluated = new AtomicInteger(0);
+
+    TestAssertions.assertThat("hello", counting(evaluated, (String v) -> v.startsWith("h")), EvaluationMode.TRACED);
+
+    assertEquals(1, evaluated.get());
+  }
+}
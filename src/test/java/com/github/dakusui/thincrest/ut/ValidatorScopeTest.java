@@ -0,0 +1,90 @@
+package com.github.dakusui.thincrest.ut;
+
+import com.github.dakusui.thincrest.ValidatorScope;
+import com.github.dakusui.thincrest.metamor.MetamorphicReportComposer;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import com.github.dakusui.thincrest_pcond.validator.ReportComposer;
+import com.github.dakusui.thincrest_pcond.validator.Validator;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ValidatorScopeTest extends TestBase {
+  @Test
+  public void testNestedScopeIsBasedOnEnclosingOneAndRestoresItOnClose() {
+    ReportComposer reportComposer = new MetamorphicReportComposer();
+    Validator global = ValidatorScope.validator();
+
+    try (ValidatorScope outer = ValidatorScope.open(b -> b.reportComposer(reportComposer))) {
+      Validator outerValidator = ValidatorScope.validator();
+      assertNotSame(global, outerValidator);
+
+      try (ValidatorScope inner = ValidatorScope.open(b -> {
+      })) {
+        assertNotSame(outerValidator, ValidatorScope.validator());
+        assertSame(reportComposer, ValidatorScope.validator().configuration().reportComposer());
+      }
+
+      assertSame(outerValidator, ValidatorScope.validator());
+    }
+
+    assertSame(global, ValidatorScope.validator());
+  }
+
+  @Test
+  public void testScopeIsNotEffectiveOnOtherThreads() throws ExecutionException, InterruptedException {
+    try (ValidatorScope scope = ValidatorScope.open(b -> b.reportComposer(new MetamorphicReportComposer()))) {
+      Validator validator = ValidatorScope.validator();
+
+      assertNotSame(validator, CompletableFuture.supplyAsync(ValidatorScope::validator).get());
+    }
+  }
+
+  @Test
+  public void testScopeClosedOnAnotherThreadIsRejected() throws InterruptedException {
+    try (ValidatorScope scope = ValidatorScope.open(b -> {
+    })) {
+      Validator validator = ValidatorScope.validator();
+
+      ExecutionException e = assertThrows(ExecutionException.class, () -> CompletableFuture.runAsync(scope::close).get());
+
+      assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IllegalStateException);
+      assertSame(validator, ValidatorScope.validator());
+    }
+  }
+
+  @Test
+  public void testScopeClosedBeforeInnerOneIsRejected() {
+    Validator global = ValidatorScope.validator();
+    ValidatorScope outer = ValidatorScope.open(b -> {
+    });
+    ValidatorScope inner = ValidatorScope.open(b -> {
+    });
+    Validator innerValidator = ValidatorScope.validator();
+
+    assertThrows(IllegalStateException.class, outer::close);
+    assertSame(innerValidator, ValidatorScope.validator());
+
+    inner.close();
+    outer.close();
+    assertSame(global, ValidatorScope.validator());
+  }
+
+  @Test
+  public void testScopeCanBeClosedMoreThanOnce() {
+    Validator global = ValidatorScope.validator();
+    ValidatorScope scope = ValidatorScope.open(b -> {
+    });
+
+    scope.close();
+    scope.close();
+
+    assertSame(global, ValidatorScope.validator());
+  }
+}
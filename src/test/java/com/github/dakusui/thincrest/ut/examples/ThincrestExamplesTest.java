@@ -22,4 +22,12 @@ public class ThincrestExamplesTest extends TestBase {
   public void testMetarmorExampleFailing() {
     Metatest.verifyTestClass(MetamorExampleFailing.class);
   }
+
+  /**
+   * Each class is verified in its own class loader, and mismatches are reported in the order of the given classes.
+   */
+  @Test
+  public void testAllExamplesConcurrently() {
+    Metatest.verifyTestClasses(ThincrestExample.class, MetamorExamplePassing.class, MetamorExampleFailing.class);
+  }
 }
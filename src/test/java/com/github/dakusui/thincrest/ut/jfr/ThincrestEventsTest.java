@@ -0,0 +1,94 @@
+package com.github.dakusui.thincrest.ut.jfr;
+
+import com.github.dakusui.thincrest.TestAssertions;
+import com.github.dakusui.thincrest.TestAssertions.AllMode;
+import com.github.dakusui.thincrest.TestAssertions.EvaluationMode;
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.Proposition;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import jdk.jfr.consumer.RecordedEvent;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.github.dakusui.thincrest.utils.JfrTestUtils.eventsNamed;
+import static com.github.dakusui.thincrest.utils.JfrTestUtils.recordEvents;
+import static com.github.dakusui.thincrest.utils.TestFixtures.incrementing;
+import static com.github.dakusui.thincrest.utils.TestFixtures.supplier;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ThincrestEventsTest extends TestBase {
+  @Test
+  public void testTracedAssertionEmitsAssertionAndReportEvents() {
+    List<RecordedEvent> events = recordEvents(() -> TestAssertions.assertThat("hello", (String v) -> v.startsWith("h"), EvaluationMode.TRACED));
+
+    RecordedEvent assertion = single(eventsNamed(events, "Assertion"));
+    assertEquals("assertThat", assertion.getString("method"));
+    assertEquals("TRACED", assertion.getString("mode"));
+    assertTrue(assertion.getBoolean("passed"));
+    assertTrue(assertion.getString("site"), assertion.getString("site").contains(ThincrestEventsTest.class.getName()));
+    assertFalse(single(eventsNamed(events, "Report")).getBoolean("replayed"));
+  }
+
+  @Test
+  public void testReplayedAssertionEmitsReportEventOnlyOnFailure() {
+    List<RecordedEvent> passing = recordEvents(() -> TestAssertions.assertThat("hello", (String v) -> v.startsWith("h"), EvaluationMode.REPLAY_ON_FAILURE));
+    List<RecordedEvent> failing = recordEvents(() -> assertThrows(AssertionError.class, () -> TestAssertions.assertThat("world", (String v) -> v.startsWith("h"), EvaluationMode.REPLAY_ON_FAILURE)));
+
+    assertTrue(eventsNamed(passing, "Report").isEmpty());
+    assertTrue(single(eventsNamed(failing, "Report")).getBoolean("replayed"));
+    assertFalse(single(eventsNamed(failing, "Assertion")).getBoolean("passed"));
+  }
+
+  @Test
+  public void testFailFastAssertAllEmitsAssertionAndReportEvents() {
+    List<RecordedEvent> events = recordEvents(() -> assertThrows(AssertionError.class, () -> TestAssertions.assertAll(
+        AllMode.FAIL_FAST,
+        supplier("hello", v -> true),
+        supplier("world", v -> false))));
+
+    RecordedEvent assertion = single(eventsNamed(events, "Assertion"));
+    assertEquals("assertAll", assertion.getString("method"));
+    assertEquals("FAIL_FAST", assertion.getString("mode"));
+    assertFalse(assertion.getBoolean("passed"));
+    assertTrue(single(eventsNamed(events, "Report")).getBoolean("replayed"));
+  }
+
+  @Test
+  public void testConcurrentAssertAllEmitsAssertionEvent() {
+    List<RecordedEvent> events = recordEvents(() -> TestAssertions.assertAll(
+        Runnable::run,
+        supplier("hello", v -> true),
+        supplier("world", v -> true)));
+
+    RecordedEvent assertion = single(eventsNamed(events, "Assertion"));
+    assertEquals("assertAll", assertion.getString("method"));
+    assertEquals("CONCURRENT", assertion.getString("mode"));
+    assertTrue(assertion.getBoolean("passed"));
+  }
+
+  @Test
+  public void testMetamorphicTestCaseEmitsStageEvents() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = incrementing("twice", x -> x * 2)
+        .outputOnly()
+        .proposition("{0}<{1}", (Dataset<Integer> ds) -> ds.get(0) < ds.get(1));
+
+    List<RecordedEvent> events = recordEvents(() -> assertTrue(factory.toMetamorphicTestPredicate().test(1)));
+
+    List<String> stages = eventsNamed(events, "MetamorphicStage").stream()
+        .map(each -> each.getString("stage"))
+        .collect(toList());
+    assertTrue(stages.toString(), stages.contains("check"));
+    assertTrue(stages.toString(), stages.stream().anyMatch(each -> each.startsWith("begin:")));
+  }
+
+  private static RecordedEvent single(List<RecordedEvent> events) {
+    assertEquals(events.toString(), 1, events.size());
+    return events.get(0);
+  }
+}
@@ -0,0 +1,115 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.BatchRunner;
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.Proposition;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.counting;
+import static com.github.dakusui.thincrest.utils.TestFixtures.incrementing;
+import static org.junit.Assert.assertEquals;
+
+public class BatchRunnerTest extends TestBase {
+  @Test
+  public void testCountIsNumberOfExaminedValuesWhenStoppedOnFailure() {
+    Set<Integer> examined = ConcurrentHashMap.newKeySet();
+    BatchRunner<Integer> runner = new BatchRunner.Impl<>(recording(examined, x -> x < 10), false, 1, x -> Stream.empty(), 0);
+
+    BatchRunner.Result<Integer> result = runner.run(IntStream.range(0, 100).boxed());
+
+    assertEquals(11, result.count());
+    assertEquals(11, examined.size());
+  }
+
+  @Test
+  public void testCountIsNumberOfExaminedValuesInParallel() {
+    Set<Integer> examined = ConcurrentHashMap.newKeySet();
+    BatchRunner<Integer> runner = new BatchRunner.Impl<>(recording(examined, x -> x % 2 == 0), true, 3, x -> Stream.empty(), 0);
+
+    BatchRunner.Result<Integer> result = runner.run(IntStream.range(0, 1_000_000).boxed());
+
+    assertEquals(3, result.failures().size());
+    assertEquals(examined.size(), result.count());
+  }
+
+  @Test
+  public void testCountIsNumberOfAllValuesUnlessStopped() {
+    BatchRunner<Integer> runner = new BatchRunner.Impl<>(x -> x % 2 == 0, true);
+
+    BatchRunner.Result<Integer> result = runner.run(IntStream.range(0, 1_000).boxed());
+
+    assertEquals(1_000, result.count());
+    assertEquals(500, result.failures().size());
+  }
+
+  @Test
+  public void testFailingValueIsShrunkToSmallestCounterexample() {
+    BatchRunner<Integer> runner = new BatchRunner.Impl<>(x -> x < 37, false, 1, x -> Stream.of(x / 2, x - 1), 1_000);
+
+    BatchRunner.Result<Integer> result = runner.run(Stream.of(1_000));
+
+    assertEquals(1, result.failures().size());
+    assertEquals(1_000, (int) result.failures().get(0).sourceValue());
+    assertEquals(37, (int) result.failures().get(0).shrunkValue());
+  }
+
+  @Test
+  public void testShrinkingStopsAfterMaxShrinkSteps() {
+    BatchRunner<Integer> runner = new BatchRunner.Impl<>(x -> x < 37, false, 1, x -> Stream.of(x - 1), 10);
+
+    BatchRunner.Result<Integer> result = runner.run(Stream.of(1_000));
+
+    assertEquals(990, (int) result.failures().get(0).shrunkValue());
+  }
+
+  /**
+   * A failing value is evaluated once without tracing, and only once more with tracing to compose its report.
+   */
+  @Test
+  public void testFailingValueIsEvaluatedOnlyOnceMoreForReport() {
+    AtomicInteger evaluated = new AtomicInteger(0);
+    BatchRunner<Integer> runner = new BatchRunner.Impl<>(counting(evaluated, x -> x < 10), false);
+
+    BatchRunner.Result<Integer> result = runner.run(Stream.of(1, 20, 2));
+
+    assertEquals(1, result.failures().size());
+    assertEquals(4, evaluated.get());
+  }
+
+  @Test
+  public void testFailingValueIsShrunkThroughFactory() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = incrementing("capped", x -> Math.min(x, 36))
+        .outputOnly()
+        .proposition("{0}<{1}", (Dataset<Integer> ds) -> ds.get(0) < ds.get(1));
+    BatchRunner<Integer> runner = BatchRunner.forFactory(factory)
+        .failFast()
+        .shrinker(x -> Stream.of(x / 2, x - 1))
+        .build();
+
+    BatchRunner.Result<Integer> result = runner.run(Stream.of(0, 10, 1_000, 2_000));
+
+    assertEquals(1, result.failures().size());
+    assertEquals(1_000, (int) result.failures().get(0).sourceValue());
+    assertEquals(36, (int) result.failures().get(0).shrunkValue());
+  }
+
+  /**
+   * Records values given to `predicate`.
+   * Values are recorded in a set, since failing ones are evaluated again to compose reports.
+   */
+  static <X> Predicate<X> recording(Set<X> examined, Predicate<X> predicate) {
+    return x -> {
+      examined.add(x);
+      return predicate.test(x);
+    };
+  }
+}
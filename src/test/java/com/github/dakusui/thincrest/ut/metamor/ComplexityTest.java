@@ -0,0 +1,74 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Complexity;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class ComplexityTest extends TestBase {
+  private static final long[] SIZES = { 1_000, 2_000, 4_000, 8_000, 16_000, 32_000 };
+
+  @Test
+  public void testEachClassIsFoundFromCostsWithOverhead() {
+    for (Complexity each : Complexity.values())
+      assertEquals(each, Complexity.bestFit(SIZES, costs(n -> 50 + 3 * each.apply(n))).complexity());
+  }
+
+  @Test
+  public void testInterceptAndCoefficientAreRecovered() {
+    Complexity.Fit fit = Complexity.LINEAR.fit(SIZES, costs(n -> 50 + 3 * n));
+
+    assertEquals(50, fit.intercept(), 1e-6);
+    assertEquals(3, fit.coefficient(), 1e-9);
+    assertEquals(0, fit.rms(), 1e-9);
+  }
+
+  @Test
+  public void testConstantCostsAreFittedToTheirMean() {
+    Complexity.Fit fit = Complexity.CONSTANT.fit(SIZES, new long[] { 9, 11, 9, 11, 9, 11 });
+
+    assertEquals(10, fit.intercept(), 1e-9);
+    assertEquals(0, fit.coefficient(), 0);
+  }
+
+  /**
+   * With noise of ±1%, a higher class may fit slightly better than the linear one, but it must not be chosen.
+   */
+  @Test
+  public void testLinearCostsWithNoiseAreNotReportedAsHigherClass() {
+    long[] costs = costs(n -> 3 * n);
+    for (int i = 0; i < costs.length; i++)
+      costs[i] += (i % 2 == 0 ? 1 : -1) * costs[i] / 100;
+
+    assertEquals(Complexity.LINEAR, Complexity.bestFit(SIZES, costs).complexity());
+  }
+
+  @Test
+  public void testLinearithmicCostsAreNotReportedAsLinear() {
+    assertEquals(Complexity.LINEARITHMIC, Complexity.bestFit(SIZES, costs(n -> 3 * Complexity.LINEARITHMIC.apply(n))).complexity());
+  }
+
+  @Test
+  public void testClassWithSmallestErrorIsChosenWithoutTolerance() {
+    long[] costs = costs(n -> 3 * Complexity.LINEARITHMIC.apply(n));
+
+    assertEquals(Complexity.LINEARITHMIC, Complexity.bestFit(SIZES, costs, 0).complexity());
+    assertEquals(Complexity.LINEAR, Complexity.bestFit(SIZES, costs, 0.1).complexity());
+  }
+
+  @Test
+  public void testPointsOfDifferentLengthsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> Complexity.LINEAR.fit(SIZES, new long[] { 1 }));
+  }
+
+  private static long[] costs(DoubleUnaryOperator cost) {
+    long[] ret = new long[SIZES.length];
+    for (int i = 0; i < SIZES.length; i++)
+      ret[i] = Math.round(cost.applyAsDouble(SIZES[i]));
+    return ret;
+  }
+}
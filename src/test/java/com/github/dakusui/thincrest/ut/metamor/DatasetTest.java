@@ -0,0 +1,60 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class DatasetTest extends TestBase {
+  /**
+   * Elements are added until the buffer grows, after the view is taken.
+   */
+  @Test
+  public void testViewTakenBeforeLaterAddKeepsItsContents() {
+    Dataset.OnGoing<Integer> values = new Dataset.OnGoing.Impl<>("x");
+    values.add(1).add(2);
+
+    Dataset<Integer> closed = values.close();
+    Dataset.OnGoing<Integer> copied = new Dataset.OnGoing.Impl<>("y", values);
+    for (int i = 3; i <= 20; i++)
+      values.add(i);
+
+    assertEquals(asList(1, 2), toList(closed));
+    assertEquals(asList(1, 2), toList(copied));
+    assertEquals(2, copied.last().intValue());
+    assertThrows(IndexOutOfBoundsException.class, () -> copied.get(2));
+    assertEquals(20, values.size());
+  }
+
+  /**
+   * `first` and `second` share the buffer of `base`.
+   * Only the first one added to appends to the shared buffer, and the others copy their elements before adding.
+   */
+  @Test
+  public void testViewsOfSameBufferDoNotInterfere() {
+    Dataset.OnGoing<Integer> base = new Dataset.OnGoing.Impl<>("base");
+    base.add(1).add(2);
+    Dataset.OnGoing<Integer> first = new Dataset.OnGoing.Impl<>("first", base);
+    Dataset.OnGoing<Integer> second = new Dataset.OnGoing.Impl<>("second", base);
+
+    first.add(3);
+    second.add(4).add(5);
+    base.add(6);
+    first.add(7);
+
+    assertEquals(asList(1, 2, 6), toList(base));
+    assertEquals(asList(1, 2, 3, 7), toList(first));
+    assertEquals(asList(1, 2, 4, 5), toList(second));
+    assertEquals(asList(1, 2, 3, 7), toList(first.close()));
+  }
+
+  private static List<Integer> toList(Dataset<Integer> dataset) {
+    return dataset.stream().collect(Collectors.toList());
+  }
+}
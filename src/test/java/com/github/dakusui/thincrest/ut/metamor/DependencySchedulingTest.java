@@ -0,0 +1,133 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.InputResolver;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.execute;
+import static com.github.dakusui.thincrest.utils.TestFixtures.inputs;
+import static com.github.dakusui.thincrest.utils.TestFixtures.outputs;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class DependencySchedulingTest extends TestBase {
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdownExecutor() {
+    this.executor.shutdownNow();
+  }
+
+  @Test
+  public void testChainedResolversReadOutputsOfTheirPredecessors() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = MetamorphicTestCaseFactory.forFunctionUnderTest("timesTen", (Integer x) -> x * 10)
+        .parallel(this.executor)
+        .<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>>makeInputResolversEndomorphic()
+        .addInputResolver(x -> "out[0]+1", (x, ds) -> ds.get(0).output() + 1, 0)
+        .addInputResolver(x -> "out[1]*2", (x, ds) -> ds.get(1).output() * 2, 1)
+        .check("alwaysTrue", v -> true);
+
+    Dataset<IoPair<Integer, Integer>> ioPairs = execute(factory, 3);
+
+    assertEquals(asList(3, 31, 620), inputs(ioPairs));
+    assertEquals(asList(30, 310, 6200), outputs(ioPairs));
+  }
+
+  @Test
+  public void testIndependentResolversRunConcurrently() {
+    CyclicBarrier barrier = new CyclicBarrier(3);
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = MetamorphicTestCaseFactory.forFunctionUnderTest("awaitOthers", (Integer x) -> {
+          await(barrier);
+          return x;
+        })
+        .parallel(this.executor)
+        .<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>>makeInputResolversEndomorphic()
+        .addInputResolver(x -> "x+1", x -> x + 1)
+        .addInputResolver(x -> "x+2", x -> x + 2)
+        .check("alwaysTrue", v -> true);
+
+    assertEquals(asList(0, 1, 2), outputs(execute(factory, 0)));
+  }
+
+  /**
+   * The FUT blocks for the input `1` until it is called for the input `2`, which is resolved from the output for `0`.
+   * If the last resolver waited for all the preceding ones, this test would time out.
+   */
+  @Test
+  public void testResolverWaitsOnlyForDeclaredDependencies() {
+    CountDownLatch latch = new CountDownLatch(1);
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = MetamorphicTestCaseFactory.forFunctionUnderTest("blockOnOne", (Integer x) -> {
+          if (x == 1)
+            assertTrue("Timed out waiting for the input 2", await(latch));
+          if (x == 2)
+            latch.countDown();
+          return x;
+        })
+        .parallel(this.executor)
+        .<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>>makeInputResolversEndomorphic()
+        .addInputResolver(x -> "1", x -> 1)
+        .addInputResolver(x -> "out[0]+2", (x, ds) -> ds.get(0).output() + 2, 0)
+        .check("alwaysTrue", v -> true);
+
+    assertEquals(asList(0, 1, 2), outputs(execute(factory, 0)));
+  }
+
+  @Test
+  public void testDependencyOnFollowingResolverIsRejectedByBuilder() {
+    InputResolver.Sequence.Factory.Builder<Integer, Integer, Integer> b = new InputResolver.Sequence.Factory.Builder<>("input", "x");
+    b.function(x -> "x", x -> x);
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> b.function(x -> "out[1]", (x, ds) -> ds.get(1).output(), 1));
+
+    assertTrue(e.getMessage(), e.getMessage().contains("[0, 1)"));
+  }
+
+  @Test
+  public void testOutOfRangeDependencyIsRejectedBeforeExecution() {
+    List<Function<? super Integer, ? extends InputResolver<Integer, Integer>>> resolvers = Arrays.asList(
+        x -> new InputResolver.Impl<>(() -> "x", ds -> x, new int[0]),
+        x -> new InputResolver.Impl<>(() -> "out[5]", ds -> ds.get(5).output(), new int[] { 5 }));
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = MetamorphicTestCaseFactory.forFunctionUnderTest("identity", (Integer x) -> x)
+        .parallel(this.executor)
+        .<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>, Integer>sourceValueType((Integer) null)
+        .inputResolverSequenceFactory(new InputResolver.Sequence.Factory.Impl<>("input", resolvers))
+        .check("alwaysTrue", v -> true);
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> execute(factory, 0));
+
+    assertTrue(e.getMessage(), e.getMessage().contains("depends on index 5, which is not in [0, 1)"));
+  }
+
+  private static void await(CyclicBarrier barrier) {
+    try {
+      barrier.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+      throw new AssertionError("Resolvers were not executed concurrently", e);
+    }
+  }
+
+  private static boolean await(CountDownLatch latch) {
+    try {
+      return latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
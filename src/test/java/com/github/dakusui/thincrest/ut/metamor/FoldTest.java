@@ -0,0 +1,176 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.internals.InternalUtils;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.execute;
+import static com.github.dakusui.thincrest.utils.TestFixtures.incrementing;
+import static com.github.dakusui.thincrest.utils.TestFixtures.sleep;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class FoldTest extends TestBase {
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdownExecutor() {
+    this.executor.shutdownNow();
+  }
+
+  @Test
+  public void testEachIoPairIsPreformedAsSoonAsFutReturnsIt() {
+    List<String> calls = new CopyOnWriteArrayList<>();
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = incrementing("identity", x -> {
+          calls.add("fut:" + x);
+          return x;
+        })
+        .addInputResolver(x -> String.format("%s+2", x), x -> x + 2)
+        .outputOnly()
+        .preform("record", x -> {
+          calls.add("preform:" + x);
+          return x;
+        })
+        .reduce("sum", Collectors.summingInt(x -> x))
+        .check("isSix", v -> v.equals(6));
+
+    Dataset<IoPair<Integer, Integer>> ioPairs = execute(factory, 1);
+
+    assertEquals(asList("fut:1", "preform:1", "fut:2", "preform:2", "fut:3", "preform:3"), calls);
+    assertEquals(6, factory.metamorphicTransformer().apply(ioPairs));
+  }
+
+  @Test
+  public void testConcurrentFoldKeepsResolverOrderEvenIfLaterOnesFinishFirst() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> parallel = factory(true);
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> sequential = factory(false);
+
+    Object result = parallel.metamorphicTransformer().apply(execute(parallel, 0));
+
+    assertEquals("0,10,20,30", result);
+    assertEquals(sequential.metamorphicTransformer().apply(execute(sequential, 0)), result);
+  }
+
+  @Test
+  public void testReducerFoldsIoPairsNotGivenByExecutor() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = factory(false);
+    Dataset.OnGoing<IoPair<Integer, Integer>> ioPairs = new Dataset.OnGoing.Impl<>("io");
+    ioPairs.add(IoPair.create(1, 1));
+    ioPairs.add(IoPair.create(2, 2));
+
+    assertEquals("1,2", factory.metamorphicTransformer().apply(ioPairs.close()));
+  }
+
+  @Test
+  public void testPreformedViewPreformsValuesOnlyWhenRendered() {
+    AtomicInteger calls = new AtomicInteger(0);
+    Dataset.OnGoing<Integer> items = new Dataset.OnGoing.Impl<>("x");
+    items.add(1);
+    items.add(2);
+
+    Dataset<Integer> view = InternalUtils.preformedView("p", items.close(), (Integer x) -> {
+      calls.incrementAndGet();
+      return x * 10;
+    });
+
+    assertEquals(0, calls.get());
+    assertFalse(InternalUtils.isFolded(view));
+    assertEquals("p:[10, 20]", view.toString());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testFoldedItemsCarryResultIntoPreformedView() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = factory(false);
+
+    Dataset<IoPair<Integer, Integer>> ioPairs = execute(factory, 0);
+
+    assertTrue(InternalUtils.isFolded(ioPairs));
+    assertEquals("0,10,20,30", InternalUtils.resultOfFold(InternalUtils.preformedView("p", ioPairs, IoPair::output)));
+  }
+
+  @Test
+  public void testOutputIsReleasedOnceFoldedIfNoResolverReadsIt() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = factory(false);
+
+    Dataset<IoPair<Integer, Integer>> ioPairs = execute(factory, 0);
+
+    assertEquals(0, (int) ioPairs.get(0).input());
+    assertEquals("[0]=>(released)", ioPairs.get(0).toString());
+    assertThrows(IllegalStateException.class, () -> ioPairs.get(0).output());
+  }
+
+  /**
+   * The third resolver reads the output of the first one, which must be kept until then, even if it is folded before.
+   */
+  @Test
+  public void testOutputIsKeptUntilLastResolverReadingItIsDone() {
+    for (boolean parallel : new boolean[] { false, true }) {
+      MetamorphicTestCaseFactory.Builder<Object, Integer, Integer, Object> b = MetamorphicTestCaseFactory.forFunctionUnderTest("timesTen", (Integer x) -> x * 10);
+      if (parallel)
+        b.parallel(this.executor);
+      MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = incrementing(b)
+          .addInputResolver(x -> String.format("out[0]+%s", x), (Integer x, Dataset<IoPair<Integer, Integer>> ds) -> ds.get(0).output() + x, 0)
+          .outputOnly()
+          .reduce("joining", Collectors.mapping(Object::toString, Collectors.joining(",")))
+          .check("isNotEmpty", v -> !v.toString().isEmpty());
+
+      assertEquals("10,20,110", factory.metamorphicTransformer().apply(execute(factory, 1)));
+    }
+  }
+
+  @Test
+  public void testPreformedViewOfFoldShowsValuesPreformedByFold() {
+    AtomicInteger calls = new AtomicInteger(0);
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory = incrementing("identity", x -> x)
+        .outputOnly()
+        .preform("timesTen", x -> {
+          calls.incrementAndGet();
+          return x * 10;
+        })
+        .reduce("sum", Collectors.summingInt(x -> x))
+        .check("isThirty", v -> v.equals(30));
+
+    Dataset<IoPair<Integer, Integer>> ioPairs = execute(factory, 1);
+    Dataset<Integer> view = InternalUtils.preformedView("p", ioPairs, (IoPair<Integer, Integer> io) -> {
+      throw new AssertionError("preformed again");
+    });
+
+    assertEquals("p:[10, 20]", view.toString());
+    assertEquals(30, factory.metamorphicTransformer().apply(ioPairs));
+    assertEquals(2, calls.get());
+  }
+
+  /**
+   * The FUT sleeps longer for earlier inputs, so that the later ones finish first when executed concurrently.
+   * Since joining is not commutative, accumulating them in completion order would give a different result.
+   */
+  private MetamorphicTestCaseFactory<Integer, Integer, Integer, Object> factory(boolean parallel) {
+    MetamorphicTestCaseFactory.Builder<Object, Integer, Integer, Object> b = MetamorphicTestCaseFactory.forFunctionUnderTest("slowTimesTen", (Integer x) -> {
+      sleep((4 - x % 4) * 20L);
+      return x * 10;
+    });
+    if (parallel)
+      b.parallel(this.executor);
+    return incrementing(b)
+        .addInputResolver(x -> String.format("%s+2", x), x -> x + 2)
+        .addInputResolver(x -> String.format("%s+3", x), x -> x + 3)
+        .outputOnly()
+        .reduce("joining", Collectors.mapping(Object::toString, Collectors.joining(",")))
+        .check("isNotEmpty", v -> !v.toString().isEmpty());
+  }
+}
@@ -0,0 +1,222 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.GoldenDataset;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.Proposition;
+import com.github.dakusui.thincrest.metamor.Serializer;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.execute;
+import static com.github.dakusui.thincrest.utils.TestFixtures.inputs;
+import static com.github.dakusui.thincrest.utils.TestFixtures.outputs;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class GoldenDatasetTest extends TestBase {
+  private static final Serializer<Integer> INTEGER = Serializer.javaSerialization();
+
+  private Path file;
+
+  @Before
+  public void createFile() throws IOException {
+    this.file = Files.createTempFile("thincrest-", ".golden");
+  }
+
+  @After
+  public void deleteFile() throws IOException {
+    Files.deleteIfExists(this.file);
+  }
+
+  @Test
+  public void testWrittenDatasetsAreReplayed() throws IOException {
+    try (GoldenDataset.Recorder<Integer, Integer> recorder = GoldenDataset.recorder(this.file, INTEGER, INTEGER)) {
+      recorder.write(dataset("a", 1, 10, 2, 20));
+      recorder.write(dataset("empty"));
+      recorder.write(dataset("b", 3, 30));
+    }
+
+    try (GoldenDataset.Recording<Integer, Integer> recording = GoldenDataset.open(this.file, INTEGER, INTEGER)) {
+      assertEquals(3, recording.size());
+      assertEquals(asList("a", "empty", "b"), recording.stream().map(Dataset::name).collect(Collectors.toList()));
+      assertEquals(asList(1, 2), inputs(recording.get(0)));
+      assertEquals(asList(10, 20), outputs(recording.get(0)));
+      assertEquals(0, recording.get(1).size());
+      assertEquals(asList(3), inputs(recording.get(2)));
+      assertEquals(asList(30), outputs(recording.get(2)));
+    }
+  }
+
+  @Test
+  public void testRecordedDatasetsAreEqualToExecutedOnes() throws IOException {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = MetamorphicTestCaseFactory.forFunctionUnderTest("square", (Integer x) -> x * x)
+        .<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>>makeInputResolversEndomorphic()
+        .addInputResolver(x -> String.format("-%s", x), x -> -x)
+        .outputOnly()
+        .proposition("{0}={1}", (Dataset<Integer> ds) -> ds.get(0).equals(ds.get(1)));
+    List<Integer> sourceValues = asList(0, 1, 2, 3, 4);
+    try (GoldenDataset.Recorder<Integer, Integer> recorder = GoldenDataset.recorder(this.file, INTEGER, INTEGER)) {
+      recorder.record(factory, sourceValues.stream());
+    }
+
+    try (GoldenDataset.Recording<Integer, Integer> recording = GoldenDataset.open(this.file, INTEGER, INTEGER)) {
+      assertEquals(sourceValues.size(), recording.size());
+      for (int i = 0; i < sourceValues.size(); i++) {
+        Dataset<IoPair<Integer, Integer>> expected = execute(factory, sourceValues.get(i));
+        assertEquals(inputs(expected), inputs(recording.get(i)));
+        assertEquals(outputs(expected), outputs(recording.get(i)));
+      }
+      assertTrue(recording.check(factory.metamorphicRelation()).wasSuccessful());
+    }
+  }
+
+  @Test
+  public void testOutputsAreReplayedAsViewsOfFile() throws IOException {
+    try (GoldenDataset.Recorder<ByteBuffer, ByteBuffer> recorder = GoldenDataset.recorder(this.file, Serializer.BYTE_BUFFER, Serializer.BYTE_BUFFER)) {
+      Dataset.OnGoing<IoPair<ByteBuffer, ByteBuffer>> dataset = new Dataset.OnGoing.Impl<>("bytes");
+      dataset.add(IoPair.create(ByteBuffer.wrap(new byte[] { 1 }), ByteBuffer.wrap(new byte[] { 2, 3, 4 })));
+      recorder.write(dataset.close());
+    }
+
+    try (GoldenDataset.Recording<ByteBuffer, ByteBuffer> recording = GoldenDataset.open(this.file, Serializer.BYTE_BUFFER, Serializer.BYTE_BUFFER)) {
+      ByteBuffer output = recording.get(0).get(0).output();
+      byte[] bytes = new byte[output.remaining()];
+      output.get(bytes);
+
+      assertTrue(output.isReadOnly());
+      assertArrayEquals(new byte[] { 2, 3, 4 }, bytes);
+    }
+  }
+
+  @Test
+  public void testRecorderCanBeClosedMoreThanOnce() throws IOException {
+    GoldenDataset.Recorder<Integer, Integer> recorder = GoldenDataset.recorder(this.file, INTEGER, INTEGER);
+    recorder.write(dataset("a", 1, 10));
+    recorder.close();
+    long size = Files.size(this.file);
+
+    recorder.close();
+
+    assertEquals(size, Files.size(this.file));
+    assertThrows(IllegalStateException.class, () -> recorder.write(dataset("b")));
+    try (GoldenDataset.Recording<Integer, Integer> recording = GoldenDataset.open(this.file, INTEGER, INTEGER)) {
+      assertEquals(1, recording.size());
+    }
+  }
+
+  /**
+   * The output of the second IoPair of "broken" cannot be read, after the first one is serialized.
+   */
+  @Test
+  public void testDatasetFailedToBeWrittenLeavesNoRecord() throws IOException {
+    try (GoldenDataset.Recorder<Integer, Integer> recorder = GoldenDataset.recorder(this.file, INTEGER, INTEGER)) {
+      recorder.write(dataset("a", 1, 10));
+      Dataset.OnGoing<IoPair<Integer, Integer>> broken = new Dataset.OnGoing.Impl<>("broken");
+      broken.add(IoPair.create(2, 20));
+      broken.add(new IoPair.Deferred<>(3, () -> {
+        throw new IllegalStateException("unreadable");
+      }));
+
+      assertThrows(IllegalStateException.class, () -> recorder.write(broken.close()));
+      recorder.write(dataset("b", 4, 40));
+    }
+
+    try (GoldenDataset.Recording<Integer, Integer> recording = GoldenDataset.open(this.file, INTEGER, INTEGER)) {
+      assertEquals(asList("a", "b"), recording.stream().map(Dataset::name).collect(Collectors.toList()));
+      assertEquals(asList(1), inputs(recording.get(0)));
+      assertEquals(asList(40), outputs(recording.get(1)));
+    }
+  }
+
+  @Test
+  public void testTooShortFileIsReportedWithItsName() throws IOException {
+    Files.write(this.file, new byte[] { 0x54, 0x43, 0x47, 0x44, 0 });
+
+    UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> GoldenDataset.open(this.file, INTEGER, INTEGER));
+
+    assertTrue(e.getMessage(), e.getMessage().contains(this.file.toString()));
+  }
+
+  @Test
+  public void testTruncatedFileIsReportedWithItsName() throws IOException {
+    this.recordTwoDatasets();
+    byte[] bytes = Files.readAllBytes(this.file);
+    Files.write(this.file, Arrays.copyOf(bytes, bytes.length - 5));
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> GoldenDataset.open(this.file, INTEGER, INTEGER));
+
+    assertTrue(e.getMessage(), e.getMessage().contains(this.file.toString()));
+  }
+
+  /**
+   * The length of the first input is overwritten, so that it exceeds the record.
+   * A record starts with the length of its name, the name, and the number of IoPairs, each of which takes 4 bytes here.
+   */
+  @Test
+  public void testCorruptRecordIsReportedWithFileName() throws IOException {
+    this.recordTwoDatasets();
+    byte[] bytes = Files.readAllBytes(this.file);
+    ByteBuffer.wrap(bytes).putInt(8 + 4 + 1 + 4, Integer.MAX_VALUE);
+    Files.write(this.file, bytes);
+
+    try (GoldenDataset.Recording<Integer, Integer> recording = GoldenDataset.open(this.file, INTEGER, INTEGER)) {
+      UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> recording.get(0));
+
+      assertTrue(e.getMessage(), e.getMessage().contains(this.file.toString()));
+      assertEquals(asList(3), inputs(recording.get(1)));
+    }
+  }
+
+  @Test
+  public void testCorruptOutputIsReportedWithFileName() throws IOException {
+    try (GoldenDataset.Recorder<Integer, byte[]> recorder = GoldenDataset.recorder(this.file, INTEGER, Serializer.BYTE_ARRAY)) {
+      Dataset.OnGoing<IoPair<Integer, byte[]>> dataset = new Dataset.OnGoing.Impl<>("a");
+      dataset.add(IoPair.create(1, new byte[] { 0, 0, 0, 0 }));
+      recorder.write(dataset.close());
+    }
+
+    try (GoldenDataset.Recording<Integer, Integer> recording = GoldenDataset.open(this.file, INTEGER, INTEGER)) {
+      IoPair<Integer, Integer> ioPair = recording.get(0).get(0);
+      UncheckedIOException e = assertThrows(UncheckedIOException.class, ioPair::output);
+
+      assertEquals(1, (int) ioPair.input());
+      assertTrue(e.getMessage(), e.getMessage().contains(this.file.toString()));
+      assertTrue(e.getMessage(), e.getMessage().contains("a[0]"));
+    }
+  }
+
+  private void recordTwoDatasets() throws IOException {
+    try (GoldenDataset.Recorder<Integer, Integer> recorder = GoldenDataset.recorder(this.file, INTEGER, INTEGER)) {
+      recorder.write(dataset("a", 1, 10, 2, 20));
+      recorder.write(dataset("b", 3, 30));
+    }
+  }
+
+  /**
+   * Creates a dataset of IoPairs from inputs and outputs given alternately.
+   */
+  private static Dataset<IoPair<Integer, Integer>> dataset(String name, Integer... inputsAndOutputs) {
+    Dataset.OnGoing<IoPair<Integer, Integer>> ret = new Dataset.OnGoing.Impl<>(name);
+    Stream.iterate(0, i -> i + 2)
+        .limit(inputsAndOutputs.length / 2)
+        .forEach(i -> ret.add(IoPair.create(inputsAndOutputs[i], inputsAndOutputs[i + 1])));
+    return ret.close();
+  }
+}
@@ -0,0 +1,218 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.IoContext;
+import com.github.dakusui.thincrest.metamor.MemoizedFunction;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.Proposition;
+import com.github.dakusui.thincrest.metamor.Timeouts;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.execute;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class MemoizedFunctionTest extends TestBase {
+  @Test
+  public void testHitsAndMissesAreCounted() {
+    AtomicInteger calls = new AtomicInteger(0);
+    MemoizedFunction<Integer, Integer> f = MemoizedFunction.create(x -> calls.incrementAndGet() * 0 + x * 2, 10);
+
+    assertEquals(2, (int) f.apply(1));
+    assertEquals(4, (int) f.apply(2));
+    assertEquals(2, (int) f.apply(1));
+    assertEquals(2, (int) f.apply(1));
+
+    assertEquals(2, f.hits());
+    assertEquals(2, f.misses());
+    assertEquals(2, f.size());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedOutputIsEvicted() {
+    MemoizedFunction<Integer, Integer> f = MemoizedFunction.create(x -> x, 2);
+
+    f.apply(1);
+    f.apply(2);
+    f.apply(1);
+    f.apply(3);
+    f.apply(1);
+    f.apply(2);
+
+    assertEquals(2, f.size());
+    assertEquals(2, f.hits());
+    assertEquals(4, f.misses());
+  }
+
+  @Test
+  public void testFailureIsNotRemembered() {
+    AtomicInteger calls = new AtomicInteger(0);
+    MemoizedFunction<Integer, Integer> f = MemoizedFunction.create(x -> {
+      if (calls.incrementAndGet() == 1)
+        throw new IllegalStateException("first call");
+      return x;
+    }, 10);
+
+    assertThrows(IllegalStateException.class, () -> f.apply(1));
+    assertEquals(1, (int) f.apply(1));
+
+    assertEquals(2, f.misses());
+    assertEquals(0, f.hits());
+  }
+
+  @Test
+  public void testWrappedFunctionIsCalledOnceForConcurrentCalls() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger(0);
+    MemoizedFunction<Integer, Integer> f = MemoizedFunction.create(x -> {
+      calls.incrementAndGet();
+      started.countDown();
+      await(release);
+      return x;
+    }, 10);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Integer> first = executor.submit(() -> f.apply(1));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      Future<Integer> second = executor.submit(() -> f.apply(1));
+      while (f.hits() == 0)
+        Thread.yield();
+      release.countDown();
+
+      assertEquals(1, (int) first.get(5, TimeUnit.SECONDS));
+      assertEquals(1, (int) second.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(1, calls.get());
+    assertEquals(1, f.misses());
+    assertEquals(1, f.hits());
+  }
+
+  @Test
+  public void testErrorIsRethrownAsItIsToWaitingCall() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    MemoizedFunction<Integer, Integer> f = MemoizedFunction.create(x -> {
+      started.countDown();
+      await(release);
+      throw new AssertionError("boom");
+    }, 10);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Integer> first = executor.submit(() -> f.apply(1));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      Future<Integer> second = executor.submit(() -> f.apply(1));
+      while (f.hits() == 0)
+        Thread.yield();
+      release.countDown();
+
+      assertSame(AssertionError.class, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause().getClass());
+      assertSame(AssertionError.class, assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS)).getCause().getClass());
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(0, f.size());
+  }
+
+  /**
+   * The FUT ignores interrupts, so its first execution keeps running after it is abandoned by the timeout.
+   * A later call for the same input waits for it only until its own timeout, and the output of the abandoned execution isn't remembered.
+   */
+  @Test
+  public void testCallWaitingForAbandonedExecutionTimesOut() {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger(0);
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = MetamorphicTestCaseFactory.forFunctionUnderTest("blocking", (Integer x) -> {
+          if (calls.incrementAndGet() == 1)
+            awaitUninterruptibly(release);
+          return x;
+        })
+        .memoize(10)
+        .timeout(Duration.ofMillis(100))
+        .<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>>makeInputResolversEndomorphic()
+        .outputOnly()
+        .proposition("{0}", ds -> true);
+    MemoizedFunction<Integer, Integer> fut = factory.memoizedFut().orElseThrow(AssertionError::new);
+
+    assertTrue(assertThrows(IoContext.Utils.ItemProcessingException.class, () -> execute(factory, 1)).getCause() instanceof Timeouts.FutTimeoutException);
+    long before = System.nanoTime();
+    assertTrue(assertThrows(IoContext.Utils.ItemProcessingException.class, () -> execute(factory, 1)).getCause() instanceof Timeouts.FutTimeoutException);
+    long elapsed = System.nanoTime() - before;
+    release.countDown();
+    while (fut.size() > 0)
+      Thread.yield();
+
+    assertTrue(String.valueOf(elapsed), elapsed < TimeUnit.SECONDS.toNanos(2));
+    assertEquals(1, (int) execute(factory, 1).get(0).output());
+    assertEquals(2, calls.get());
+    assertEquals(2, fut.misses());
+  }
+
+  @Test
+  public void testFactoryExposesMemoizedFut() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = MetamorphicTestCaseFactory.forFunctionUnderTest("twice", (Integer x) -> x * 2)
+        .memoize(10)
+        .<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>>makeInputResolversEndomorphic()
+        .addInputResolver(x -> "x", x -> x)
+        .addInputResolver(x -> "x+1", x -> x + 1)
+        .outputOnly()
+        .proposition("{0}={1}", ds -> true);
+
+    execute(factory, 1);
+    execute(factory, 2);
+
+    MemoizedFunction<Integer, Integer> fut = factory.memoizedFut().orElseThrow(AssertionError::new);
+    assertEquals(3, fut.misses());
+    assertEquals(3, fut.hits());
+  }
+
+  @Test
+  public void testFactoryWithoutMemoizationExposesNothing() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = MetamorphicTestCaseFactory.forFunctionUnderTest("twice", (Integer x) -> x * 2)
+        .<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>>makeInputResolversEndomorphic()
+        .outputOnly()
+        .proposition("{0}", ds -> true);
+
+    assertFalse(factory.memoizedFut().isPresent());
+  }
+
+  /**
+   * Waits for a latch ignoring interrupts, and restores the interrupted status after it.
+   */
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted)
+      Thread.currentThread().interrupt();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
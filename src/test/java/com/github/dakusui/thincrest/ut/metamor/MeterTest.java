@@ -0,0 +1,68 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.Metrics;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.execute;
+import static com.github.dakusui.thincrest.utils.TestFixtures.incrementing;
+import static com.github.dakusui.thincrest.utils.TestFixtures.sleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class MeterTest extends TestBase {
+  @Test
+  public void testFutIsExecutedForWarmupsAndRepetitions() {
+    AtomicInteger calls = new AtomicInteger(0);
+
+    IoPair.Measured<Integer, Integer> measured = new Metrics.Meter(3, 5).measure((Integer x) -> calls.incrementAndGet(), 0);
+
+    assertEquals(8, calls.get());
+    assertEquals(8, (int) measured.output());
+    assertEquals(5, Metrics.of(measured).repetitions());
+  }
+
+  /**
+   * Executions take 0ms, 100ms, and 40ms, and allocate 2MB, 3MB, and 1MB, respectively.
+   * The median of allocations is 2MB, but the execution of the median wall time allocates 1MB.
+   */
+  @Test
+  public void testAllMetricsAreTakenFromExecutionOfMedianWallTime() {
+    long[] sleeps = { 0, 100, 40 };
+    int[] sizes = { 2 << 20, 3 << 20, 1 << 20 };
+    AtomicInteger calls = new AtomicInteger(0);
+
+    Metrics metrics = Metrics.of(new Metrics.Meter(0, 3).measure((Integer x) -> {
+      int i = calls.getAndIncrement();
+      sleep(sleeps[i]);
+      return new byte[sizes[i]];
+    }, 0));
+
+    assertTrue(metrics.toString(), 40_000_000 <= metrics.wallTimeNanos() && metrics.wallTimeNanos() < 100_000_000);
+    assumeTrue(metrics.allocatedBytes() >= 0);
+    assertTrue(metrics.toString(), metrics.allocatedBytes() < (3 << 19));
+  }
+
+  @Test
+  public void testIoPairsOfMeasuredFactoryCarryMetrics() {
+    Dataset<IoPair<Integer, Integer>> ioPairs = execute(incrementing(MetamorphicTestCaseFactory.forFunctionUnderTest("identity", (Integer x) -> x).measure())
+        .outputOnly()
+        .proposition("{0}<{1}", (Dataset<Integer> ds) -> ds.get(0) < ds.get(1)), 1);
+
+    assertTrue(ioPairs.stream().allMatch(each -> Metrics.of(each).repetitions() == 1));
+  }
+
+  @Test
+  public void testMemoizedFutIsNotMeasured() {
+    assertThrows(IllegalStateException.class, () -> incrementing(MetamorphicTestCaseFactory.forFunctionUnderTest("identity", (Integer x) -> x).memoize(10).measure())
+        .outputOnly()
+        .proposition("{0}<{1}", (Dataset<Integer> ds) -> ds.get(0) < ds.get(1)));
+  }
+}
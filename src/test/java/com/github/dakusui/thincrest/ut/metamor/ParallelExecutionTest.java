@@ -0,0 +1,102 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.IoContext;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.Proposition;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.execute;
+import static com.github.dakusui.thincrest.utils.TestFixtures.incrementing;
+import static com.github.dakusui.thincrest.utils.TestFixtures.inputs;
+import static com.github.dakusui.thincrest.utils.TestFixtures.outputs;
+import static com.github.dakusui.thincrest.utils.TestFixtures.sleep;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelExecutionTest extends TestBase {
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @After
+  public void shutdownExecutor() {
+    this.executor.shutdownNow();
+  }
+
+  @Test
+  public void testIoPairsAreInResolverOrderEvenIfLaterOnesFinishFirst() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = factory(true);
+
+    Dataset<IoPair<Integer, Integer>> ioPairs = execute(factory, 0);
+
+    assertEquals(asList(0, 1, 2, 3), inputs(ioPairs));
+    assertEquals(asList(0, 10, 20, 30), outputs(ioPairs));
+  }
+
+  @Test
+  public void testPropositionIsRenderedInResolverOrder() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = factory(true);
+
+    Proposition proposition = factory.metamorphicTransformer().apply(execute(factory, 0));
+
+    assertTrue(proposition.evaluate());
+    assertEquals("0<10<20<30", proposition.toString());
+  }
+
+  @Test
+  public void testParallelExecutionGivesSameResultAsSequentialOne() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> parallel = factory(true);
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> sequential = factory(false);
+
+    assertEquals(
+        sequential.metamorphicTransformer().apply(execute(sequential, 5)).toString(),
+        parallel.metamorphicTransformer().apply(execute(parallel, 5)).toString());
+  }
+
+  @Test
+  public void testFailureOfFutIsReportedWithIndexAndResolver() {
+    for (boolean parallel : new boolean[] { false, true }) {
+      MetamorphicTestCaseFactory.Builder<Object, Integer, Integer, Object> b = MetamorphicTestCaseFactory.forFunctionUnderTest("failsForTwo", (Integer x) -> {
+        if (x == 2)
+          throw new IllegalStateException("boom");
+        return x;
+      });
+      if (parallel)
+        b.parallel(this.executor);
+      MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = incrementing(b)
+          .addInputResolver(x -> String.format("%s+2", x), x -> x + 2)
+          .outputOnly()
+          .proposition("{0}<{1}<{2}", (Dataset<Integer> ds) -> ds.get(0) < ds.get(1) && ds.get(1) < ds.get(2));
+
+      IoContext.Utils.ItemProcessingException e = assertThrows(IoContext.Utils.ItemProcessingException.class, () -> execute(factory, 0));
+
+      assertTrue(e.getMessage(), e.getMessage().contains("[2]"));
+      assertTrue(e.getMessage(), e.getMessage().contains("<0+2>"));
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  /**
+   * The FUT sleeps longer for earlier inputs, so that the later ones finish first when executed concurrently.
+   */
+  private MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory(boolean parallel) {
+    MetamorphicTestCaseFactory.Builder<Object, Integer, Integer, Object> b = MetamorphicTestCaseFactory.forFunctionUnderTest("slowTimesTen", (Integer x) -> {
+      sleep((4 - x % 4) * 20L);
+      return x * 10;
+    });
+    if (parallel)
+      b.parallel(this.executor);
+    return incrementing(b)
+        .addInputResolver(x -> String.format("%s+2", x), x -> x + 2)
+        .addInputResolver(x -> String.format("%s+3", x), x -> x + 3)
+        .outputOnly()
+        .proposition("{0}<{1}<{2}<{3}", (Dataset<Integer> ds) -> ds.get(0) < ds.get(1) && ds.get(1) < ds.get(2) && ds.get(2) < ds.get(3));
+  }
+}
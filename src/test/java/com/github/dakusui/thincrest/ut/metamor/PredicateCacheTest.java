@@ -0,0 +1,69 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactoryWithPreformer;
+import com.github.dakusui.thincrest.metamor.Proposition;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import com.github.dakusui.thincrest_pcond.forms.Printables;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.incrementing;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PredicateCacheTest extends TestBase {
+  @Test
+  public void testFactoryReturnsSamePredicate() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = factory(new AtomicInteger(0));
+
+    assertSame(factory.toMetamorphicTestPredicate(), factory.toMetamorphicTestPredicate());
+  }
+
+  @Test
+  public void testFactoryWithPreformerReturnsSamePredicate() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Integer> factory = new MetamorphicTestCaseFactoryWithPreformer.Builder<Integer, Integer, Integer, Integer, Integer>()
+        .fut(Printables.function("negate", x -> -x))
+        .addInputResolvers(b -> b.function(x -> "x", x -> x).function(x -> "-x", x -> -x).build())
+        .preformer("output", IoPair::output)
+        .reduce("[0]+[1]", (Dataset<Integer> ds) -> ds.get(0) + ds.get(1))
+        .check("isZero", v -> v == 0);
+
+    Predicate<Integer> predicate = factory.toMetamorphicTestPredicate();
+
+    assertSame(predicate, factory.toMetamorphicTestPredicate());
+    assertTrue(predicate.test(5));
+  }
+
+  /**
+   * The FUT is an identity function except for `13`, so the relation `f(x)+1=f(x+1)` fails for `12` and `13`.
+   */
+  @Test
+  public void testCachedPredicateEvaluatesEachValueAfresh() {
+    AtomicInteger calls = new AtomicInteger(0);
+    Predicate<Integer> predicate = factory(calls).toMetamorphicTestPredicate();
+
+    assertTrue(predicate.test(1));
+    assertFalse(predicate.test(12));
+    assertFalse(predicate.test(13));
+    assertTrue(predicate.test(1));
+    assertTrue(predicate.test(14));
+
+    assertEquals(10, calls.get());
+  }
+
+  private static MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory(AtomicInteger calls) {
+    return incrementing("identityExcept13", x -> {
+          calls.incrementAndGet();
+          return x == 13 ? 0 : x;
+        })
+        .outputOnly()
+        .proposition("{0}+1={1}", (Dataset<Integer> ds) -> ds.get(0) + 1 == ds.get(1));
+  }
+}
@@ -0,0 +1,100 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.DoubleDataset;
+import com.github.dakusui.thincrest.metamor.DoubleIoPair;
+import com.github.dakusui.thincrest.metamor.IntDataset;
+import com.github.dakusui.thincrest.metamor.IntIoPair;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.LongDataset;
+import com.github.dakusui.thincrest.metamor.LongIoPair;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.execute;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrimitiveDatasetTest extends TestBase {
+  @Test
+  public void testDoubleFunctionCreatesDoubleIoPairs() {
+    MetamorphicTestCaseFactory<Double, Double, Double, Object> factory = MetamorphicTestCaseFactory.forDoubleFunction("twice", x -> x * 2)
+        .<MetamorphicTestCaseFactory.Builder<Double, Double, Double, Object>>makeInputResolversEndomorphic()
+        .addInputResolver(x -> String.format("%s+1", x), x -> x + 1)
+        .transformer(DoubleDataset.ofOutputs(ds -> ds.getAsDouble(1) - ds.getAsDouble(0)))
+        .check(v -> v.equals(2.0));
+
+    Dataset<IoPair<Double, Double>> ioPairs = execute(factory, 1.0);
+
+    assertTrue(ioPairs.stream().allMatch(each -> each instanceof DoubleIoPair));
+    assertEquals(6.0, DoubleDataset.outputsOf(ioPairs).doubleStream().sum(), 0.0);
+    assertTrue(factory.toMetamorphicTestPredicate().test(1.0));
+  }
+
+  @Test
+  public void testIntAndLongFunctionsCreatePrimitiveIoPairs() {
+    Dataset<IoPair<Integer, Integer>> ints = execute(
+        MetamorphicTestCaseFactory.forIntFunction("negate", x -> -x)
+            .<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>>makeInputResolversEndomorphic()
+            .addInputResolver(x -> String.format("%s+1", x), x -> x + 1)
+            .transformer(IntDataset.ofOutputs(IntDataset::intStream))
+            .check(v -> true),
+        1);
+    Dataset<IoPair<Long, Long>> longs = execute(
+        MetamorphicTestCaseFactory.forLongFunction("negate", x -> -x)
+            .<MetamorphicTestCaseFactory.Builder<Long, Long, Long, Object>>makeInputResolversEndomorphic()
+            .addInputResolver(x -> String.format("%s+1", x), x -> x + 1)
+            .transformer(LongDataset.ofOutputs(LongDataset::longStream))
+            .check(v -> true),
+        1L);
+
+    assertTrue(ints.stream().allMatch(each -> each instanceof IntIoPair));
+    assertEquals(-3, IntDataset.outputsOf(ints).intStream().sum());
+    assertTrue(longs.stream().allMatch(each -> each instanceof LongIoPair));
+    assertEquals(-3L, LongDataset.outputsOf(longs).longStream().sum());
+  }
+
+  /**
+   * IoPairs in the dataset fail if their outputs are boxed.
+   */
+  @Test
+  public void testOutputsOfDoubleIoPairsAreReadWithoutBoxing() {
+    Dataset.OnGoing<IoPair<Double, Double>> ioPairs = new Dataset.OnGoing.Impl<>("io");
+    ioPairs.add(unboxedOnly(1.0, 10.0));
+    ioPairs.add(unboxedOnly(2.0, 20.0));
+
+    DoubleDataset outputs = DoubleDataset.outputsOf(ioPairs.close());
+
+    assertEquals(10.0, outputs.getAsDouble(0), 0.0);
+    assertEquals(30.0, outputs.doubleStream().sum(), 0.0);
+    assertEquals(-10.0, DoubleDataset.<Double, Double>ofOutputs(ds -> ds.getAsDouble(0) - ds.getAsDouble(1)).apply(ioPairs), 0.0);
+  }
+
+  @Test
+  public void testDatasetIsViewedNotCopied() {
+    Dataset.OnGoing<Integer> values = new Dataset.OnGoing.Impl<>("x");
+    values.add(1);
+
+    IntDataset view = IntDataset.from(values);
+    values.add(2);
+
+    assertEquals(2, view.size());
+    assertEquals(2, view.getAsInt(1));
+    assertEquals("x:[1, 2]", view.toString());
+  }
+
+  private static DoubleIoPair unboxedOnly(double input, double output) {
+    return new DoubleIoPair.Impl(input, output) {
+      @Override
+      public Double input() {
+        throw new AssertionError("input was boxed");
+      }
+
+      @Override
+      public Double output() {
+        throw new AssertionError("output was boxed");
+      }
+    };
+  }
+}
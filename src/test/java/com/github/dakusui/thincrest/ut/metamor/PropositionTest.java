@@ -0,0 +1,85 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.Proposition;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PropositionTest extends TestBase {
+  @Test
+  public void testPlaceholdersAreReplacedByIndex() {
+    Function<Object[], String> formatter = new Proposition.MessageFormatter("{1}>{0}");
+
+    assertEquals("b>a", formatter.apply(new Object[] { "a", "b" }));
+  }
+
+  @Test
+  public void testFormatTypesAreHonored() {
+    Function<Object[], String> formatter = new Proposition.MessageFormatter("{0,choice,0#none|1#one|1<many}:'{1}'");
+
+    assertEquals("one:{1}", formatter.apply(new Object[] { 1, "ignored" }));
+    assertEquals("many:{1}", formatter.apply(new Object[] { 5, "ignored" }));
+  }
+
+  @Test
+  public void testFormatterIsRenderedAsItsPattern() {
+    assertEquals("{0}={1}", new Proposition.MessageFormatter("{0}={1}").toString());
+  }
+
+  @Test
+  public void testFormattingConcurrentlyGivesSameResultsAsSequentially() {
+    Function<Object[], String> formatter = new Proposition.MessageFormatter("{0}+{1,choice,0#zero|1#one}={2}");
+
+    List<String> results = IntStream.range(0, 10_000)
+        .parallel()
+        .mapToObj(i -> formatter.apply(new Object[] { "x" + i, 1, "y" + i }))
+        .collect(Collectors.toList());
+
+    for (int i = 0; i < results.size(); i++)
+      assertEquals("x" + i + "+one=y" + i, results.get(i));
+  }
+
+  @Test
+  public void testDescriptionIsRenderedOnlyOnce() {
+    AtomicInteger calls = new AtomicInteger(0);
+    Proposition proposition = new Proposition.Impl<>(
+        (Dataset<Integer> ds) -> ds.get(0) < ds.get(1),
+        args -> calls.incrementAndGet() + ":" + args[0] + "<" + args[1],
+        dataset(1, 2));
+
+    assertEquals(0, calls.get());
+    assertTrue(proposition.evaluate());
+    assertEquals(0, calls.get());
+    assertEquals("1:1<2", proposition.toString());
+    assertEquals("1:1<2", proposition.toString());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testFactoryIsRenderedWithPlaceholderNames() {
+    Proposition.Factory<Integer> factory = Proposition.Factory.create(
+        (Dataset<Integer> ds) -> ds.get(0) < ds.get(1),
+        new Proposition.MessageFormatter("{0}<{1}"),
+        i -> "x[" + i + "]",
+        2);
+
+    assertEquals("x[0]<x[1]", factory.toString());
+    assertEquals("3<4", factory.apply(dataset(3, 4)).toString());
+  }
+
+  private static Dataset<Integer> dataset(Integer... values) {
+    Dataset.OnGoing<Integer> ret = new Dataset.OnGoing.Impl<>("ds");
+    for (Integer each : values)
+      ret.add(each);
+    return ret.close();
+  }
+}
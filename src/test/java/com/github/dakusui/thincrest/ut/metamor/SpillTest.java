@@ -0,0 +1,94 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.Serializer;
+import com.github.dakusui.thincrest.metamor.Spill;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SpillTest extends TestBase {
+  @Test
+  public void testValueNotLargerThanThresholdIsKeptOnHeap() {
+    byte[] value = new byte[16];
+
+    Supplier<byte[]> held = new Spill<>(Serializer.BYTE_ARRAY, 16).hold(value);
+
+    assertSame(value, held.get());
+  }
+
+  @Test
+  public void testValueLargerThanThresholdIsDeserializedEachTime() {
+    byte[] value = new byte[17];
+    Arrays.fill(value, (byte) 7);
+
+    Supplier<byte[]> held = new Spill<>(Serializer.BYTE_ARRAY, 16).hold(value);
+
+    assertArrayEquals(value, held.get());
+    assertNotSame(held.get(), held.get());
+  }
+
+  /**
+   * Values are cut from chunks of 100 bytes, except for the last one, which is larger than a chunk.
+   */
+  @Test
+  public void testValuesSpanningChunksAreRestored() {
+    Spill<byte[]> spill = new Spill<>(Serializer.BYTE_ARRAY, 0, new Spill.Arena(Paths.get(System.getProperty("java.io.tmpdir")), 100));
+    byte[][] values = new byte[10][];
+    @SuppressWarnings("unchecked") Supplier<byte[]>[] held = new Supplier[values.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = new byte[i == values.length - 1 ? 150 : i * 10 + 1];
+      Arrays.fill(values[i], (byte) i);
+      held[i] = spill.hold(values[i]);
+    }
+
+    for (int i = 0; i < values.length; i++)
+      assertArrayEquals(values[i], held[i].get());
+  }
+
+  @Test
+  public void testJavaSerializedValueIsRestored() {
+    Supplier<String> held = new Spill<>(Serializer.<String>javaSerialization(), 0).hold("hello");
+
+    assertEquals("hello", held.get());
+  }
+
+  @Test
+  public void testDeferredOutputIsGivenOnlyOnceForOutputAndToString() {
+    AtomicInteger calls = new AtomicInteger(0);
+    Supplier<byte[]> held = new Spill<>(Serializer.BYTE_ARRAY, 0).hold(new byte[] { 1, 2 });
+
+    IoPair<Integer, byte[]> ioPair = new IoPair.Deferred<>(1, () -> {
+      calls.incrementAndGet();
+      return held.get();
+    });
+
+    assertSame(ioPair.output(), ioPair.output());
+    ioPair.toString();
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void testNullDeferredOutputIsCached() {
+    AtomicInteger calls = new AtomicInteger(0);
+
+    IoPair<Integer, byte[]> ioPair = new IoPair.Deferred<>(1, () -> {
+      calls.incrementAndGet();
+      return null;
+    });
+
+    assertNull(ioPair.output());
+    assertNull(ioPair.output());
+    assertEquals(1, calls.get());
+  }
+}
@@ -0,0 +1,167 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.StreamingRelation;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+import org.opentest4j.MultipleFailuresError;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.counting;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingRelationTest extends TestBase {
+  @Test
+  public void testIncreasingOutputsPass() {
+    StreamingRelation.Result<Integer, Integer> result = increasing(x -> x * 10, 2).run(IntStream.range(0, 100).boxed());
+
+    assertTrue(result.wasSuccessful());
+    assertEquals(100, result.count());
+  }
+
+  /**
+   * The output for `5` is too large, which breaks the relation only for the window `[5, 6]`.
+   */
+  @Test
+  public void testOnlyFailingPairsAreReported() {
+    StreamingRelation.Result<Integer, Integer> result = increasing(x -> x == 5 ? 100 : x, 2).run(IntStream.range(0, 10).boxed());
+
+    assertEquals(asList(5L), indices(result));
+    assertEquals(asList(asList(5, 6)), inputs(result));
+    assertEquals("io[5..6]", result.failures().get(0).window().name());
+  }
+
+  /**
+   * The output for `5` is too large, which breaks the relation for the windows of three, in which it is followed by another.
+   */
+  @Test
+  public void testOnlyFailingWindowsAreReported() {
+    StreamingRelation.Result<Integer, Integer> result = increasing(x -> x == 5 ? 100 : x, 3).run(IntStream.range(0, 10).boxed());
+
+    assertEquals(asList(4L, 5L), indices(result));
+    assertEquals(asList(asList(4, 5, 6), asList(5, 6, 7)), inputs(result));
+    assertEquals(10, result.count());
+  }
+
+  /**
+   * The FUT is executed once for each input, and a failing window is evaluated only once more with tracing to compose its report.
+   */
+  @Test
+  public void testFailingWindowIsEvaluatedOnlyOnceMoreForReport() {
+    AtomicInteger calls = new AtomicInteger(0);
+    AtomicInteger evaluated = new AtomicInteger(0);
+    StreamingRelation<Integer, Integer> relation = StreamingRelation.forFunctionUnderTest("spikeAt5", (Integer x) -> {
+          calls.incrementAndGet();
+          return x == 5 ? 100 : x;
+        })
+        .proposition("{0}<{1}", counting(evaluated, (Dataset<IoPair<Integer, Integer>> ds) -> ds.get(0).output() < ds.get(1).output()));
+
+    StreamingRelation.Result<Integer, Integer> result = relation.run(IntStream.range(0, 10).boxed());
+
+    assertEquals(1, result.failures().size());
+    assertEquals(10, calls.get());
+    assertEquals(9 + 1, evaluated.get());
+  }
+
+  @Test
+  public void testRelationStopsReadingInputsAtMaxFailures() {
+    AtomicInteger calls = new AtomicInteger(0);
+    StreamingRelation<Integer, Integer> relation = StreamingRelation.forFunctionUnderTest("negate", (Integer x) -> {
+          calls.incrementAndGet();
+          return -x;
+        })
+        .maxFailures(3)
+        .proposition("{0}<{1}", (Dataset<IoPair<Integer, Integer>> ds) -> ds.get(0).output() < ds.get(1).output());
+
+    StreamingRelation.Result<Integer, Integer> result = relation.run(IntStream.range(0, 100).boxed());
+
+    assertEquals(asList(0L, 1L, 2L), indices(result));
+    assertEquals(4, result.count());
+    assertEquals(4, calls.get());
+  }
+
+  @Test
+  public void testFailuresAreBoundedByDefault() {
+    StreamingRelation.Result<Integer, Integer> result = increasing(x -> -x, 2).run(IntStream.range(0, 1_000).boxed());
+
+    assertEquals(StreamingRelation.Builder.DEFAULT_MAX_FAILURES, result.failures().size());
+    assertEquals(StreamingRelation.Builder.DEFAULT_MAX_FAILURES + 1, result.count());
+  }
+
+  @Test
+  public void testFailFastStopsOnFirstFailure() {
+    StreamingRelation.Result<Integer, Integer> result = StreamingRelation.forFunctionUnderTest("negate", (Integer x) -> -x)
+        .failFast()
+        .proposition("{0}<{1}", (Dataset<IoPair<Integer, Integer>> ds) -> ds.get(0).output() < ds.get(1).output())
+        .run(IntStream.range(0, 100).boxed());
+
+    assertEquals(asList(0L), indices(result));
+    assertEquals(2, result.count());
+  }
+
+  /**
+   * The FUT throws for `5`, which is reported as a failure by itself, and windows including it are not examined.
+   */
+  @Test
+  public void testExceptionFromFutIsCountedAsFailure() {
+    StreamingRelation.Result<Integer, Integer> result = increasing(x -> {
+      if (x == 5)
+        throw new IllegalStateException("boom");
+      return x;
+    }, 3).run(IntStream.range(0, 10).boxed());
+
+    assertEquals(1, result.failures().size());
+    StreamingRelation.Failure<Integer, Integer> failure = result.failures().get(0);
+    assertEquals(5L, failure.index());
+    assertEquals(asList(3, 4), failure.window().stream().map(IoPair::input).collect(Collectors.toList()));
+    assertTrue(failure.report().getCause() instanceof IllegalStateException);
+    assertEquals(10, result.count());
+  }
+
+  @Test
+  public void testStreamShorterThanWindowFails() {
+    StreamingRelation.Result<Integer, Integer> result = increasing(x -> x, 3).run(Stream.of(0, 1));
+
+    assertEquals(1, result.failures().size());
+    assertEquals(0L, result.failures().get(0).index());
+    assertEquals(asList(asList(0, 1)), inputs(result));
+    assertThrows(MultipleFailuresError.class, () -> increasing(x -> x, 3).assertAll(Stream.of(0, 1)));
+  }
+
+  @Test
+  public void testEmptyStreamFails() {
+    StreamingRelation.Result<Integer, Integer> result = increasing(x -> x, 2).run(Stream.empty());
+
+    assertEquals(asList(emptyList()), inputs(result));
+    assertEquals(0, result.count());
+  }
+
+  private static StreamingRelation<Integer, Integer> increasing(Function<Integer, Integer> fut, int windowSize) {
+    return StreamingRelation.forFunctionUnderTest("fut", fut)
+        .windowSize(windowSize)
+        .proposition(
+            "increasing",
+            (Dataset<IoPair<Integer, Integer>> ds) -> IntStream.range(1, ds.size()).allMatch(i -> ds.get(i - 1).output() < ds.get(i).output()));
+  }
+
+  private static List<Long> indices(StreamingRelation.Result<Integer, Integer> result) {
+    return result.failures().stream().map(StreamingRelation.Failure::index).collect(Collectors.toList());
+  }
+
+  private static List<List<Integer>> inputs(StreamingRelation.Result<Integer, Integer> result) {
+    return result.failures().stream()
+        .map(f -> f.window().stream().map(IoPair::input).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+  }
+}
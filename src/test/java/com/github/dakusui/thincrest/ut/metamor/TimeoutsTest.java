@@ -0,0 +1,100 @@
+package com.github.dakusui.thincrest.ut.metamor;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.IoContext;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest.metamor.Proposition;
+import com.github.dakusui.thincrest.metamor.Timeouts;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.dakusui.thincrest.utils.TestFixtures.execute;
+import static com.github.dakusui.thincrest.utils.TestFixtures.incrementing;
+import static com.github.dakusui.thincrest.utils.TestFixtures.sleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class TimeoutsTest extends TestBase {
+  @Test
+  public void testOverrunningFutIsInterrupted() throws InterruptedException {
+    CountDownLatch interrupted = new CountDownLatch(1);
+    Timeouts timeouts = new Timeouts(Duration.ofMillis(50), null);
+
+    assertThrows(Timeouts.FutTimeoutException.class, () -> timeouts.apply((Integer x) -> {
+      try {
+        Thread.sleep(10_000);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+      return x;
+    }, 1, context()));
+
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testFutWithinTimeoutGivesOutput() {
+    Timeouts timeouts = new Timeouts(Duration.ofSeconds(5), Duration.ofSeconds(5));
+
+    assertEquals(2, (int) timeouts.apply((Integer x) -> x * 2, 1, context()));
+  }
+
+  /**
+   * Each execution fits in the budget of a test case, but the second one doesn't fit in what is left by the first one.
+   */
+  @Test
+  public void testCaseBudgetIsSharedByExecutionsInSameContext() {
+    Timeouts timeouts = new Timeouts(null, Duration.ofMillis(300));
+    IoContext<Object, Object> context = context();
+    IoContext<Object, Object> anotherContextOfSameCase = new IoContext.Closed.Impl<>("fut", context.input(), context.output());
+
+    timeouts.apply(TimeoutsTest::sleepAndIdentity, 200, context);
+
+    assertThrows(Timeouts.FutTimeoutException.class, () -> timeouts.apply(TimeoutsTest::sleepAndIdentity, 200, anotherContextOfSameCase));
+    assertEquals(200, (int) timeouts.apply(TimeoutsTest::sleepAndIdentity, 200, context()));
+  }
+
+  @Test
+  public void testCaseBudgetIsSpreadAcrossInputResolvers() {
+    AtomicInteger calls = new AtomicInteger(0);
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = incrementing(
+        MetamorphicTestCaseFactory.forFunctionUnderTest("slowIdentity", (Integer x) -> {
+              calls.incrementAndGet();
+              return sleepAndIdentity(x);
+            })
+            .caseTimeout(Duration.ofMillis(300)))
+        .addInputResolver(x -> String.format("%s+2", x), x -> x + 2)
+        .outputOnly()
+        .proposition("{0}<{1}<{2}", (Dataset<Integer> ds) -> ds.get(0) < ds.get(1) && ds.get(1) < ds.get(2));
+
+    assertTrue(assertThrows(IoContext.Utils.ItemProcessingException.class, () -> execute(factory, 200)).getCause() instanceof Timeouts.FutTimeoutException);
+    assertTrue(String.valueOf(calls.get()), calls.get() < 3);
+  }
+
+  @Test
+  public void testEachTestCaseHasItsOwnBudget() {
+    MetamorphicTestCaseFactory<Integer, Integer, Integer, Proposition> factory = incrementing(
+        MetamorphicTestCaseFactory.forFunctionUnderTest("slowIdentity", (Integer x) -> sleepAndIdentity(100))
+            .caseTimeout(Duration.ofMillis(1_000)))
+        .outputOnly()
+        .proposition("{0}={1}", (Dataset<Integer> ds) -> ds.get(0).equals(ds.get(1)));
+
+    for (int i = 0; i < 10; i++)
+      assertTrue(factory.toMetamorphicTestPredicate().test(i));
+  }
+
+  private static Integer sleepAndIdentity(Integer millis) {
+    sleep(millis);
+    return millis;
+  }
+
+  private static IoContext<Object, Object> context() {
+    return new IoContext.Closed.Impl<>("fut", new Dataset.OnGoing.Impl<>("input").close(), new Dataset.OnGoing.Impl<>("output").close());
+  }
+}
@@ -0,0 +1,54 @@
+package com.github.dakusui.thincrest.utils;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+public enum JfrTestUtils {
+  ;
+
+  public static final String EVENT_NAME_PREFIX = "com.github.dakusui.thincrest.";
+
+  /**
+   * Runs an action while recording thincrest's JFR events, and returns the events emitted on the current thread.
+   *
+   * @param action An action to be recorded.
+   * @return Recorded events.
+   */
+  public static List<RecordedEvent> recordEvents(Runnable action) {
+    try {
+      Path file = Files.createTempFile("thincrest-", ".jfr");
+      try (Recording recording = new Recording()) {
+        for (String each : new String[] { "Assertion", "Report", "MetamorphicStage", "ReportValue" })
+          recording.enable(EVENT_NAME_PREFIX + each).withoutThreshold();
+        recording.start();
+        action.run();
+        recording.stop();
+        recording.dump(file);
+        long threadId = Thread.currentThread().getId();
+        return RecordingFile.readAllEvents(file).stream()
+            .filter(each -> each.getEventType().getName().startsWith(EVENT_NAME_PREFIX))
+            .filter(each -> each.getThread() != null && each.getThread().getJavaThreadId() == threadId)
+            .collect(toList());
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String simpleName) {
+    return events.stream()
+        .filter(each -> each.getEventType().getName().equals(EVENT_NAME_PREFIX + simpleName))
+        .collect(toList());
+  }
+}
@@ -0,0 +1,98 @@
+package com.github.dakusui.thincrest.utils;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.metamor.IoPair;
+import com.github.dakusui.thincrest.metamor.MetamorphicTestCaseFactory;
+import com.github.dakusui.thincrest_pcond.fluent.Statement;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Fixtures and helpers shared by unit tests of assertions and metamorphic test cases.
+ */
+public enum TestFixtures {
+  ;
+
+  /**
+   * Returns a builder of a metamorphic test case that executes `fut` for a source value `x` and `x+1`.
+   *
+   * @param name A name of the FUT.
+   * @param fut  A FUT.
+   * @return A builder, to which more input resolvers can be added.
+   */
+  public static MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object> incrementing(String name, Function<Integer, Integer> fut) {
+    return incrementing(MetamorphicTestCaseFactory.forFunctionUnderTest(name, fut));
+  }
+
+  /**
+   * Adds input resolvers for a source value `x` and `x+1` to a given builder.
+   *
+   * @param builder A builder, which is already given a FUT.
+   * @return A builder, to which more input resolvers can be added.
+   */
+  public static MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object> incrementing(MetamorphicTestCaseFactory.Builder<Object, Integer, Integer, Object> builder) {
+    return builder.<MetamorphicTestCaseFactory.Builder<Integer, Integer, Integer, Object>>makeInputResolversEndomorphic()
+        .addInputResolver(x -> String.format("%s+1", x), x -> x + 1);
+  }
+
+  public static <X, I, O, R> Dataset<IoPair<I, O>> execute(MetamorphicTestCaseFactory<X, I, O, R> factory, X source) {
+    return factory.inputResolverSequenceFactory().andThen(factory.metamorphicExecutor()).apply(source);
+  }
+
+  public static <I, O> List<I> inputs(Dataset<IoPair<I, O>> ioPairs) {
+    return ioPairs.stream().map(IoPair::input).collect(Collectors.toList());
+  }
+
+  public static <I, O> List<O> outputs(Dataset<IoPair<I, O>> ioPairs) {
+    return ioPairs.stream().map(IoPair::output).collect(Collectors.toList());
+  }
+
+  public static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static <T> Statement<T> statement(T value, Predicate<T> predicate) {
+    return new Statement<T>() {
+      @Override
+      public T statementValue() {
+        return value;
+      }
+
+      @Override
+      public Predicate<T> statementPredicate() {
+        return predicate;
+      }
+    };
+  }
+
+  public static <T> Supplier<Statement<?>> supplier(T value, Predicate<T> predicate) {
+    return () -> statement(value, predicate);
+  }
+
+  /**
+   * Returns a supplier of a statement, which counts statements it creates up in `created`.
+   */
+  public static <T> Supplier<Statement<?>> supplier(AtomicInteger created, T value, Predicate<T> predicate) {
+    return () -> {
+      created.incrementAndGet();
+      return statement(value, predicate);
+    };
+  }
+
+  public static <T> Predicate<T> counting(AtomicInteger counter, Predicate<T> predicate) {
+    return v -> {
+      counter.incrementAndGet();
+      return predicate.test(v);
+    };
+  }
+}
@@ -0,0 +1,47 @@
+package com.github.dakusui.thincrest.utils.metatest;
+
+import com.github.dakusui.thincrest.metamor.Dataset;
+import com.github.dakusui.thincrest.utils.testbase.TestBase;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class IsolatingClassLoaderTest extends TestBase {
+  @Test
+  public void testClassIsLoadedByEachLoader() {
+    Class<?> first = Metatest.IsolatingClassLoader.reload(Dataset.class);
+    Class<?> second = Metatest.IsolatingClassLoader.reload(Dataset.class);
+
+    assertNotSame(Dataset.class, first);
+    assertNotSame(first, second);
+    assertSame(Metatest.IsolatingClassLoader.class, first.getClassLoader().getClass());
+  }
+
+  @Test
+  public void testReferencedClassIsLoadedBySameLoader() throws ClassNotFoundException {
+    ClassLoader loader = new Metatest.IsolatingClassLoader(Dataset.class.getClassLoader());
+
+    Class<?> base = loader.loadClass(Dataset.Base.class.getName());
+
+    assertSame(loader, base.getClassLoader());
+    assertSame(loader.loadClass(Dataset.class.getName()), base.getInterfaces()[0]);
+  }
+
+  @Test
+  public void testJdkAndTestingFrameworkClassesAreShared() throws ClassNotFoundException {
+    ClassLoader loader = new Metatest.IsolatingClassLoader(Dataset.class.getClassLoader());
+
+    for (String each : new String[] {
+        "java.lang.String",
+        "javax.management.MBeanServer",
+        "com.sun.management.ThreadMXBean",
+        "jdk.jfr.Event",
+        "org.w3c.dom.Node",
+        "org.xml.sax.InputSource",
+        "org.junit.Test",
+        "org.opentest4j.MultipleFailuresError",
+        Metatest.class.getName() })
+      assertSame(each, Class.forName(each), loader.loadClass(each));
+  }
+}
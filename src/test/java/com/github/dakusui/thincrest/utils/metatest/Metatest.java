@@ -6,7 +6,15 @@ import org.junit.runner.Result;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -16,8 +24,9 @@ import static java.util.stream.Collectors.toList;
 
 public class Metatest {
   private final Class<?> testClass;
-  List<Throwable> errors = new LinkedList<>();
-  private boolean run;
+  final List<Throwable> errors = Collections.synchronizedList(new LinkedList<>());
+  private final List<String> failureReports = Collections.synchronizedList(new LinkedList<>());
+  private volatile boolean run;
 
   public Metatest(Class<?> testClass) {
     this.run = false;
@@ -25,7 +34,7 @@ public class Metatest {
   }
 
   public void runTestClass() {
-    final HashMap<Description, TestMethodExpectation.TestMethodResult> testMethodResultMap = new LinkedHashMap<>();
+    final Map<Description, TestMethodExpectation.TestMethodResult> testMethodResultMap = new ConcurrentHashMap<>();
     try {
       Result testResult = new JUnitCore() {{
         addListener(new RunListener() {
@@ -66,7 +75,7 @@ public class Metatest {
             .forEach((TestClassExpectation.EnsureJUnitResult each) -> {
               if (!TestClassExpectation.ResultPredicateFactory.createPredicate(each).test(testResult)) {
                 errors.add(new Exception(format("Failed to verify expectation:%s[%s]: result='%s'", each.type().getSimpleName(), Arrays.toString(each.args()), testResultToString(testResult))));
-                testResult.getFailures().forEach(System.out::println);
+                testResult.getFailures().forEach(f -> failureReports.add(f.toString()));
               }
             });
       }
@@ -88,7 +97,41 @@ public class Metatest {
   public static void verifyTestClass(Class<?> testClass) {
     Metatest metatest = new Metatest(testClass);
     metatest.runTestClass();
-    List<Throwable> errors = metatest.verifyTestResult();
+    report(metatest.failureReports, metatest.verifyTestResult());
+  }
+
+  /**
+   * Verifies test classes concurrently.
+   * Each class is loaded by its own class loader, so that static states, such as `Validator` configuration, are not shared with other classes.
+   * Failures and mismatches are reported in the order of the given classes, not in the order they are detected.
+   *
+   * @param testClasses Test classes to be verified.
+   */
+  public static void verifyTestClasses(Class<?>... testClasses) {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(Math.min(testClasses.length, Runtime.getRuntime().availableProcessors()), 1));
+    try {
+      List<Future<Metatest>> futures = Arrays.stream(testClasses)
+          .map(each -> executor.submit(() -> {
+            Metatest metatest = new Metatest(IsolatingClassLoader.reload(each));
+            metatest.runTestClass();
+            return metatest;
+          }))
+          .collect(toList());
+      List<String> failureReports = new LinkedList<>();
+      List<Throwable> errors = new LinkedList<>();
+      for (Future<Metatest> each : futures) {
+        Metatest metatest = join(each);
+        failureReports.addAll(metatest.failureReports);
+        errors.addAll(metatest.verifyTestResult());
+      }
+      report(failureReports, errors);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void report(List<String> failureReports, List<Throwable> errors) {
+    failureReports.forEach(System.out::println);
     if (!errors.isEmpty()) {
       for (Throwable each : errors)
         each.printStackTrace();
@@ -96,4 +139,94 @@ public class Metatest {
     } else
       System.err.println("All verifications are green!");
   }
+
+  private static <T> T join(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * A child-first class loader, which defines classes from the class files visible to its parent.
+   * Classes of the JDK, JUnit, and this package are loaded by the parent, so that results and expectations can be read by the caller.
+   * Packages of the JDK outside `java.*`, such as `com.sun.management` and `org.w3c.dom`, are also shared, since their classes must not be defined twice.
+   */
+  static class IsolatingClassLoader extends ClassLoader {
+    private static final String[] SHARED_PACKAGE_PREFIXES = {
+        "java.",
+        "javax.",
+        "sun.",
+        "com.sun.",
+        "jdk.",
+        "org.w3c.",
+        "org.xml.",
+        "org.ietf.",
+        "org.junit.",
+        "junit.",
+        "org.hamcrest.",
+        "org.opentest4j.",
+        Metatest.class.getPackage().getName() + ".",
+    };
+
+    static {
+      registerAsParallelCapable();
+    }
+
+    IsolatingClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    static Class<?> reload(Class<?> testClass) {
+      try {
+        return Class.forName(testClass.getName(), true, new IsolatingClassLoader(testClass.getClassLoader()));
+      } catch (ClassNotFoundException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (isShared(name))
+        return super.loadClass(name, resolve);
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> ret = findLoadedClass(name);
+        if (ret == null)
+          ret = findClass(name);
+        if (resolve)
+          resolveClass(ret);
+        return ret;
+      }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+        if (in == null)
+          return getParent().loadClass(name);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer))
+          bytes.write(buffer, 0, n);
+        return defineClass(name, bytes.toByteArray(), 0, bytes.size());
+      } catch (IOException e) {
+        throw new ClassNotFoundException(name, e);
+      }
+    }
+
+    private static boolean isShared(String name) {
+      for (String each : SHARED_PACKAGE_PREFIXES)
+        if (name.startsWith(each))
+          return true;
+      return false;
+    }
+  }
 }